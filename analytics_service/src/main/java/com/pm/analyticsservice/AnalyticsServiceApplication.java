@@ -3,8 +3,10 @@ package com.pm.analyticsservice;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling // RollupService.purgeExpired
 public class AnalyticsServiceApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,84 @@
+package com.pm.analyticsservice.aggregation;
+
+import java.util.Arrays;
+
+// Ring of tumbling buckets for one Kafka partition. Only that partition's listener thread writes,
+// so the lock is uncontended except while a query is copying a bucket out.
+// State is three flat arrays allocated once: bucket numbers, counts[slot][eventType] and HLL registers[slot].
+final class PartitionWindows {
+
+    private final int slots;
+    private final int eventTypes;
+    private final int precision;
+    private final int registers;
+
+    private final long[] slotBucket;
+    private final long[] counts;
+    private final byte[] sketches;
+
+    PartitionWindows(int slots, int eventTypes, int precision) {
+        this.slots = slots;
+        this.eventTypes = eventTypes;
+        this.precision = precision;
+        this.registers = 1 << precision;
+        this.slotBucket = new long[slots];
+        Arrays.fill(slotBucket, Long.MIN_VALUE);
+        this.counts = new long[slots * eventTypes];
+        this.sketches = new byte[slots * registers];
+    }
+
+    // Records the first `count` events under one lock acquisition. An event whose slot already holds
+    // a newer bucket is older than the retained windows and is skipped. Returns how many were recorded.
+    synchronized int recordAll(long[] buckets, int[] types, long[] patientHashes, int count) {
+        int recorded = 0;
+        for (int i = 0; i < count; i++) {
+            int slot = claim(buckets[i]);
+            if (slot < 0) {
+                continue;
+            }
+            counts[slot * eventTypes + types[i]]++;
+            HyperLogLog.add(sketches, slot * registers, precision, patientHashes[i]);
+            recorded++;
+        }
+        return recorded;
+    }
+
+    // Loads a bucket back from the rollup store after a restart (counts indexed like the live ones).
+    synchronized void restore(long bucket, long[] typeCounts, byte[] sketch) {
+        int slot = claim(bucket);
+        if (slot < 0) {
+            return;
+        }
+        for (int type = 0; type < eventTypes; type++) {
+            counts[slot * eventTypes + type] += typeCounts[type];
+        }
+        HyperLogLog.mergeInto(sketch, 0, sketches, slot * registers, registers);
+    }
+
+    // slot holding `bucket`, recycling it if the ring wrapped around; -1 if it already holds a newer bucket
+    private int claim(long bucket) {
+        int slot = (int) Math.floorMod(bucket, (long) slots);
+        long held = slotBucket[slot];
+        if (held != bucket) {
+            if (held > bucket) {
+                return -1;
+            }
+            Arrays.fill(counts, slot * eventTypes, (slot + 1) * eventTypes, 0L);
+            Arrays.fill(sketches, slot * registers, (slot + 1) * registers, (byte) 0);
+            slotBucket[slot] = bucket;
+        }
+        return slot;
+    }
+
+    // adds this partition's share of the bucket into the caller's accumulators
+    synchronized void collect(long bucket, long[] countsOut, byte[] sketchOut) {
+        int slot = (int) Math.floorMod(bucket, (long) slots);
+        if (slotBucket[slot] != bucket) {
+            return;
+        }
+        for (int type = 0; type < eventTypes; type++) {
+            countsOut[type] += counts[slot * eventTypes + type];
+        }
+        HyperLogLog.mergeInto(sketches, slot * registers, sketchOut, 0, registers);
+    }
+}
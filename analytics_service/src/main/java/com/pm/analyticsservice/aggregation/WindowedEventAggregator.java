@@ -0,0 +1,176 @@
+package com.pm.analyticsservice.aggregation;
+
+import com.pm.analyticsservice.dto.WindowSnapshotDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// In-process streaming aggregation of PatientEvents.
+// Time is cut into tumbling buckets of analytics.aggregation.bucket-size (by Kafka record timestamp);
+// the last analytics.aggregation.retained-buckets are kept per partition.
+//   tumbling windows = single buckets
+//   sliding windows  = the union of the latest N buckets, hopping by one bucket
+// Each bucket holds an event count per event_type and a HyperLogLog sketch of patient ids,
+// which is what makes distinct counts of a sliding window a cheap merge instead of a set union.
+@Component
+public class WindowedEventAggregator {
+
+    // event types beyond this many are counted under OTHER
+    static final int MAX_EVENT_TYPES = 32;
+    static final String OTHER = "OTHER";
+    // buckets reloaded from the rollup store live here, next to the real partitions
+    private static final int RESTORED_PARTITION = -1;
+
+    private final long bucketMillis;
+    private final int retainedBuckets;
+    private final int precision;
+
+    // event_type -> column in the per-bucket counts; index 0 is OTHER
+    private final Map<String, Integer> eventTypeIndex = new ConcurrentHashMap<>();
+    private final Map<Integer, PartitionWindows> partitions = new ConcurrentHashMap<>();
+    private final LongAdder dropped = new LongAdder();
+
+    public WindowedEventAggregator(@Value("${analytics.aggregation.bucket-size:1m}") Duration bucketSize,
+                                   @Value("${analytics.aggregation.retained-buckets:60}") int retainedBuckets,
+                                   @Value("${analytics.aggregation.hll-precision:12}") int precision) {
+        if (precision < 4 || precision > 16) {
+            throw new IllegalArgumentException("analytics.aggregation.hll-precision must be between 4 and 16");
+        }
+        this.bucketMillis = bucketSize.toMillis();
+        this.retainedBuckets = retainedBuckets;
+        this.precision = precision;
+        eventTypeIndex.put(OTHER, 0);
+    }
+
+    // Applies one partition's slice of a poll, called from the listener thread that owns the partition.
+    // The first `count` entries of the arrays are used. Returns how many events landed in a window;
+    // the rest were older than the retained windows (or stamped in the future) and are dropped.
+    public int recordAll(int partition, long[] timestamps, String[] eventTypes, String[] patientIds, int count) {
+        long current = currentBucket();
+        long[] buckets = new long[count];
+        int[] types = new int[count];
+        long[] hashes = new long[count];
+        int accepted = 0;
+        for (int i = 0; i < count; i++) {
+            long bucket = Math.floorDiv(timestamps[i], bucketMillis);
+            // too old to matter, or a producer clock far in the future that would wipe live buckets
+            if (bucket <= current - retainedBuckets || bucket > current + 1) {
+                continue;
+            }
+            buckets[accepted] = bucket;
+            types[accepted] = indexOf(eventTypes[i]);
+            hashes[accepted] = HyperLogLog.hash(patientIds[i]);
+            accepted++;
+        }
+        PartitionWindows windows = partitions.computeIfAbsent(partition,
+                p -> new PartitionWindows(retainedBuckets, MAX_EVENT_TYPES, precision));
+        int recorded = windows.recordAll(buckets, types, hashes, accepted);
+        dropped.add(count - recorded);
+        return recorded;
+    }
+
+    // Puts a persisted bucket back into the live windows after a restart; see RollupService.
+    // Ignored if it is older than the retained windows.
+    public void restore(long bucketStartMillis, Map<String, Long> eventCounts, byte[] sketch) {
+        long bucket = Math.floorDiv(bucketStartMillis, bucketMillis);
+        if (bucket <= currentBucket() - retainedBuckets || sketch.length != 1 << precision) {
+            return;
+        }
+        long[] typeCounts = new long[MAX_EVENT_TYPES];
+        eventCounts.forEach((type, count) -> typeCounts[indexOf(type)] += count);
+        partitions.computeIfAbsent(RESTORED_PARTITION,
+                        p -> new PartitionWindows(retainedBuckets, MAX_EVENT_TYPES, precision))
+                .restore(bucket, typeCounts, sketch);
+    }
+
+    public Duration bucketSize() {
+        return Duration.ofMillis(bucketMillis);
+    }
+
+    public int retainedBuckets() {
+        return retainedBuckets;
+    }
+
+    private int indexOf(String eventType) {
+        Integer index = eventTypeIndex.get(eventType);
+        if (index != null) {
+            return index;
+        }
+        if (eventTypeIndex.size() >= MAX_EVENT_TYPES) {
+            return 0;
+        }
+        // 新的 event_type 很少出现，这里加锁也没关系
+        synchronized (eventTypeIndex) {
+            index = eventTypeIndex.get(eventType);
+            if (index == null) {
+                if (eventTypeIndex.size() >= MAX_EVENT_TYPES) {
+                    return 0;
+                }
+                index = eventTypeIndex.size();
+                eventTypeIndex.put(eventType, index);
+            }
+            return index;
+        }
+    }
+
+    // the most recent `count` tumbling windows, newest first; the first one is still filling up
+    public List<WindowSnapshotDTO> tumbling(int count) {
+        int windows = Math.max(1, Math.min(count, retainedBuckets));
+        long current = currentBucket();
+        List<WindowSnapshotDTO> result = new ArrayList<>(windows);
+        for (int i = 0; i < windows; i++) {
+            result.add(aggregate(current - i, current - i));
+        }
+        return result;
+    }
+
+    // one window covering the latest `size` (rounded up to whole buckets), ending with the current bucket
+    public WindowSnapshotDTO sliding(Duration size) {
+        long buckets = Math.max(1, Math.min(retainedBuckets, (size.toMillis() + bucketMillis - 1) / bucketMillis));
+        long current = currentBucket();
+        return aggregate(current - buckets + 1, current);
+    }
+
+    public long droppedEvents() {
+        return dropped.sum();
+    }
+
+    private WindowSnapshotDTO aggregate(long firstBucket, long lastBucket) {
+        long[] counts = new long[MAX_EVENT_TYPES];
+        byte[] sketch = new byte[1 << precision];
+        for (long bucket = firstBucket; bucket <= lastBucket; bucket++) {
+            for (PartitionWindows windows : partitions.values()) {
+                windows.collect(bucket, counts, sketch);
+            }
+        }
+
+        Map<String, Long> eventCounts = new LinkedHashMap<>();
+        long total = 0;
+        for (Map.Entry<String, Integer> type : eventTypeIndex.entrySet()) {
+            long value = counts[type.getValue()];
+            if (value > 0) {
+                eventCounts.put(type.getKey(), value);
+                total += value;
+            }
+        }
+        long distinctPatients = total == 0 ? 0 : HyperLogLog.estimate(sketch, sketch.length);
+        return new WindowSnapshotDTO(
+                Instant.ofEpochMilli(firstBucket * bucketMillis),
+                Instant.ofEpochMilli((lastBucket + 1) * bucketMillis),
+                total,
+                eventCounts,
+                distinctPatients);
+    }
+
+    private long currentBucket() {
+        return Math.floorDiv(System.currentTimeMillis(), bucketMillis);
+    }
+}
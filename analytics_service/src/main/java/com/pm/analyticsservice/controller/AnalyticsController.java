@@ -0,0 +1,54 @@
+package com.pm.analyticsservice.controller;
+
+import com.pm.analyticsservice.aggregation.WindowedEventAggregator;
+import com.pm.analyticsservice.dto.WindowSnapshotDTO;
+import com.pm.analyticsservice.model.RollupGranularity;
+import com.pm.analyticsservice.service.RollupService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+// Read side for the dashboards: live windows from WindowedEventAggregator, history from the rollup store.
+@RestController
+@RequestMapping("/analytics/events")
+public class AnalyticsController {
+
+    private final WindowedEventAggregator aggregator;
+    private final RollupService rollupService;
+
+    public AnalyticsController(WindowedEventAggregator aggregator, RollupService rollupService) {
+        this.aggregator = aggregator;
+        this.rollupService = rollupService;
+    }
+
+    // GET /analytics/events/tumbling?windows=10 -> the last 10 tumbling windows, newest first
+    @GetMapping("/tumbling")
+    public ResponseEntity<List<WindowSnapshotDTO>> tumbling(@RequestParam(defaultValue = "10") int windows) {
+        return ResponseEntity.ok().body(aggregator.tumbling(windows));
+    }
+
+    // GET /analytics/events/sliding?size=PT15M -> one window covering the last 15 minutes
+    @GetMapping("/sliding")
+    public ResponseEntity<WindowSnapshotDTO> sliding(@RequestParam(defaultValue = "PT5M") Duration size) {
+        return ResponseEntity.ok().body(aggregator.sliding(size));
+    }
+
+    // GET /analytics/events/rollups?granularity=HOUR&from=2026-01-01T00:00:00Z -> pre-aggregated buckets, oldest first
+    // to defaults to now, from to 24 buckets before to
+    @GetMapping("/rollups")
+    public ResponseEntity<List<WindowSnapshotDTO>> rollups(
+            @RequestParam(defaultValue = "HOUR") RollupGranularity granularity,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to) {
+        Instant end = to == null ? Instant.now() : to;
+        Instant start = from == null ? end.minusMillis(24 * granularity.millis()) : from;
+        return ResponseEntity.ok().body(rollupService.rollups(granularity, start, end));
+    }
+}
@@ -0,0 +1,51 @@
+package com.pm.analyticsservice.controller;
+
+import com.pm.analyticsservice.state.PatientStateStore;
+import com.pm.analyticsservice.state.PatientStateStore.PatientState;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+// Materialized patient view kept by PatientStateStore (changelog bootstrap + event stream).
+// Reached through the gateway's /api/analytics route; port 4002 must stay internal, because the
+// caller identity below is the X-Auth-* headers the gateway's JwtValidation filter sets.
+@RestController
+@RequestMapping("/analytics/patients")
+public class PatientStateController {
+
+    static final String SUBJECT_HEADER = "X-Auth-Subject";
+    static final String ROLE_HEADER = "X-Auth-Role";
+    static final String ADMIN_ROLE = "ADMIN";
+
+    private final PatientStateStore patientStateStore;
+
+    public PatientStateController(PatientStateStore patientStateStore) {
+        this.patientStateStore = patientStateStore;
+    }
+
+    @GetMapping("/count")
+    public ResponseEntity<Map<String, Long>> count() {
+        return ResponseEntity.ok().body(Map.of("activePatients", patientStateStore.activePatients()));
+    }
+
+    // name / email / address / date of birth: admins only
+    @GetMapping("/{id}")
+    public ResponseEntity<PatientState> get(@PathVariable String id,
+                                            @RequestHeader(value = SUBJECT_HEADER, required = false) String subject,
+                                            @RequestHeader(value = ROLE_HEADER, required = false) String role) {
+        if (subject == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        if (!ADMIN_ROLE.equals(role)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        PatientState state = patientStateStore.get(id);
+        return state == null ? ResponseEntity.notFound().build() : ResponseEntity.ok().body(state);
+    }
+}
@@ -0,0 +1,12 @@
+package com.pm.analyticsservice.dto;
+
+import java.time.Instant;
+import java.util.Map;
+
+// One aggregation window: [start, end). distinctPatients is a HyperLogLog estimate (~1.6% error by default).
+public record WindowSnapshotDTO(Instant start,
+                                Instant end,
+                                long totalEvents,
+                                Map<String, Long> eventCounts,
+                                long distinctPatients) {
+}
@@ -0,0 +1,124 @@
+package com.pm.analyticsservice.kafka;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.pm.analyticsservice.state.PatientStateStore;
+import jakarta.annotation.PostConstruct;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import patient.events.PatientEvent;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+// Bootstrap mode (analytics.bootstrap.enabled): before the listeners start, read the compacted
+// patient-changelog from the beginning up to its current end and load the latest state per patient
+// into PatientStateStore. Compaction keeps one record per patient, so this costs O(patients),
+// not O(all events ever). The patient stream listener then keeps the store current.
+// The same read runs again whenever the store has patients waiting for a resync after a version gap.
+@Component
+public class ChangelogBootstrap {
+
+    private static final Logger log = LoggerFactory.getLogger(ChangelogBootstrap.class);
+
+    private final ConsumerFactory<String, byte[]> consumerFactory;
+    private final PatientStateStore patientStateStore;
+    private final boolean enabled;
+    private final String topic;
+    private final Duration timeout;
+
+    public ChangelogBootstrap(ConsumerFactory<String, byte[]> consumerFactory,
+                              PatientStateStore patientStateStore,
+                              @Value("${analytics.bootstrap.enabled:true}") boolean enabled,
+                              @Value("${analytics.bootstrap.topic:patient-changelog}") String topic,
+                              @Value("${analytics.bootstrap.timeout:2m}") Duration timeout) {
+        this.consumerFactory = consumerFactory;
+        this.patientStateStore = patientStateStore;
+        this.enabled = enabled;
+        this.topic = topic;
+        this.timeout = timeout;
+    }
+
+    // singletons are initialized before the listener containers start, so the stream never races the snapshot
+    @PostConstruct
+    public void bootstrap() {
+        if (enabled) {
+            readChangelog("Bootstrapped");
+        }
+    }
+
+    // patients whose stream skipped a version are repaired from their latest changelog snapshot
+    // (PatientStateStore.applySnapshot clears them once the snapshot has caught up)
+    @Scheduled(fixedDelayString = "${analytics.state.resync-interval-ms:30000}")
+    public void resync() {
+        if (enabled && patientStateStore.hasPendingResync()) {
+            readChangelog("Resynced");
+        }
+    }
+
+    private void readChangelog(String action) {
+        long started = System.currentTimeMillis();
+        long loaded = 0;
+        // no group id: partitions are assigned by hand and nothing is committed
+        try (Consumer<String, byte[]> consumer = consumerFactory.createConsumer(null, "analytics-bootstrap")) {
+            List<PartitionInfo> partitionInfos = consumer.partitionsFor(topic);
+            if (partitionInfos == null || partitionInfos.isEmpty()) {
+                log.info("Changelog topic {} does not exist yet, skipping", topic);
+                return;
+            }
+            List<TopicPartition> partitions = partitionInfos.stream()
+                    .map(info -> new TopicPartition(topic, info.partition()))
+                    .toList();
+            consumer.assign(partitions);
+            consumer.seekToBeginning(partitions);
+            // read up to where the changelog is now; anything newer arrives through the patient stream
+            Map<TopicPartition, Long> end = consumer.endOffsets(partitions);
+
+            long deadline = started + timeout.toMillis();
+            while (!caughtUp(consumer, end)) {
+                if (System.currentTimeMillis() > deadline) {
+                    log.warn("Changelog read timed out after {}, continuing with {} records", timeout, loaded);
+                    break;
+                }
+                ConsumerRecords<String, byte[]> records = consumer.poll(Duration.ofMillis(500));
+                for (ConsumerRecord<String, byte[]> record : records) {
+                    apply(record);
+                    loaded++;
+                }
+            }
+        }
+        log.info("{} {} changelog records ({} active patients) from {} in {} ms",
+                action, loaded, patientStateStore.activePatients(), topic, System.currentTimeMillis() - started);
+    }
+
+    private void apply(ConsumerRecord<String, byte[]> record) {
+        if (record.value() == null) {
+            patientStateStore.applyTombstone(record.key());
+            return;
+        }
+        try {
+            patientStateStore.applySnapshot(PatientEvent.parseFrom(record.value()));
+        } catch (InvalidProtocolBufferException e) {
+            log.error("Skipping undecodable changelog record {}-{}@{}: {}",
+                    record.topic(), record.partition(), record.offset(), e.getMessage());
+        }
+    }
+
+    private static boolean caughtUp(Consumer<String, byte[]> consumer, Map<TopicPartition, Long> end) {
+        for (Map.Entry<TopicPartition, Long> partition : end.entrySet()) {
+            if (consumer.position(partition.getKey()) < partition.getValue()) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
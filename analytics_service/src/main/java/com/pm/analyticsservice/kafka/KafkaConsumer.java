@@ -1,11 +1,31 @@
 package com.pm.analyticsservice.kafka;
 
 import com.google.protobuf.InvalidProtocolBufferException;
+import com.pm.analyticsservice.aggregation.WindowedEventAggregator;
+import com.pm.analyticsservice.service.RollupService;
+import com.pm.analyticsservice.state.PatientStateStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import io.micrometer.tracing.propagation.Propagator;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.ConsumerSeekAware;
+import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.stereotype.Service;
 import patient.events.PatientEvent;
+import patient.events.PatientEventType;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 //InvalidProtocolBufferException：当你解码Protobuf数据失败时会抛出这个异常。
 //
 //）。Logger：用来打印日志（比如log.info()和log.error()）。
@@ -15,7 +35,7 @@ import patient.events.PatientEvent;
 //PatientEvent：这是用Protobuf定义的Java类，代表顾客的事件数据。
 
 @Service
-public class KafkaConsumer {
+public class KafkaConsumer implements ConsumerSeekAware {
     //@Service: Spring 标记，这样这个类会自动被 Spring 管理（可以自动注入）。
     //
     //类名是KafkaConsumer，意思是它专门负责接收Kafka消息。
@@ -24,10 +44,37 @@ public class KafkaConsumer {
             KafkaConsumer.class);
     // 创建一个日志对象，方便在代码里打印日志。
 
-    @KafkaListener(topics="patient", groupId = "analytics-service")
-    public void consumeEvent(byte[] event) {
+    private final WindowedEventAggregator aggregator;
+    private final RollupService rollupService;
+    private final PatientStateStore patientStateStore;
+    // 每条消息从 producer 打的时间戳到这里处理完的延迟；p99 高说明消费跟不上（offset lag 见 kafka.consumer.*.records.lag）
+    private final Timer consumeDelay;
+    private final Tracer tracer;
+    private final Propagator propagator;
+
+    public KafkaConsumer(WindowedEventAggregator aggregator, RollupService rollupService,
+                         PatientStateStore patientStateStore, MeterRegistry meterRegistry,
+                         Tracer tracer, Propagator propagator) {
+        this.aggregator = aggregator;
+        this.rollupService = rollupService;
+        this.patientStateStore = patientStateStore;
+        this.tracer = tracer;
+        this.propagator = propagator;
+        this.consumeDelay = Timer.builder("analytics.kafka.consume.delay")
+                .description("Time from the record timestamp to the event being applied")
+                .tag("topic", "patient")
+                .register(meterRegistry);
+    }
+
+    // Batch mode (spring.kafka.listener.type=batch): one call per poll, up to max.poll.records records.
+    // Offsets are committed by ack.acknowledge() only after the whole batch has been applied
+    // (ack-mode=manual_immediate, auto-commit off), so a crash replays the batch instead of losing it.
+    // concurrency = number of consumer threads; set it to the partition count of the patient topic.
+    @KafkaListener(topics="patient", groupId = "analytics-service",
+            concurrency = "${analytics.kafka.concurrency:1}")
+    public void consumeEvent(List<ConsumerRecord<String, byte[]>> records, Acknowledgment ack) {
         // 见： KafkaProducer.java里的try catch  就是这么传进来的
-        // transfer into event
+        // 参数是一整批 ConsumerRecord，每条的 value 是 Protobuf 的二进制字节，要先 parseFrom 还原成 PatientEvent
 
         //@KafkaListener：
         //
@@ -37,50 +84,133 @@ public class KafkaConsumer {
         //
         //方法consumeEvent()：
         //
-        //参数是一个byte[] event，馄饨从Kafka接收到二进制字节负载（因为Protobuf消息就是字节流）。
-        try {
-            PatientEvent patientEvent = PatientEvent.parseFrom(event);
-            //在呢这里可以加 其他的business logic
-            //这里用PatientEvent.parseFrom(event)把字节存储转回一个收到的PatientEvent对象。
-            //
-            //Protobuf的数据传输就是用字节流，所以必须先解析才能用。
-            //把接收的字节吞吐量event（来自Kafka的一段二进制数据）
-            //解析（decode）成一个PatientEvent对象。
-            //这意味着：event只是一堆字节乱码）（看起来像乱码）。
-            //parseFrom()是Protobuf提供的方法，把这堆字节还原成我们定义的`成我们定义好的PatientEvent这个Java对象。
-            //
-            //还原之后，你就可以像正常的Java对象那样使用它了，比如：patientEvent.getPatientId()，patientEvent.getName()
-            //patientEvent.getEmail()
-
-            //perform any business related to analytics here
-            //👉这个意思：
-            //在这里，你可以编写与“分析业务”相关的逻辑。
-            //现在它只是一个注释，作者提醒你：
-            //“这里可以放一些实际做的事情，比如保存数据、计算统计、调用其他服务等等。”
-            //举个例子：
-            //你以后可以在这里写：
-            //analyticsService.recordPatientVisit(patientEvent.getPatientId());
-            //或者：
-            //statisticsService.updatePatientStats(patientEvent);
-            //现在还没写，是留空的，但可以扩展。
-
-            //总结：它先把二进制消息变回客户的接收对象（PatientEvent），
-            //然后可以在这里做任何你想要的分析业务，比如记录、统计、发送数据。
-
-            log.info("Received Patient Event: [PatientId={},PatientName={},PatientEmail={}]",
-                    patientEvent.getPatientId(),
-                    patientEvent.getName(),
-                    patientEvent.getEmail());
-
-            //一旦解析成功，这里会打印出患者的ID、姓名和邮箱。
-            //
-            //这些值是从patientEvent对象里拿出来的。
-
-        } catch (InvalidProtocolBufferException e) {
-            log.error("Error deserializing event {}", e.getMessage());
-            //如果Protobuf解析失败（比如字节数据损坏了），会捕获异常。
-            //
-            //并打印错误日志。
+        //参数records是这一次poll到的一批消息，每条的value()是从Kafka接收到的二进制字节负载（因为Protobuf消息就是字节流）。
+        //ack用来在整批处理完之后手动提交offset。
+
+        int size = records.size();
+        long[] timestamps = new long[size];
+        String[] eventTypes = new String[size];
+        String[] patientIds = new String[size];
+
+        // 同一个 poll 里的 records 按 partition 连续排列，攒成一段再一次性处理（每个 partition 只写一次库、加一次锁）
+        int count = 0;
+        int applied = 0;
+        ConsumerRecord<String, byte[]> last = null;
+        for (ConsumerRecord<String, byte[]> record : records) {
+            if (last != null && record.partition() != last.partition()) {
+                applied += apply(last, timestamps, eventTypes, patientIds, count);
+                count = 0;
+            }
+            last = record;
+            // 已经写进 rollup 库的消息（ack 失败后被重新投递）跳过，避免重复计数
+            if (record.offset() < rollupService.nextOffset(record.topic(), record.partition())) {
+                continue;
+            }
+            // batch listener 没有 spring-kafka 的 observation：按每条消息的 traceparent header 自己接上 producer 的 trace
+            Span span = receiveSpan(record);
+            try (Tracer.SpanInScope scope = span == null ? null : tracer.withSpan(span)) {
+                PatientEvent patientEvent = PatientEvent.parseFrom(record.value());
+                //这里用PatientEvent.parseFrom(...)把字节存储转回一个收到的PatientEvent对象。
+                //
+                //Protobuf的数据传输就是用字节流，所以必须先解析才能用。
+                //把接收的字节record.value()（来自Kafka的一段二进制数据）
+                //解析（decode）成一个PatientEvent对象。
+                //这意味着：record.value()只是一堆字节（看起来像乱码）。
+                //parseFrom()是Protobuf提供的方法，把这堆字节还原成我们定义好的PatientEvent这个Java对象。
+                //
+                //还原之后，你就可以像正常的Java对象那样使用它了，比如：patientEvent.getPatientId()，patientEvent.getName()
+                //patientEvent.getEmail()
+
+                //perform any business related to analytics here
+                //👉这个意思：
+                //在这里，你可以编写与“分析业务”相关的逻辑。
+                //现在这里做的是：更新病人最新状态（PatientStateStore），把事件放进这一段里，
+                //之后按 partition 一次性写进 rollup 库（RollupService）并计入窗口（WindowedEventAggregator）。
+                //以后还可以在这里加别的统计，比如：
+                //statisticsService.updatePatientStats(patientEvent);
+
+                //总结：它先把二进制消息变回客户的接收对象（PatientEvent），
+                //然后可以在这里做任何你想要的分析业务，比如记录、统计、发送数据。
+
+                // 按 version 更新每个病人的最新状态（重复/乱序的旧事件会被忽略）
+                patientStateStore.apply(patientEvent);
+                timestamps[count] = record.timestamp();
+                // 新版事件用 enum type，老版本只有字符串 event_type
+                eventTypes[count] = patientEvent.getType() != PatientEventType.PATIENT_EVENT_TYPE_UNSPECIFIED
+                        ? patientEvent.getType().name()
+                        : patientEvent.getEventType();
+                patientIds[count] = patientEvent.getPatientId();
+                count++;
+            } catch (InvalidProtocolBufferException e) {
+                // 坏消息跳过，不能让一条损坏的数据卡住整个 partition
+                log.error("Error deserializing event at {}-{}@{}: {}",
+                        record.topic(), record.partition(), record.offset(), e.getMessage());
+                //如果Protobuf解析失败（比如字节数据损坏了），会捕获异常。
+                //
+                //并打印错误日志（带上 topic-partition@offset，方便找到是哪条消息）。
+                if (span != null) {
+                    span.error(e);
+                }
+            } finally {
+                if (span != null) {
+                    span.end();
+                }
+            }
+        }
+        if (last != null) {
+            applied += apply(last, timestamps, eventTypes, patientIds, count);
+        }
+
+        // 整批处理完再提交 offset
+        ack.acknowledge();
+
+        long now = System.currentTimeMillis();
+        for (ConsumerRecord<String, byte[]> record : records) {
+            consumeDelay.record(Math.max(0, now - record.timestamp()), TimeUnit.MILLISECONDS);
+        }
+
+        log.debug("Applied {} of {} patient events", applied, size);
+    }
+
+    // One partition's slice: durable rollups + checkpoint first (one transaction), then the live windows.
+    // If the write fails nothing in memory has changed yet, and the batch is redelivered.
+    private int apply(ConsumerRecord<String, byte[]> last, long[] timestamps, String[] eventTypes,
+                      String[] patientIds, int count) {
+        if (last.offset() < rollupService.nextOffset(last.topic(), last.partition())) {
+            return 0;
+        }
+        rollupService.apply(last.topic(), last.partition(), last.offset() + 1,
+                timestamps, eventTypes, patientIds, count);
+        return aggregator.recordAll(last.partition(), timestamps, eventTypes, patientIds, count);
+    }
+
+    // null when the producer sent no trace context (untraced request, or an older producer)
+    private Span receiveSpan(ConsumerRecord<String, byte[]> record) {
+        if (propagator.fields().stream().noneMatch(field -> record.headers().lastHeader(field) != null)) {
+            return null;
         }
+        return propagator.extract(record.headers(), KafkaConsumer::header)
+                .name("patient receive")
+                .kind(Span.Kind.CONSUMER)
+                .tag("messaging.destination.name", record.topic())
+                .tag("messaging.kafka.partition", String.valueOf(record.partition()))
+                .tag("messaging.kafka.offset", String.valueOf(record.offset()))
+                .start();
+    }
+
+    private static String header(Headers headers, String key) {
+        Header header = headers.lastHeader(key);
+        return header == null ? null : new String(header.value(), StandardCharsets.UTF_8);
+    }
+
+    // 重启或 rebalance 之后，从 rollup 库里记录的 offset 继续消费，而不是 Kafka 上次提交的 offset
+    @Override
+    public void onPartitionsAssigned(Map<TopicPartition, Long> assignments, ConsumerSeekCallback callback) {
+        assignments.keySet().forEach(tp -> {
+            long next = rollupService.nextOffset(tp.topic(), tp.partition());
+            if (next >= 0) {
+                callback.seek(tp.topic(), tp.partition(), next);
+            }
+        });
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,25 @@
+package com.pm.analyticsservice.model;
+
+import java.time.Duration;
+
+// Rollup levels kept by the RollupStore. Every event increments one bucket at each level.
+public enum RollupGranularity {
+    MINUTE(Duration.ofMinutes(1)),
+    HOUR(Duration.ofHours(1)),
+    DAY(Duration.ofDays(1));
+
+    private final long millis;
+
+    RollupGranularity(Duration size) {
+        this.millis = size.toMillis();
+    }
+
+    public long millis() {
+        return millis;
+    }
+
+    // start of the bucket containing the timestamp (UTC)
+    public long bucketStart(long timestampMillis) {
+        return Math.floorDiv(timestampMillis, millis) * millis;
+    }
+}
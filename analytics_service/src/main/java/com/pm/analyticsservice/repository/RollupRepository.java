@@ -0,0 +1,118 @@
+package com.pm.analyticsservice.repository;
+
+import com.pm.analyticsservice.model.RollupGranularity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+// JDBC access to the rollup tables in schema.sql. Callers provide the transaction.
+@Repository
+public class RollupRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public RollupRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public record CountIncrement(RollupGranularity granularity, long bucketStart, String eventType, long count) {
+    }
+
+    public record BucketKey(RollupGranularity granularity, long bucketStart) {
+    }
+
+    // event_count += count, inserting the row on first use; one JDBC batch for the whole poll
+    public void incrementCounts(List<CountIncrement> increments) {
+        jdbcTemplate.batchUpdate("""
+                        MERGE INTO event_rollup t
+                        USING (VALUES (CAST(? AS VARCHAR(8)), CAST(? AS BIGINT), CAST(? AS VARCHAR(64)), CAST(? AS BIGINT)))
+                            AS s(granularity, bucket_start, event_type, event_count)
+                        ON t.granularity = s.granularity AND t.bucket_start = s.bucket_start AND t.event_type = s.event_type
+                        WHEN MATCHED THEN UPDATE SET event_count = t.event_count + s.event_count
+                        WHEN NOT MATCHED THEN INSERT (granularity, bucket_start, event_type, event_count)
+                            VALUES (s.granularity, s.bucket_start, s.event_type, s.event_count)
+                        """,
+                increments, increments.size(), (ps, increment) -> {
+                    ps.setString(1, increment.granularity().name());
+                    ps.setLong(2, increment.bucketStart());
+                    ps.setString(3, increment.eventType());
+                    ps.setLong(4, increment.count());
+                });
+    }
+
+    public Optional<byte[]> findSketch(BucketKey key) {
+        return jdbcTemplate.query(
+                "SELECT registers FROM patient_sketch_rollup WHERE granularity = ? AND bucket_start = ?",
+                rs -> rs.next() ? Optional.of(rs.getBytes(1)) : Optional.empty(),
+                key.granularity().name(), key.bucketStart());
+    }
+
+    public void saveSketches(Map<BucketKey, byte[]> sketches) {
+        List<Map.Entry<BucketKey, byte[]>> entries = new ArrayList<>(sketches.entrySet());
+        jdbcTemplate.batchUpdate(
+                "MERGE INTO patient_sketch_rollup (granularity, bucket_start, registers) KEY (granularity, bucket_start) VALUES (?, ?, ?)",
+                entries, entries.size(), (ps, entry) -> {
+                    ps.setString(1, entry.getKey().granularity().name());
+                    ps.setLong(2, entry.getKey().bucketStart());
+                    ps.setBytes(3, entry.getValue());
+                });
+    }
+
+    public void saveCheckpoint(String topic, int partition, long nextOffset) {
+        jdbcTemplate.update(
+                "MERGE INTO consumer_checkpoint (topic, partition_id, next_offset) KEY (topic, partition_id) VALUES (?, ?, ?)",
+                topic, partition, nextOffset);
+    }
+
+    public Optional<Long> findCheckpoint(String topic, int partition) {
+        return jdbcTemplate.query(
+                "SELECT next_offset FROM consumer_checkpoint WHERE topic = ? AND partition_id = ?",
+                rs -> rs.next() ? Optional.of(rs.getLong(1)) : Optional.empty(),
+                topic, partition);
+    }
+
+    // bucket_start -> (event_type -> count) for buckets in [from, to), oldest first
+    public Map<Long, Map<String, Long>> findCounts(RollupGranularity granularity, long from, long to) {
+        Map<Long, Map<String, Long>> counts = new LinkedHashMap<>();
+        jdbcTemplate.query("""
+                        SELECT bucket_start, event_type, event_count FROM event_rollup
+                        WHERE granularity = ? AND bucket_start >= ? AND bucket_start < ?
+                        ORDER BY bucket_start
+                        """,
+                rs -> {
+                    counts.computeIfAbsent(rs.getLong(1), b -> new HashMap<>())
+                            .put(rs.getString(2), rs.getLong(3));
+                },
+                granularity.name(), from, to);
+        return counts;
+    }
+
+    public Map<Long, byte[]> findSketches(RollupGranularity granularity, long from, long to) {
+        Map<Long, byte[]> sketches = new HashMap<>();
+        jdbcTemplate.query("""
+                        SELECT bucket_start, registers FROM patient_sketch_rollup
+                        WHERE granularity = ? AND bucket_start >= ? AND bucket_start < ?
+                        """,
+                rs -> {
+                    sketches.put(rs.getLong(1), rs.getBytes(2));
+                },
+                granularity.name(), from, to);
+        return sketches;
+    }
+
+    public int deleteBefore(RollupGranularity granularity, long before) {
+        int deleted = jdbcTemplate.update(
+                "DELETE FROM event_rollup WHERE granularity = ? AND bucket_start < ?",
+                granularity.name(), before);
+        jdbcTemplate.update(
+                "DELETE FROM patient_sketch_rollup WHERE granularity = ? AND bucket_start < ?",
+                granularity.name(), before);
+        return deleted;
+    }
+}
@@ -0,0 +1,204 @@
+package com.pm.analyticsservice.service;
+
+import com.pm.analyticsservice.aggregation.HyperLogLog;
+import com.pm.analyticsservice.aggregation.WindowedEventAggregator;
+import com.pm.analyticsservice.dto.WindowSnapshotDTO;
+import com.pm.analyticsservice.model.RollupGranularity;
+import com.pm.analyticsservice.repository.RollupRepository;
+import com.pm.analyticsservice.repository.RollupRepository.BucketKey;
+import com.pm.analyticsservice.repository.RollupRepository.CountIncrement;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Durable per-minute/hour/day rollups of patient events, kept in the embedded H2 file database.
+// Each poll is folded into a handful of bucket increments and written in one transaction together
+// with the partition's next offset, so after a restart the consumer seeks to the checkpoint and
+// nothing is counted twice or lost. Queries read these buckets, never raw events.
+@Service
+public class RollupService {
+
+    private static final Logger log = LoggerFactory.getLogger(RollupService.class);
+
+    private static final int LOCK_STRIPES = 64;
+
+    private final RollupRepository rollupRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final WindowedEventAggregator aggregator;
+    private final int precision;
+    private final Duration minuteRetention;
+    private final Duration hourRetention;
+    // the rollup + checkpoint transaction of one partition slice
+    private final Timer writeTimer;
+
+    // in-memory copy of consumer_checkpoint, to skip records redelivered after a failed ack
+    private final Map<TopicPartition, Long> checkpoints = new ConcurrentHashMap<>();
+
+    // one lock per stripe of bucket keys (granularity, bucketStart): the sketch is read, merged and
+    // written back, and H2's MERGE can race on the insert of the same new key
+    private final ReentrantLock[] bucketLocks = new ReentrantLock[LOCK_STRIPES];
+
+    public RollupService(RollupRepository rollupRepository,
+                         TransactionTemplate transactionTemplate,
+                         WindowedEventAggregator aggregator,
+                         @Value("${analytics.aggregation.hll-precision:12}") int precision,
+                         @Value("${analytics.rollup.minute-retention:P7D}") Duration minuteRetention,
+                         @Value("${analytics.rollup.hour-retention:P90D}") Duration hourRetention,
+                         MeterRegistry meterRegistry) {
+        this.rollupRepository = rollupRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.aggregator = aggregator;
+        this.precision = precision;
+        this.minuteRetention = minuteRetention;
+        this.hourRetention = hourRetention;
+        this.writeTimer = Timer.builder("analytics.rollup.write")
+                .description("Rollup and checkpoint write of one partition's slice of a poll")
+                .register(meterRegistry);
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            bucketLocks[i] = new ReentrantLock();
+        }
+    }
+
+    // Runs before the Kafka listeners start, so the restored buckets and the replayed events never overlap.
+    @PostConstruct
+    public void restoreLiveWindows() {
+        if (!aggregator.bucketSize().equals(Duration.ofMinutes(1))) {
+            log.info("Live windows are not per-minute ({}), not restoring them from the rollup store",
+                    aggregator.bucketSize());
+            return;
+        }
+        long to = RollupGranularity.MINUTE.bucketStart(System.currentTimeMillis()) + RollupGranularity.MINUTE.millis();
+        long from = to - aggregator.retainedBuckets() * RollupGranularity.MINUTE.millis();
+        Map<Long, Map<String, Long>> counts = rollupRepository.findCounts(RollupGranularity.MINUTE, from, to);
+        Map<Long, byte[]> sketches = rollupRepository.findSketches(RollupGranularity.MINUTE, from, to);
+        counts.forEach((bucketStart, eventCounts) -> {
+            byte[] sketch = sketches.get(bucketStart);
+            if (sketch != null) {
+                aggregator.restore(bucketStart, eventCounts, sketch);
+            }
+        });
+        log.info("Restored {} live window buckets from the rollup store", counts.size());
+    }
+
+    // offset the consumer should resume from, -1 if this partition was never checkpointed
+    public Long nextOffset(String topic, int partition) {
+        return checkpoints.computeIfAbsent(new TopicPartition(topic, partition),
+                tp -> rollupRepository.findCheckpoint(topic, partition).orElse(-1L));
+    }
+
+    // Applies the first `count` events of one partition's slice of a poll, and moves the checkpoint
+    // to nextOffset. The events are folded without any lock; only the write transaction holds the locks
+    // of the buckets it touches, so listener threads only wait for each other when they write the same
+    // buckets (e.g. both are on the current minute), not for one another's folding or unrelated buckets.
+    public void apply(String topic, int partition, long nextOffset,
+                                   long[] timestamps, String[] eventTypes, String[] patientIds, int count) {
+        // a poll of 500 events usually folds into a few rows per granularity
+        Map<CountKey, long[]> counts = new HashMap<>();
+        Map<BucketKey, byte[]> sketches = new HashMap<>();
+        int registers = 1 << precision;
+        for (int i = 0; i < count; i++) {
+            long hash = HyperLogLog.hash(patientIds[i]);
+            for (RollupGranularity granularity : RollupGranularity.values()) {
+                long bucketStart = granularity.bucketStart(timestamps[i]);
+                counts.computeIfAbsent(new CountKey(granularity, bucketStart, eventTypes[i]), k -> new long[1])[0]++;
+                HyperLogLog.add(sketches.computeIfAbsent(new BucketKey(granularity, bucketStart),
+                        k -> new byte[registers]), 0, precision, hash);
+            }
+        }
+        List<CountIncrement> increments = new ArrayList<>(counts.size());
+        counts.forEach((key, value) ->
+                increments.add(new CountIncrement(key.granularity(), key.bucketStart(), key.eventType(), value[0])));
+
+        BitSet stripes = new BitSet(LOCK_STRIPES);
+        sketches.keySet().forEach(key -> stripes.set(Math.floorMod(key.hashCode(), LOCK_STRIPES)));
+        lock(stripes);
+        try {
+            write(topic, partition, nextOffset, increments, sketches, registers);
+        } finally {
+            unlock(stripes);
+        }
+        checkpoints.put(new TopicPartition(topic, partition), nextOffset);
+    }
+
+    private void write(String topic, int partition, long nextOffset, List<CountIncrement> increments,
+                       Map<BucketKey, byte[]> sketches, int registers) {
+        writeTimer.record(() -> transactionTemplate.executeWithoutResult(tx -> {
+            if (!increments.isEmpty()) {
+                rollupRepository.incrementCounts(increments);
+                // merge with what is already stored for the same buckets
+                sketches.forEach((key, sketch) -> rollupRepository.findSketch(key).ifPresent(stored -> {
+                    if (stored.length == registers) {
+                        HyperLogLog.mergeInto(stored, 0, sketch, 0, registers);
+                    }
+                }));
+                rollupRepository.saveSketches(sketches);
+            }
+            rollupRepository.saveCheckpoint(topic, partition, nextOffset);
+        }));
+    }
+
+    // always in ascending stripe order, so two slices can't deadlock
+    private void lock(BitSet stripes) {
+        for (int i = stripes.nextSetBit(0); i >= 0; i = stripes.nextSetBit(i + 1)) {
+            bucketLocks[i].lock();
+        }
+    }
+
+    private void unlock(BitSet stripes) {
+        for (int i = stripes.previousSetBit(LOCK_STRIPES - 1); i >= 0; i = stripes.previousSetBit(i - 1)) {
+            bucketLocks[i].unlock();
+        }
+    }
+
+    private record CountKey(RollupGranularity granularity, long bucketStart, String eventType) {
+    }
+
+    // buckets of one granularity in [from, to), oldest first
+    public List<WindowSnapshotDTO> rollups(RollupGranularity granularity, Instant from, Instant to) {
+        long start = granularity.bucketStart(from.toEpochMilli());
+        long end = to.toEpochMilli();
+        Map<Long, Map<String, Long>> counts = rollupRepository.findCounts(granularity, start, end);
+        Map<Long, byte[]> sketches = rollupRepository.findSketches(granularity, start, end);
+        List<WindowSnapshotDTO> result = new ArrayList<>(counts.size());
+        counts.forEach((bucketStart, eventCounts) -> {
+            byte[] sketch = sketches.get(bucketStart);
+            result.add(new WindowSnapshotDTO(
+                    Instant.ofEpochMilli(bucketStart),
+                    Instant.ofEpochMilli(bucketStart + granularity.millis()),
+                    eventCounts.values().stream().mapToLong(Long::longValue).sum(),
+                    eventCounts,
+                    sketch == null ? 0 : HyperLogLog.estimate(sketch, sketch.length)));
+        });
+        return result;
+    }
+
+    // minute and hour buckets are only kept for a while; day buckets are kept forever
+    @Scheduled(cron = "${analytics.rollup.purge-cron:0 15 * * * *}")
+    public void purgeExpired() {
+        long now = System.currentTimeMillis();
+        int minutes = transactionTemplate.execute(tx ->
+                rollupRepository.deleteBefore(RollupGranularity.MINUTE, now - minuteRetention.toMillis()));
+        int hours = transactionTemplate.execute(tx ->
+                rollupRepository.deleteBefore(RollupGranularity.HOUR, now - hourRetention.toMillis()));
+        if (minutes + hours > 0) {
+            log.info("Purged {} minute and {} hour rollup rows", minutes, hours);
+        }
+    }
+}
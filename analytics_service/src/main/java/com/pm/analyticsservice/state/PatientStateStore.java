@@ -0,0 +1,161 @@
+package com.pm.analyticsservice.state;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import patient.events.PatientEvent;
+import patient.events.PatientEventType;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Latest known state of every patient, built from the compacted patient-changelog at startup
+// (ChangelogBootstrap) and then kept current from the patient event stream.
+// Every change is applied only if its version is newer than what is stored, so replays and the
+// overlap between the changelog snapshot and the stream are harmless.
+//
+// patient-service bumps the version by exactly one per event, so an update whose version is not
+// current + 1 (or an update for a patient we have never seen) means events were missed. The delta is
+// applied as far as possible and the patient is marked for resync: ChangelogBootstrap re-reads the
+// changelog and the full snapshot replaces the patched-up state.
+@Component
+public class PatientStateStore {
+
+    private static final Logger log = LoggerFactory.getLogger(PatientStateStore.class);
+
+    // deleted patients stay as tombstones for tombstone-retention, so an older replayed event can't bring them back
+    public record PatientState(long version, boolean deleted, String name, String email, String address,
+                               String dateOfBirth, String registeredDate) {
+    }
+
+    private final Map<String, PatientState> patients = new ConcurrentHashMap<>();
+    // patients whose state is incomplete until the next changelog resync
+    private final Set<String> resyncPending = ConcurrentHashMap.newKeySet();
+    // patientId -> when the tombstone was written (epoch millis)
+    private final Map<String, Long> tombstones = new ConcurrentHashMap<>();
+    private final Duration tombstoneRetention;
+    private final Counter gaps;
+
+    public PatientStateStore(@Value("${analytics.state.tombstone-retention:P1D}") Duration tombstoneRetention,
+                             MeterRegistry meterRegistry) {
+        this.tombstoneRetention = tombstoneRetention;
+        this.gaps = Counter.builder("analytics.state.version.gaps")
+                .description("Patient updates that skipped a version or arrived for an unknown patient")
+                .register(meterRegistry);
+        meterRegistry.gauge("analytics.state.resync.pending", resyncPending, Set::size);
+        meterRegistry.gauge("analytics.state.tombstones", tombstones, Map::size);
+    }
+
+    // full snapshot from the changelog (bootstrap or resync)
+    public void applySnapshot(PatientEvent snapshot) {
+        String patientId = snapshot.getPatientId();
+        patients.compute(patientId, (id, current) -> {
+            // the stream is already past this snapshot
+            if (current != null && current.version() > snapshot.getVersion()) {
+                return current;
+            }
+            // same version and nothing missing: keep what we have
+            if (current != null && current.version() == snapshot.getVersion() && !resyncPending.contains(id)) {
+                return current;
+            }
+            resyncPending.remove(id);
+            return toState(snapshot);
+        });
+    }
+
+    // changelog tombstone: the patient is gone, version unknown
+    public void applyTombstone(String patientId) {
+        patients.put(patientId, new PatientState(Long.MAX_VALUE, true, null, null, null, null, null));
+        tombstones.put(patientId, System.currentTimeMillis());
+        resyncPending.remove(patientId);
+    }
+
+    // one event from the patient stream: full state for CREATED, a field delta for UPDATED
+    public void apply(PatientEvent event) {
+        patients.compute(event.getPatientId(), (id, current) -> {
+            if (current != null && current.version() >= event.getVersion()) {
+                return current;
+            }
+            return switch (event.getType()) {
+                case PATIENT_CREATED -> toState(event);
+                case PATIENT_DELETED -> {
+                    tombstones.put(id, System.currentTimeMillis());
+                    resyncPending.remove(id);
+                    yield new PatientState(event.getVersion(), true, null, null, null, null, null);
+                }
+                case PATIENT_UPDATED -> {
+                    if (current == null || event.getVersion() != current.version() + 1) {
+                        markGap(id, current, event);
+                    }
+                    // unknown patient: a delta alone is not a state, wait for the resync
+                    yield current == null ? null : merge(current, event);
+                }
+                default -> current;
+            };
+        });
+    }
+
+    private void markGap(String patientId, PatientState current, PatientEvent event) {
+        gaps.increment();
+        resyncPending.add(patientId);
+        log.warn("Patient {} jumped from version {} to {}, resyncing it from the changelog",
+                patientId, current == null ? "none" : current.version(), event.getVersion());
+    }
+
+    public boolean hasPendingResync() {
+        return !resyncPending.isEmpty();
+    }
+
+    public boolean isResyncPending(String patientId) {
+        return resyncPending.contains(patientId);
+    }
+
+    // tombstones only need to outlive replays of the events before them
+    @Scheduled(fixedDelayString = "${analytics.state.tombstone-purge-interval-ms:600000}")
+    public void purgeTombstones() {
+        long cutoff = System.currentTimeMillis() - tombstoneRetention.toMillis();
+        int purged = 0;
+        for (Map.Entry<String, Long> tombstone : tombstones.entrySet()) {
+            if (tombstone.getValue() <= cutoff && tombstones.remove(tombstone.getKey(), tombstone.getValue())) {
+                patients.computeIfPresent(tombstone.getKey(), (id, state) -> state.deleted() ? null : state);
+                purged++;
+            }
+        }
+        if (purged > 0) {
+            log.info("Purged {} patient tombstones older than {}", purged, tombstoneRetention);
+        }
+    }
+
+    public long activePatients() {
+        return patients.values().stream().filter(state -> !state.deleted()).count();
+    }
+
+    public PatientState get(String patientId) {
+        PatientState state = patients.get(patientId);
+        return state == null || state.deleted() ? null : state;
+    }
+
+    private static PatientState merge(PatientState current, PatientEvent delta) {
+        // only the fields listed in changed_fields are set in an update
+        List<String> changed = delta.getChangedFields().getPathsList();
+        return new PatientState(delta.getVersion(), current.deleted(),
+                changed.contains("name") ? delta.getName() : current.name(),
+                changed.contains("email") ? delta.getEmail() : current.email(),
+                changed.contains("address") ? delta.getAddress() : current.address(),
+                changed.contains("date_of_birth") ? delta.getDateOfBirth() : current.dateOfBirth(),
+                current.registeredDate());
+    }
+
+    private static PatientState toState(PatientEvent event) {
+        return new PatientState(event.getVersion(), event.getType() == PatientEventType.PATIENT_DELETED,
+                event.getName(), event.getEmail(), event.getAddress(),
+                event.getDateOfBirth(), event.getRegisteredDate());
+    }
+}
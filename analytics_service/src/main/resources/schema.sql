@@ -0,0 +1,26 @@
+-- Rollup store (embedded H2 file, see application.properties). Run on every start, so everything is IF NOT EXISTS.
+
+-- event count per (granularity, bucket, event_type); bucket_start is epoch millis, UTC
+CREATE TABLE IF NOT EXISTS event_rollup (
+    granularity  VARCHAR(8)   NOT NULL,
+    bucket_start BIGINT       NOT NULL,
+    event_type   VARCHAR(64)  NOT NULL,
+    event_count  BIGINT       NOT NULL,
+    PRIMARY KEY (granularity, bucket_start, event_type)
+);
+
+-- HyperLogLog registers of the patient ids seen in a bucket, merged on every update
+CREATE TABLE IF NOT EXISTS patient_sketch_rollup (
+    granularity  VARCHAR(8)      NOT NULL,
+    bucket_start BIGINT          NOT NULL,
+    registers    VARBINARY(65536) NOT NULL,
+    PRIMARY KEY (granularity, bucket_start)
+);
+
+-- next Kafka offset to consume, written in the same transaction as the rollups it produced
+CREATE TABLE IF NOT EXISTS consumer_checkpoint (
+    topic        VARCHAR(249) NOT NULL,
+    partition_id INT          NOT NULL,
+    next_offset  BIGINT       NOT NULL,
+    PRIMARY KEY (topic, partition_id)
+);
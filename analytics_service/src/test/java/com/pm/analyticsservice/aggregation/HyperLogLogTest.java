@@ -0,0 +1,55 @@
+package com.pm.analyticsservice.aggregation;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class HyperLogLogTest {
+
+    private static final int PRECISION = 12;
+    private static final int REGISTERS = 1 << PRECISION;
+
+    @Test
+    void emptySketchEstimatesZero() {
+        assertThat(HyperLogLog.estimate(new byte[REGISTERS], REGISTERS)).isZero();
+    }
+
+    @Test
+    void estimatesWithinThreeStandardErrors() {
+        for (int n : new int[]{100, 10_000, 1_000_000}) {
+            byte[] registers = new byte[REGISTERS];
+            for (int i = 0; i < n; i++) {
+                HyperLogLog.add(registers, 0, PRECISION, HyperLogLog.hash("patient-" + i));
+            }
+            // ~1.6% standard error at precision 12
+            assertThat((double) HyperLogLog.estimate(registers, REGISTERS)).isCloseTo(n, within(n * 0.05));
+        }
+    }
+
+    @Test
+    void duplicatesDoNotCount() {
+        byte[] registers = new byte[REGISTERS];
+        for (int repeat = 0; repeat < 10; repeat++) {
+            for (int i = 0; i < 1000; i++) {
+                HyperLogLog.add(registers, 0, PRECISION, HyperLogLog.hash("patient-" + i));
+            }
+        }
+        assertThat((double) HyperLogLog.estimate(registers, REGISTERS)).isCloseTo(1000, within(50.0));
+    }
+
+    @Test
+    void mergeIsTheUnionAndWorksOnSlicesOfASharedArray() {
+        // two sketches side by side in one array, like the window buckets
+        byte[] shared = new byte[2 * REGISTERS];
+        for (int i = 0; i < 5000; i++) {
+            HyperLogLog.add(shared, 0, PRECISION, HyperLogLog.hash("a-" + i));
+            HyperLogLog.add(shared, REGISTERS, PRECISION, HyperLogLog.hash(i < 2500 ? "a-" + i : "b-" + i));
+        }
+        byte[] union = new byte[REGISTERS];
+        HyperLogLog.mergeInto(shared, 0, union, 0, REGISTERS);
+        HyperLogLog.mergeInto(shared, REGISTERS, union, 0, REGISTERS);
+
+        assertThat((double) HyperLogLog.estimate(union, REGISTERS)).isCloseTo(7500, within(7500 * 0.05));
+    }
+}
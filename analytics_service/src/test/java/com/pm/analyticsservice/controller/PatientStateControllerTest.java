@@ -0,0 +1,33 @@
+package com.pm.analyticsservice.controller;
+
+import com.pm.analyticsservice.state.PatientStateStore;
+import com.pm.analyticsservice.state.PatientStateStore.PatientState;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class PatientStateControllerTest {
+
+    private final PatientStateStore store = mock(PatientStateStore.class);
+    private final PatientStateController controller = new PatientStateController(store);
+
+    @Test
+    void patientDetailsNeedAnAuthenticatedAdmin() {
+        assertThat(controller.get("p1", null, null).getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+        assertThat(controller.get("p1", "user@test.com", "USER").getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN);
+        verifyNoInteractions(store);
+    }
+
+    @Test
+    void adminGetsThePatient() {
+        PatientState state = new PatientState(1, false, "Name", "p1@test.com", "Street", "1990-01-01", "2024-01-01");
+        when(store.get("p1")).thenReturn(state);
+
+        assertThat(controller.get("p1", "admin@test.com", "ADMIN").getBody()).isEqualTo(state);
+        assertThat(controller.get("p2", "admin@test.com", "ADMIN").getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+}
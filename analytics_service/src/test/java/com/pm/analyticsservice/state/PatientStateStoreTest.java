@@ -0,0 +1,163 @@
+package com.pm.analyticsservice.state;
+
+import com.google.protobuf.FieldMask;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import patient.events.PatientEvent;
+import patient.events.PatientEventType;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PatientStateStoreTest {
+
+    private final PatientStateStore store = new PatientStateStore(Duration.ofDays(1), new SimpleMeterRegistry());
+
+    @Test
+    void contiguousUpdatesMergeTheChangedFields() {
+        store.apply(created("p1", 0));
+        store.apply(updated("p1", 1, "email", "new@test.com"));
+
+        assertThat(store.get("p1").email()).isEqualTo("new@test.com");
+        assertThat(store.get("p1").name()).isEqualTo("Name p1");
+        assertThat(store.get("p1").version()).isEqualTo(1);
+        assertThat(store.hasPendingResync()).isFalse();
+    }
+
+    @Test
+    void replayedOlderEventsAreIgnored() {
+        store.apply(created("p1", 0));
+        store.apply(updated("p1", 1, "email", "new@test.com"));
+        store.apply(updated("p1", 1, "email", "stale@test.com"));
+        store.apply(created("p1", 0));
+
+        assertThat(store.get("p1").email()).isEqualTo("new@test.com");
+        assertThat(store.hasPendingResync()).isFalse();
+    }
+
+    @Test
+    void versionGapMarksThePatientForResyncUntilASnapshotCatchesUp() {
+        store.apply(created("p1", 0));
+        // version 1 (an address change) was missed
+        store.apply(updated("p1", 2, "email", "new@test.com"));
+
+        assertThat(store.isResyncPending("p1")).isTrue();
+        assertThat(store.get("p1").version()).isEqualTo(2);
+
+        // a changelog snapshot older than what the stream already showed does not clear it
+        store.applySnapshot(snapshot("p1", 1, "old@test.com", "2 Missed Street"));
+        assertThat(store.isResyncPending("p1")).isTrue();
+
+        // the snapshot at the same version replaces the patched-up state
+        store.applySnapshot(snapshot("p1", 2, "new@test.com", "2 Missed Street"));
+        assertThat(store.isResyncPending("p1")).isFalse();
+        assertThat(store.get("p1").address()).isEqualTo("2 Missed Street");
+    }
+
+    @Test
+    void updateForAnUnknownPatientWaitsForTheResync() {
+        store.apply(updated("p1", 3, "email", "new@test.com"));
+
+        assertThat(store.get("p1")).isNull();
+        assertThat(store.activePatients()).isZero();
+        assertThat(store.isResyncPending("p1")).isTrue();
+
+        store.applySnapshot(snapshot("p1", 3, "new@test.com", "3 Found Street"));
+        assertThat(store.get("p1").address()).isEqualTo("3 Found Street");
+        assertThat(store.hasPendingResync()).isFalse();
+    }
+
+    @Test
+    void sameVersionSnapshotDoesNotOverwriteAnUpToDatePatient() {
+        store.apply(created("p1", 0));
+        store.applySnapshot(snapshot("p1", 0, "other@test.com", "Other Street"));
+
+        assertThat(store.get("p1").email()).isEqualTo("p1@test.com");
+    }
+
+    @Test
+    void deleteClearsAPendingResyncAndIsNotRevivedByReplays() {
+        store.apply(created("p1", 0));
+        store.apply(updated("p1", 2, "email", "new@test.com"));
+        store.apply(deleted("p1", 3));
+
+        assertThat(store.hasPendingResync()).isFalse();
+        assertThat(store.get("p1")).isNull();
+
+        store.apply(updated("p1", 2, "email", "new@test.com"));
+        store.applySnapshot(snapshot("p1", 2, "new@test.com", "Street"));
+        assertThat(store.get("p1")).isNull();
+    }
+
+    @Test
+    void tombstonesArePurgedAfterTheRetention() {
+        PatientStateStore store = new PatientStateStore(Duration.ZERO, new SimpleMeterRegistry());
+        store.apply(created("p1", 0));
+        store.apply(deleted("p1", 1));
+        store.applyTombstone("p2");
+        store.apply(created("p3", 0));
+
+        store.purgeTombstones();
+
+        // the tombstones are gone, so a later create of the same id counts again
+        store.apply(created("p1", 0));
+        store.apply(created("p2", 0));
+        assertThat(store.activePatients()).isEqualTo(3);
+    }
+
+    @Test
+    void tombstonesWithinTheRetentionAreKept() {
+        store.apply(created("p1", 0));
+        store.apply(deleted("p1", 1));
+
+        store.purgeTombstones();
+        store.apply(created("p1", 0));
+
+        assertThat(store.get("p1")).isNull();
+    }
+
+    private static PatientEvent created(String id, long version) {
+        return PatientEvent.newBuilder()
+                .setPatientId(id)
+                .setType(PatientEventType.PATIENT_CREATED)
+                .setEventType(PatientEventType.PATIENT_CREATED.name())
+                .setVersion(version)
+                .setName("Name " + id)
+                .setEmail(id + "@test.com")
+                .setAddress("1 Main Street")
+                .setDateOfBirth("1990-01-01")
+                .setRegisteredDate("2024-01-01")
+                .build();
+    }
+
+    private static PatientEvent updated(String id, long version, String field, String email) {
+        return PatientEvent.newBuilder()
+                .setPatientId(id)
+                .setType(PatientEventType.PATIENT_UPDATED)
+                .setEventType(PatientEventType.PATIENT_UPDATED.name())
+                .setVersion(version)
+                .setChangedFields(FieldMask.newBuilder().addPaths(field))
+                .setEmail(email)
+                .build();
+    }
+
+    private static PatientEvent deleted(String id, long version) {
+        return PatientEvent.newBuilder()
+                .setPatientId(id)
+                .setType(PatientEventType.PATIENT_DELETED)
+                .setEventType(PatientEventType.PATIENT_DELETED.name())
+                .setVersion(version)
+                .build();
+    }
+
+    // the changelog carries the full state as a PATIENT_UPDATED / PATIENT_CREATED event
+    private static PatientEvent snapshot(String id, long version, String email, String address) {
+        return created(id, version).toBuilder()
+                .setType(PatientEventType.PATIENT_UPDATED)
+                .setEventType(PatientEventType.PATIENT_UPDATED.name())
+                .setEmail(email)
+                .setAddress(address)
+                .build();
+    }
+}
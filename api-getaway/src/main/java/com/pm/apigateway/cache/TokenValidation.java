@@ -0,0 +1,12 @@
+package com.pm.apigateway.cache;
+
+import java.time.Instant;
+
+// Result of validating one bearer token. expiresAt is the token's exp claim (null if unknown);
+// jti is the token id that RevocationList is checked against (null for tokens issued without one).
+public record TokenValidation(boolean valid, String subject, String role, Instant expiresAt, String jti) {
+
+    public static TokenValidation invalid() {
+        return new TokenValidation(false, null, null, null, null);
+    }
+}
@@ -0,0 +1,87 @@
+package com.pm.apigateway.cache;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.function.Supplier;
+
+// Bounded cache of token validation results, keyed by SHA-256 of the token (the raw token is never stored).
+// - valid tokens live until min(token exp, ttl)
+// - invalid tokens are remembered for negative-ttl so a bad client can't hammer the validator
+// - concurrent lookups of the same token share one in-flight validation
+// - errors (e.g. auth-service down) are not cached
+// Hit/miss/eviction counts are published as cache.* metrics with cache=jwt-validation.
+@Component
+public class TokenValidationCache {
+
+    private final AsyncCache<String, TokenValidation> cache;
+    private final boolean enabled;
+
+    public TokenValidationCache(@Value("${auth.jwt.cache.enabled:true}") boolean enabled,
+                                @Value("${auth.jwt.cache.max-size:100000}") long maxSize,
+                                @Value("${auth.jwt.cache.ttl:5m}") Duration ttl,
+                                @Value("${auth.jwt.cache.negative-ttl:30s}") Duration negativeTtl,
+                                MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new TokenExpiry(ttl.toNanos(), negativeTtl.toNanos()))
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache.synchronous(), "jwt-validation");
+    }
+
+    public Mono<TokenValidation> get(String token, Supplier<Mono<TokenValidation>> validator) {
+        if (!enabled) {
+            return validator.get();
+        }
+        // suppressCancel: one client disconnecting must not cancel a validation other requests are waiting on
+        return Mono.fromFuture(cache.get(hash(token), (key, executor) -> validator.get().toFuture()), true);
+    }
+
+    private static String hash(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.US_ASCII)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record TokenExpiry(long ttlNanos, long negativeTtlNanos) implements Expiry<String, TokenValidation> {
+
+        @Override
+        public long expireAfterCreate(String key, TokenValidation value, long currentTime) {
+            if (!value.valid()) {
+                return negativeTtlNanos;
+            }
+            if (value.expiresAt() == null) {
+                return ttlNanos;
+            }
+            long untilExp = Duration.between(Instant.now(), value.expiresAt()).toNanos();
+            return Math.max(0, Math.min(untilExp, ttlNanos));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, TokenValidation value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, TokenValidation value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.pm.apigateway.filter;
+
+import com.pm.apigateway.limit.AdaptiveConcurrencyLimit;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.support.HasRouteId;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.SignalType;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Adaptive in-flight limit per route (AdaptiveConcurrencyLimit): ConcurrencyLimit=20,4,200 = initial, min, max.
+// 下游开始变慢（排队）时 limit 自动往下收，多出来的请求在 gateway 直接回 429，不再压到 patient-service 上。
+// The round trip is measured from admission to the end of the downstream response;
+// a 5xx (including the gateway's own 504 on timeout) or an error counts as a drop.
+// Metrics: gateway.admission{route, limiter=concurrency, outcome},
+//          gateway.concurrency.limit{route} and gateway.concurrency.inflight{route}
+@Component
+public class ConcurrencyLimitGatewayFilterFactory extends
+        AbstractGatewayFilterFactory<ConcurrencyLimitGatewayFilterFactory.Config> {
+
+    private final MeterRegistry meterRegistry;
+    // one limit per route, kept across route refreshes
+    private final Map<String, AdaptiveConcurrencyLimit> limits = new ConcurrentHashMap<>();
+
+    public ConcurrencyLimitGatewayFilterFactory(MeterRegistry meterRegistry) {
+        super(Config.class);
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public List<String> shortcutFieldOrder() {
+        return List.of("initialLimit", "minLimit", "maxLimit");
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        String routeId = String.valueOf(config.getRouteId());
+        AdaptiveConcurrencyLimit limit = limits.computeIfAbsent(routeId, id -> register(id,
+                new AdaptiveConcurrencyLimit(config.getInitialLimit(), config.getMinLimit(), config.getMaxLimit())));
+        Counter admitted = admissionCounter(routeId, "admitted");
+        Counter rejected = admissionCounter(routeId, "rejected");
+        return (exchange, chain) -> {
+            if (!limit.tryAcquire()) {
+                rejected.increment();
+                exchange.getResponse().setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+                return exchange.getResponse().setComplete();
+            }
+            admitted.increment();
+            long start = System.nanoTime();
+            return chain.filter(exchange).doFinally(signal -> {
+                HttpStatusCode status = exchange.getResponse().getStatusCode();
+                boolean dropped = signal == SignalType.ON_ERROR
+                        || (status != null && status.is5xxServerError());
+                limit.release(signal == SignalType.CANCEL ? -1 : System.nanoTime() - start, dropped);
+            });
+        };
+    }
+
+    private AdaptiveConcurrencyLimit register(String routeId, AdaptiveConcurrencyLimit limit) {
+        Gauge.builder("gateway.concurrency.limit", limit, AdaptiveConcurrencyLimit::limit)
+                .description("Current adaptive in-flight limit")
+                .tag("route", routeId)
+                .register(meterRegistry);
+        Gauge.builder("gateway.concurrency.inflight", limit, AdaptiveConcurrencyLimit::inflight)
+                .description("Requests currently admitted and not yet finished")
+                .tag("route", routeId)
+                .register(meterRegistry);
+        return limit;
+    }
+
+    private Counter admissionCounter(String routeId, String outcome) {
+        return Counter.builder("gateway.admission")
+                .tag("route", routeId)
+                .tag("limiter", "concurrency")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    public static class Config implements HasRouteId {
+        private int initialLimit = 20;
+        private int minLimit = 4;
+        private int maxLimit = 200;
+        private String routeId;
+
+        public int getInitialLimit() {
+            return initialLimit;
+        }
+
+        public void setInitialLimit(int initialLimit) {
+            this.initialLimit = initialLimit;
+        }
+
+        public int getMinLimit() {
+            return minLimit;
+        }
+
+        public void setMinLimit(int minLimit) {
+            this.minLimit = minLimit;
+        }
+
+        public int getMaxLimit() {
+            return maxLimit;
+        }
+
+        public void setMaxLimit(int maxLimit) {
+            this.maxLimit = maxLimit;
+        }
+
+        @Override
+        public String getRouteId() {
+            return routeId;
+        }
+
+        @Override
+        public void setRouteId(String routeId) {
+            this.routeId = routeId;
+        }
+    }
+}
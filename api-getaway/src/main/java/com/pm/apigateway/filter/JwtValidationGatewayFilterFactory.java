@@ -1,5 +1,16 @@
 package com.pm.apigateway.filter;
 
+import com.pm.apigateway.cache.TokenValidation;
+import com.pm.apigateway.cache.TokenValidationCache;
+import com.pm.apigateway.util.JwtVerifier;
+import com.pm.apigateway.util.RevocationList;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cloud.gateway.filter.GatewayFilter;
 import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
@@ -7,6 +18,13 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.Date;
+import java.util.Map;
 
 //🔒 检查：每个经过 API Gateway 的请求有没有带 Authorization: Bearer <token>
 //
@@ -32,15 +50,57 @@ import org.springframework.web.reactive.function.client.WebClient;
 //token 验证失败（auth-service返回401） ➔ 返回 401
 //
 //token 验证成功（auth-service返回200） ➔ 正常放行
+//
+//⚡ 现在默认是本地验证（auth.jwt.mode=local）：
+//   用和 auth-service JwtUtil 一样的 jwt.secret 在 gateway 里直接验签名 + 过期时间，
+//   不再每个请求都去调 auth-service 的 /validate。
+//   只有配置了 auth.jwt.remote-fallback=true，本地验不过（不是过期）才再去问 auth-service。
+//   auth.jwt.mode=remote 就是原来的行为。
+//   验证结果按 token 的 SHA-256 缓存（TokenValidationCache），最多缓存到 token 过期为止。
+//   验证通过后把 subject / role 作为 X-Auth-Subject / X-Auth-Role 传给下游服务。
+//   token 的 kid 不认识时先（限频）重新下载 JWKS 再验一次；还是不认识就当 invalid，但不放进缓存，
+//   这样 key 轮换之后不会有一段 negative-ttl 的时间所有新 token 都被拒。
+//   缓存之后每个请求还要查一次 RevocationList（/logout 过的 jti，定时从 auth-service 下载），被撤销的算 invalid。
+//
+//📊 Timers（outcome = valid / invalid / error，mode = local / remote）：
+//   gateway.jwt.check       每个请求的完整检查，包括缓存命中
+//   gateway.jwt.validation  缓存没命中时真正的验证（本地验签，或者调 auth-service）
 @Component
 public class JwtValidationGatewayFilterFactory extends
         AbstractGatewayFilterFactory<Object> {
 
+    private static final Logger log = LoggerFactory.getLogger(JwtValidationGatewayFilterFactory.class);
+
+    public static final String SUBJECT_HEADER = "X-Auth-Subject";
+    public static final String ROLE_HEADER = "X-Auth-Role";
+
     private final WebClient webClient;
+    private final JwtVerifier jwtVerifier;
+    private final TokenValidationCache tokenValidationCache;
+    private final RevocationList revocationList;
+    private final boolean localVerification;
+    private final boolean remoteFallback;
+    private final MeterRegistry meterRegistry;
 
     public JwtValidationGatewayFilterFactory(WebClient.Builder webClientBuilder,
-                                             @Value("${auth.service.url}") String authServiceUrl) {
+                                             @Value("${auth.service.url}") String authServiceUrl,
+                                             JwtVerifier jwtVerifier,
+                                             TokenValidationCache tokenValidationCache,
+                                             RevocationList revocationList,
+                                             @Value("${auth.jwt.mode:local}") String mode,
+                                             @Value("${auth.jwt.remote-fallback:false}") boolean remoteFallback,
+                                             MeterRegistry meterRegistry) {
         this.webClient = webClientBuilder.baseUrl(authServiceUrl).build();
+        this.jwtVerifier = jwtVerifier;
+        this.tokenValidationCache = tokenValidationCache;
+        this.revocationList = revocationList;
+        this.localVerification = "local".equalsIgnoreCase(mode);
+        this.remoteFallback = remoteFallback;
+        this.meterRegistry = meterRegistry;
+        if (localVerification && !jwtVerifier.isConfigured() && !remoteFallback) {
+            throw new IllegalStateException(
+                    "auth.jwt.mode=local needs jwt.secret or auth.jwt.jwks-uri (or auth.jwt.remote-fallback=true)");
+        }
     }
 
     @Override
@@ -50,16 +110,128 @@ public class JwtValidationGatewayFilterFactory extends
                     exchange.getRequest().getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
 
             if(token == null || !token.startsWith("Bearer ")) {
-                exchange.getResponse().setStatusCode(HttpStatus.UNAUTHORIZED);
-                return exchange.getResponse().setComplete();
+                return unauthorized(exchange);
             }
 
-            return webClient.get()
-                    .uri("/validate")
-                    .header(HttpHeaders.AUTHORIZATION, token)
-                    .retrieve()
-                    .toBodilessEntity()
-                    .then(chain.filter(exchange));
+            // 同一个 token 在缓存里就不用再验了；同时到来的相同 token 只验一次
+            // 缓存把验证转成 CompletableFuture，会丢掉 Reactor context；把当前请求的 context（里面有 trace）
+            // 显式带进去，调 auth-service 的 WebClient span 才能挂在这个请求的 trace 下
+            // （同一个 token 并发时只有第一个请求的 trace 里会有这个 span）
+            Timer.Sample sample = Timer.start(meterRegistry);
+            return Mono.deferContextual(context ->
+                            tokenValidationCache.get(token, () -> validate(token).contextWrite(context)))
+                    // 失败的验证不会进缓存，下一个请求会重新验
+                    .onErrorResume(JwtVerifier.UnknownKeyException.class, e -> Mono.just(TokenValidation.invalid()))
+                    // 不放进缓存里判断：缓存的结果可能比撤销早好几分钟
+                    .map(validation -> validation.valid() && revocationList.isRevoked(validation.jti())
+                            ? TokenValidation.invalid()
+                            : validation)
+                    .doOnNext(validation -> sample.stop(timer("gateway.jwt.check", validation)))
+                    .doOnError(e -> sample.stop(timer("gateway.jwt.check", "error")))
+                    .flatMap(validation -> validation.valid()
+                            ? chain.filter(withIdentity(exchange, validation))
+                            : unauthorized(exchange));
         };
     }
-}
\ No newline at end of file
+
+    private Mono<TokenValidation> validate(String token) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        return verify(token)
+                .doOnNext(validation -> sample.stop(timer("gateway.jwt.validation", validation)))
+                .doOnError(e -> sample.stop(timer("gateway.jwt.validation", "error")));
+    }
+
+    private Mono<TokenValidation> verify(String token) {
+        if (!localVerification) {
+            return validateRemotely(token);
+        }
+        return verifyLocally(token, true);
+    }
+
+    private Mono<TokenValidation> verifyLocally(String token, boolean refreshOnUnknownKey) {
+        try {
+            return Mono.just(toValidation(jwtVerifier.verify(token.substring(7))));
+        } catch (JwtVerifier.UnknownKeyException e) {
+            if (refreshOnUnknownKey) {
+                // auth-service may have rotated in a new key since the last JWKS refresh
+                return jwtVerifier.refreshKeys().then(Mono.defer(() -> verifyLocally(token, false)));
+            }
+            if (remoteFallback) {
+                return validateRemotely(token);
+            }
+            // an error, not an invalid result: errors are not cached
+            return Mono.error(e);
+        } catch (ExpiredJwtException e) {
+            return Mono.just(TokenValidation.invalid());
+        } catch (JwtException | IllegalArgumentException e) {
+            if (!remoteFallback) {
+                return Mono.just(TokenValidation.invalid());
+            }
+            log.debug("Local JWT verification failed, asking auth-service: {}", e.getMessage());
+            return validateRemotely(token);
+        }
+    }
+
+    // the old path: auth-service /validate decides. 401 is a (cacheable) invalid result;
+    // any other error propagates and is not cached, so the next request tries again.
+    private Mono<TokenValidation> validateRemotely(String token) {
+        return webClient.get()
+                .uri("/validate")
+                .header(HttpHeaders.AUTHORIZATION, token)
+                .retrieve()
+                .toBodilessEntity()
+                .map(response -> toValidation(JwtVerifier.decodeUnverified(token.substring(7))))
+                .onErrorResume(WebClientResponseException.Unauthorized.class,
+                        e -> Mono.just(TokenValidation.invalid()));
+    }
+
+    private Timer timer(String name, TokenValidation validation) {
+        return timer(name, validation.valid() ? "valid" : "invalid");
+    }
+
+    private Timer timer(String name, String outcome) {
+        return Timer.builder(name)
+                .tag("mode", localVerification ? "local" : "remote")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private static TokenValidation toValidation(Map<String, Object> claims) {
+        Object subject = claims.get(Claims.SUBJECT);
+        Object role = claims.get("role");
+        Object exp = claims.get(Claims.EXPIRATION);
+        Object jti = claims.get(Claims.ID);
+        Instant expiresAt = null;
+        if (exp instanceof Date date) {
+            expiresAt = date.toInstant();
+        } else if (exp instanceof Number seconds) {
+            expiresAt = Instant.ofEpochSecond(seconds.longValue());
+        }
+        return new TokenValidation(true,
+                subject == null ? null : subject.toString(),
+                role == null ? null : role.toString(),
+                expiresAt,
+                jti == null ? null : jti.toString());
+    }
+
+    // never trust identity headers sent by the client; only the gateway sets them
+    private static ServerWebExchange withIdentity(ServerWebExchange exchange, TokenValidation validation) {
+        return exchange.mutate()
+                .request(request -> request.headers(headers -> {
+                    headers.remove(SUBJECT_HEADER);
+                    headers.remove(ROLE_HEADER);
+                    if (validation.subject() != null) {
+                        headers.set(SUBJECT_HEADER, validation.subject());
+                    }
+                    if (validation.role() != null) {
+                        headers.set(ROLE_HEADER, validation.role());
+                    }
+                }))
+                .build();
+    }
+
+    private static Mono<Void> unauthorized(ServerWebExchange exchange) {
+        exchange.getResponse().setStatusCode(HttpStatus.UNAUTHORIZED);
+        return exchange.getResponse().setComplete();
+    }
+}
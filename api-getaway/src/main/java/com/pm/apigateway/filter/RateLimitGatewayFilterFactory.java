@@ -0,0 +1,149 @@
+package com.pm.apigateway.filter;
+
+import com.pm.apigateway.limit.TokenBucket;
+import com.pm.apigateway.limit.TokenBucketRegistry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.support.HasRouteId;
+import org.springframework.cloud.gateway.support.ipresolver.RemoteAddressResolver;
+import org.springframework.cloud.gateway.support.ipresolver.XForwardedRemoteAddressResolver;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Per-client rate limit, in memory (TokenBucketRegistry), no Redis.
+//   - RateLimit=50,100,subject : 50 requests/s, bursts up to 100, one bucket per JWT subject
+//   - RateLimit=10,20,ip       : one bucket per client IP (for /auth/login, where there is no token yet)
+// The client IP: behind gateway.rate-limit.trusted-proxies proxies (the ALB is one) it is taken from
+// X-Forwarded-For, counting that many entries from the right, the ones our proxies appended;
+// otherwise the socket address would be the proxy's and every client would share one bucket.
+// subject 要放在 JwtValidation 后面，X-Auth-Subject 是它设的；没有 subject 时按 IP 算。
+// 超过速率 ➔ 429 + Retry-After；放行的请求带 X-RateLimit-Remaining。
+// Counters: gateway.admission{route, limiter=rate, outcome=admitted|rejected}
+@Component
+public class RateLimitGatewayFilterFactory extends
+        AbstractGatewayFilterFactory<RateLimitGatewayFilterFactory.Config> {
+
+    public static final String REMAINING_HEADER = "X-RateLimit-Remaining";
+
+    private final TokenBucketRegistry buckets;
+    private final MeterRegistry meterRegistry;
+    private final RemoteAddressResolver remoteAddressResolver;
+
+    public RateLimitGatewayFilterFactory(TokenBucketRegistry buckets, MeterRegistry meterRegistry,
+                                         @Value("${gateway.rate-limit.trusted-proxies:0}") int trustedProxies) {
+        super(Config.class);
+        this.buckets = buckets;
+        this.meterRegistry = meterRegistry;
+        this.remoteAddressResolver = remoteAddressResolver(trustedProxies);
+    }
+
+    static RemoteAddressResolver remoteAddressResolver(int trustedProxies) {
+        // 0: nothing in front of us, X-Forwarded-For is whatever the client wants it to be
+        return trustedProxies > 0
+                ? XForwardedRemoteAddressResolver.maxTrustedIndex(trustedProxies)
+                : new RemoteAddressResolver() { };
+    }
+
+    @Override
+    public List<String> shortcutFieldOrder() {
+        return List.of("replenishRate", "burstCapacity", "keyBy");
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        String routeId = String.valueOf(config.getRouteId());
+        Counter admitted = admissionCounter(routeId, "admitted");
+        Counter rejected = admissionCounter(routeId, "rejected");
+        boolean bySubject = "subject".equalsIgnoreCase(config.getKeyBy());
+        return (exchange, chain) -> {
+            TokenBucket bucket = buckets.bucket(routeId, clientKey(exchange, bySubject, remoteAddressResolver),
+                    config.getReplenishRate(), config.getBurstCapacity());
+            long result = bucket.tryAcquire();
+            if (result < 0) {
+                rejected.increment();
+                exchange.getResponse().setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+                exchange.getResponse().getHeaders().set(HttpHeaders.RETRY_AFTER,
+                        String.valueOf(Math.max(1, TimeUnit.NANOSECONDS.toSeconds(-result + 999_999_999))));
+                exchange.getResponse().getHeaders().set(REMAINING_HEADER, "0");
+                return exchange.getResponse().setComplete();
+            }
+            admitted.increment();
+            exchange.getResponse().getHeaders().set(REMAINING_HEADER, String.valueOf(result));
+            return chain.filter(exchange);
+        };
+    }
+
+    private Counter admissionCounter(String routeId, String outcome) {
+        return Counter.builder("gateway.admission")
+                .tag("route", routeId)
+                .tag("limiter", "rate")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    static String clientKey(ServerWebExchange exchange, boolean bySubject, RemoteAddressResolver resolver) {
+        if (bySubject) {
+            String subject = exchange.getRequest().getHeaders()
+                    .getFirst(JwtValidationGatewayFilterFactory.SUBJECT_HEADER);
+            if (subject != null) {
+                return "sub:" + subject;
+            }
+        }
+        InetSocketAddress remote = resolver.resolve(exchange);
+        // host string: addresses taken from X-Forwarded-For are unresolved
+        return "ip:" + (remote == null ? "unknown" : remote.getHostString());
+    }
+
+    public static class Config implements HasRouteId {
+        // tokens added per second
+        private double replenishRate = 50;
+        // bucket size = the largest burst let through at once
+        private int burstCapacity = 100;
+        // subject | ip
+        private String keyBy = "subject";
+        private String routeId;
+
+        public double getReplenishRate() {
+            return replenishRate;
+        }
+
+        public void setReplenishRate(double replenishRate) {
+            this.replenishRate = replenishRate;
+        }
+
+        public int getBurstCapacity() {
+            return burstCapacity;
+        }
+
+        public void setBurstCapacity(int burstCapacity) {
+            this.burstCapacity = burstCapacity;
+        }
+
+        public String getKeyBy() {
+            return keyBy;
+        }
+
+        public void setKeyBy(String keyBy) {
+            this.keyBy = keyBy;
+        }
+
+        @Override
+        public String getRouteId() {
+            return routeId;
+        }
+
+        @Override
+        public void setRouteId(String routeId) {
+            this.routeId = routeId;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.pm.apigateway.limit;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Adaptive limit on in-flight requests for one route, in the style of Netflix's Gradient2 limiter.
+// It compares the recent round-trip time (short EMA) with the long-run baseline (long EMA):
+//   gradient = clamp(TOLERANCE * longRtt / shortRtt, 0.5, 1)
+//   limit    = limit * gradient + sqrt(limit)
+// While latency stays near the baseline the limit keeps growing by a small queue allowance;
+// once downstream starts queueing (shortRtt rises) the limit shrinks, and the excess is turned
+// away with 429 at the gateway instead of piling up in patient-service's threads and DB pool.
+// A 5xx or an error counts as a drop and cuts the limit by BACKOFF_RATIO.
+// acquire is a CAS on the in-flight count; only the per-sample update is synchronized.
+public class AdaptiveConcurrencyLimit {
+
+    private static final double TOLERANCE = 1.5;
+    private static final double SMOOTHING = 0.2;
+    private static final double BACKOFF_RATIO = 0.9;
+    // ~ the last 10 samples vs ~ the last 600
+    private static final double SHORT_ALPHA = 2.0 / (10 + 1);
+    private static final double LONG_ALPHA = 2.0 / (600 + 1);
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final AtomicInteger inflight = new AtomicInteger();
+    private volatile int limit;
+
+    // guarded by this
+    private double estimatedLimit;
+    private double shortRtt;
+    private double longRtt;
+
+    public AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit) {
+        if (minLimit < 1 || minLimit > maxLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("need 1 <= minLimit <= initialLimit <= maxLimit");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.estimatedLimit = initialLimit;
+        this.limit = initialLimit;
+    }
+
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inflight.get();
+            if (current >= limit) {
+                return false;
+            }
+            if (inflight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    // Must follow every successful tryAcquire. rttNanos < 0 releases without sampling (e.g. client cancelled).
+    public void release(long rttNanos, boolean dropped) {
+        int inflightAtCompletion = inflight.getAndDecrement();
+        if (rttNanos >= 0) {
+            onSample(rttNanos, inflightAtCompletion, dropped);
+        }
+    }
+
+    private synchronized void onSample(long rttNanos, int inflightAtCompletion, boolean dropped) {
+        if (dropped) {
+            setLimit(estimatedLimit * BACKOFF_RATIO);
+            return;
+        }
+        if (longRtt == 0) {
+            shortRtt = rttNanos;
+            longRtt = rttNanos;
+        } else {
+            shortRtt += (rttNanos - shortRtt) * SHORT_ALPHA;
+            longRtt += (rttNanos - longRtt) * LONG_ALPHA;
+        }
+        // latency dropped well below the baseline (e.g. downstream recovered): let the baseline follow quickly
+        if (longRtt / shortRtt > 2) {
+            longRtt *= 0.95;
+        }
+        // not using the limit we have: no evidence that a higher one would be safe
+        if (inflightAtCompletion < estimatedLimit / 2) {
+            return;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longRtt / shortRtt));
+        double newLimit = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+        setLimit(estimatedLimit * (1 - SMOOTHING) + newLimit * SMOOTHING);
+    }
+
+    private void setLimit(double newLimit) {
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+        limit = (int) estimatedLimit;
+    }
+
+    public int limit() {
+        return limit;
+    }
+
+    public int inflight() {
+        return inflight.get();
+    }
+}
@@ -0,0 +1,44 @@
+package com.pm.apigateway.limit;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Lock-free token bucket, in its GCRA form (generic cell rate algorithm).
+// Instead of (tokens, last refill) the whole state is one long: the "theoretical arrival time" (TAT),
+// the moment the bucket would be full again if nothing else arrived. Taking a token pushes TAT forward
+// by one emission interval (1 / rate); a request is refused if that would put TAT more than
+// capacity intervals into the future. One CAS per request, no lock, no background refill.
+public final class TokenBucket {
+
+    private final long emissionIntervalNanos;
+    private final long capacityNanos;
+    private final AtomicLong theoreticalArrival;
+
+    public TokenBucket(double tokensPerSecond, int capacity) {
+        if (tokensPerSecond <= 0 || capacity < 1) {
+            throw new IllegalArgumentException("rate must be > 0 and capacity >= 1");
+        }
+        this.emissionIntervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / tokensPerSecond);
+        this.capacityNanos = emissionIntervalNanos * capacity;
+        // starts full
+        this.theoreticalArrival = new AtomicLong(System.nanoTime());
+    }
+
+    // Takes one token.
+    //   >= 0: admitted, the value is the number of tokens left
+    //   <  0: refused, the negated value is how many nanoseconds until a token is available
+    public long tryAcquire() {
+        while (true) {
+            long now = System.nanoTime();
+            long tat = theoreticalArrival.get();
+            long next = Math.max(tat, now) + emissionIntervalNanos;
+            long ahead = next - now;
+            if (ahead > capacityNanos) {
+                return -(ahead - capacityNanos);
+            }
+            if (theoreticalArrival.compareAndSet(tat, next)) {
+                return (capacityNanos - ahead) / emissionIntervalNanos;
+            }
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.pm.apigateway.limit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+// One TokenBucket per (route, client), in memory; no Redis.
+// Bounded: buckets idle for idle-expiry are dropped. An idle bucket has refilled anyway,
+// so dropping it and starting a fresh (full) one later changes nothing for the client.
+// Each gateway instance limits on its own: with N instances a client gets up to N times the rate.
+@Component
+public class TokenBucketRegistry {
+
+    private final Cache<String, TokenBucket> buckets;
+
+    public TokenBucketRegistry(@Value("${gateway.rate-limit.max-clients:100000}") long maxClients,
+                               @Value("${gateway.rate-limit.idle-expiry:10m}") Duration idleExpiry) {
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxClients)
+                .expireAfterAccess(idleExpiry)
+                .build();
+    }
+
+    public TokenBucket bucket(String routeId, String client, double tokensPerSecond, int capacity) {
+        return buckets.get(routeId + '|' + client, key -> new TokenBucket(tokensPerSecond, capacity));
+    }
+}
@@ -0,0 +1,58 @@
+package com.pm.apigateway.util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+// Read side of auth-service's bloom filter (com.pm.authservice.util.BloomFilter), rebuilt from the
+// GET /revocations payload by RevocationList. Bit layout and hashing must stay identical to the auth-service copy.
+public final class BloomFilter {
+
+    private final long[] words;
+    private final int bits;
+    private final int hashes;
+
+    private BloomFilter(long[] words, int bits, int hashes) {
+        this.words = words;
+        this.bits = bits;
+        this.hashes = hashes;
+    }
+
+    public static BloomFilter fromBytes(byte[] bytes, int bits, int hashes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        long[] words = new long[(bits + 63) / 64];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = buffer.getLong();
+        }
+        return new BloomFilter(words, bits, hashes);
+    }
+
+    public boolean mightContain(String value) {
+        long hash = fnv1a64(value);
+        int h1 = (int) hash;
+        int h2 = (int) (mix64(hash) >>> 32) | 1;
+        for (int i = 0; i < hashes; i++) {
+            int bit = Math.floorMod(h1 + i * h2, bits);
+            if ((words[bit >>> 6] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // double hashing (Kirsch-Mitzenmacher): k indexes from two hashes of one FNV-1a pass over UTF-8
+    private static long fnv1a64(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    // splitmix64 finalizer, so the second hash is not just the upper half of the first
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
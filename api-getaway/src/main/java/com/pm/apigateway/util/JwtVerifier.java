@@ -0,0 +1,213 @@
+package com.pm.apigateway.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Header;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.ProtectedHeader;
+import io.jsonwebtoken.security.InvalidKeyException;
+import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.AlgorithmParameters;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.ECParameterSpec;
+import java.security.spec.ECPoint;
+import java.security.spec.ECPublicKeySpec;
+import java.security.spec.RSAPublicKeySpec;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Checks signature and expiry of auth-service tokens inside the gateway, so no call to /validate is needed.
+// Two key sources, usable together:
+//   jwt.secret         the same base64 HMAC key as auth-service (HS256 tokens, no kid)
+//   auth.jwt.jwks-uri  auth-service's /.well-known/jwks.json (RS256/ES256 tokens, looked up by kid),
+//                      refreshed in the background every auth.jwt.jwks-refresh, and on demand (at most once
+//                      per auth.jwt.jwks-min-refresh-interval) when a token names a kid we don't know yet
+@Component
+public class JwtVerifier {
+
+    private static final Logger log = LoggerFactory.getLogger(JwtVerifier.class);
+
+    private static final ObjectReader PAYLOAD_READER = new ObjectMapper().readerFor(Map.class);
+
+    // the token is signed with a kid that is not (yet) in the JWKS; worth a refresh, not worth caching
+    public static class UnknownKeyException extends InvalidKeyException {
+        public UnknownKeyException(String kid) {
+            super("Unknown kid " + kid);
+        }
+    }
+
+    private final Key hmacKey;
+    // replaced wholesale on every refresh, read lock-free by the key locator
+    private volatile Map<String, PublicKey> publicKeys = Map.of();
+    private final Disposable jwksRefresh;
+    private final WebClient webClient;
+    private final String jwksUri;
+    private final long minRefreshIntervalNanos;
+    // System.nanoTime() of the last on-demand refresh
+    private final AtomicLong lastOnDemandRefresh;
+
+    // built once: a JwtParser is immutable and thread-safe
+    private final JwtParser parser;
+
+    public JwtVerifier(@Value("${jwt.secret:}") String secret,
+                       @Value("${auth.jwt.jwks-uri:}") String jwksUri,
+                       @Value("${auth.jwt.jwks-refresh:5m}") Duration jwksRefresh,
+                       @Value("${auth.jwt.jwks-min-refresh-interval:10s}") Duration minRefreshInterval,
+                       WebClient.Builder webClientBuilder) {
+        this.hmacKey = secret.isBlank() ? null : Keys.hmacShaKeyFor(Base64.getDecoder()
+                .decode(secret.getBytes(StandardCharsets.UTF_8)));
+
+        this.jwksUri = jwksUri;
+        this.minRefreshIntervalNanos = minRefreshInterval.toNanos();
+        this.lastOnDemandRefresh = new AtomicLong(System.nanoTime() - minRefreshIntervalNanos);
+        if (jwksUri.isBlank()) {
+            this.webClient = null;
+            this.jwksRefresh = null;
+        } else {
+            this.webClient = webClientBuilder.build();
+            this.jwksRefresh = Flux.interval(Duration.ZERO, jwksRefresh)
+                    .concatMap(tick -> fetchJwks(webClient, jwksUri))
+                    .subscribe(keys -> this.publicKeys = keys);
+        }
+
+        this.parser = hmacKey == null && this.jwksRefresh == null ? null : Jwts.parser()
+                .keyLocator(this::locateKey)
+                .build();
+    }
+
+    private Key locateKey(Header header) {
+        String kid = header instanceof ProtectedHeader protectedHeader ? protectedHeader.getKeyId() : null;
+        if (kid == null) {
+            if (hmacKey == null) {
+                throw new InvalidKeyException("Token has no kid and jwt.secret is not configured");
+            }
+            return hmacKey;
+        }
+        PublicKey key = publicKeys.get(kid);
+        if (key == null) {
+            throw new UnknownKeyException(kid);
+        }
+        return key;
+    }
+
+    // Fetches the JWKS now, unless another on-demand refresh ran less than jwks-min-refresh-interval ago
+    // (a client sending made-up kids must not turn every request into a call to auth-service).
+    // Completes empty either way; afterwards verify() sees whatever keys are current.
+    public Mono<Void> refreshKeys() {
+        if (webClient == null) {
+            return Mono.empty();
+        }
+        long now = System.nanoTime();
+        long last = lastOnDemandRefresh.get();
+        if (now - last < minRefreshIntervalNanos || !lastOnDemandRefresh.compareAndSet(last, now)) {
+            return Mono.empty();
+        }
+        return fetchJwks(webClient, jwksUri)
+                .doOnNext(keys -> this.publicKeys = keys)
+                .then();
+    }
+
+    private Mono<Map<String, PublicKey>> fetchJwks(WebClient webClient, String jwksUri) {
+        return webClient.get()
+                .uri(jwksUri)
+                .retrieve()
+                .bodyToMono(new ParameterizedTypeReference<Map<String, List<Map<String, String>>>>() {
+                })
+                .map(JwtVerifier::toPublicKeys)
+                .doOnNext(keys -> log.debug("Loaded {} JWKs from {}", keys.size(), jwksUri))
+                // keep the previous keys if auth-service is briefly unavailable
+                .onErrorResume(e -> {
+                    log.warn("Could not refresh JWKS from {}: {}", jwksUri, e.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    private static Map<String, PublicKey> toPublicKeys(Map<String, List<Map<String, String>>> jwks) {
+        Map<String, PublicKey> keys = new HashMap<>();
+        for (Map<String, String> jwk : jwks.getOrDefault("keys", List.of())) {
+            try {
+                PublicKey key = switch (jwk.get("kty")) {
+                    case "RSA" -> KeyFactory.getInstance("RSA").generatePublic(
+                            new RSAPublicKeySpec(unsigned(jwk.get("n")), unsigned(jwk.get("e"))));
+                    case "EC" -> KeyFactory.getInstance("EC").generatePublic(
+                            new ECPublicKeySpec(new ECPoint(unsigned(jwk.get("x")), unsigned(jwk.get("y"))),
+                                    p256()));
+                    default -> null;
+                };
+                if (key != null) {
+                    keys.put(jwk.get("kid"), key);
+                }
+            } catch (GeneralSecurityException | IllegalArgumentException | NullPointerException e) {
+                log.warn("Skipping unusable JWK {}: {}", jwk.get("kid"), e.getMessage());
+            }
+        }
+        return Map.copyOf(keys);
+    }
+
+    private static BigInteger unsigned(String base64Url) {
+        return new BigInteger(1, Base64.getUrlDecoder().decode(base64Url));
+    }
+
+    private static ECParameterSpec p256() throws GeneralSecurityException {
+        AlgorithmParameters parameters = AlgorithmParameters.getInstance("EC");
+        parameters.init(new ECGenParameterSpec("secp256r1"));
+        return parameters.getParameterSpec(ECParameterSpec.class);
+    }
+
+    // Reads the payload without checking the signature. Only for tokens auth-service has already validated.
+    public static Map<String, Object> decodeUnverified(String token) {
+        String[] parts = token.split("\\.");
+        if (parts.length < 2) {
+            return Map.of();
+        }
+        try {
+            return PAYLOAD_READER.readValue(Base64.getUrlDecoder().decode(parts[1]));
+        } catch (IOException | IllegalArgumentException e) {
+            return Map.of();
+        }
+    }
+
+    public boolean isConfigured() {
+        return parser != null;
+    }
+
+    // returns the verified claims, or throws JwtException if the token is forged, malformed or expired
+    public Claims verify(String token) {
+        if (parser == null) {
+            throw new JwtException("Neither jwt.secret nor auth.jwt.jwks-uri is configured");
+        }
+        return parser.parseSignedClaims(token).getPayload();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (jwksRefresh != null) {
+            jwksRefresh.dispose();
+        }
+    }
+}
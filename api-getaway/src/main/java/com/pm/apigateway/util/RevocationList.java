@@ -0,0 +1,110 @@
+package com.pm.apigateway.util;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Base64;
+import java.util.List;
+import java.util.Set;
+
+// Access tokens revoked before they expire (auth-service POST /logout), checked in memory on every request.
+// A cached TokenValidation can live for minutes, so this check runs after the cache, not inside it.
+// The list is polled from auth.jwt.revocation-uri every auth.jwt.revocation-refresh with If-None-Match
+// (an unchanged list costs one 304). Lookups go to the bloom filter first; only a "maybe" touches the exact set.
+// A token revoked at auth-service is rejected here at most one refresh interval later. If auth-service
+// is unreachable the previous list is kept.
+@Component
+public class RevocationList {
+
+    private static final Logger log = LoggerFactory.getLogger(RevocationList.class);
+
+    // same shape as auth-service's RevocationListDTO
+    private record Payload(String version, long generatedAt, int bloomBits, int bloomHashes,
+                           String bloom, List<String> jtis) {
+    }
+
+    private record Snapshot(String etag, BloomFilter bloom, Set<String> jtis) {
+    }
+
+    private static final Snapshot EMPTY = new Snapshot(null, null, Set.of());
+
+    // replaced wholesale on every change, read lock-free by the filter
+    private volatile Snapshot snapshot = EMPTY;
+    private final Disposable refresh;
+
+    public RevocationList(@Value("${auth.jwt.revocation-uri:${auth.service.url}/revocations}") String revocationUri,
+                          @Value("${auth.jwt.revocation-refresh:10s}") Duration refreshInterval,
+                          WebClient.Builder webClientBuilder,
+                          MeterRegistry meterRegistry) {
+        Gauge.builder("gateway.jwt.revoked", this, list -> list.snapshot.jtis().size())
+                .description("Revoked access tokens in the downloaded revocation list")
+                .register(meterRegistry);
+        if (revocationUri.isBlank()) {
+            this.refresh = null;
+            return;
+        }
+        WebClient webClient = webClientBuilder.build();
+        this.refresh = Flux.interval(Duration.ZERO, refreshInterval)
+                .concatMap(tick -> fetch(webClient, revocationUri))
+                .subscribe(next -> this.snapshot = next);
+    }
+
+    public boolean isRevoked(String jti) {
+        Snapshot current = snapshot;
+        if (jti == null || current.bloom() == null || !current.bloom().mightContain(jti)) {
+            return false;
+        }
+        return current.jtis().contains(jti);
+    }
+
+    private Mono<Snapshot> fetch(WebClient webClient, String revocationUri) {
+        String etag = snapshot.etag();
+        return webClient.get()
+                .uri(revocationUri)
+                .headers(headers -> {
+                    if (etag != null) {
+                        headers.setIfNoneMatch(etag);
+                    }
+                })
+                .exchangeToMono(response -> {
+                    if (response.statusCode().isSameCodeAs(HttpStatus.NOT_MODIFIED)) {
+                        return response.releaseBody().then(Mono.<Snapshot>empty());
+                    }
+                    if (!response.statusCode().is2xxSuccessful()) {
+                        return response.createError();
+                    }
+                    String newEtag = response.headers().asHttpHeaders().getETag();
+                    return response.bodyToMono(Payload.class).map(payload -> toSnapshot(newEtag, payload));
+                })
+                .doOnNext(next -> log.debug("Loaded {} revoked jti(s) from {}", next.jtis().size(), revocationUri))
+                // keep the previous list if auth-service is briefly unavailable
+                .onErrorResume(e -> {
+                    log.warn("Could not refresh revocation list from {}: {}", revocationUri, e.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    private static Snapshot toSnapshot(String etag, Payload payload) {
+        BloomFilter bloom = BloomFilter.fromBytes(Base64.getDecoder().decode(payload.bloom()),
+                payload.bloomBits(), payload.bloomHashes());
+        return new Snapshot(etag, bloom, Set.copyOf(payload.jtis()));
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (refresh != null) {
+            refresh.dispose();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.pm.apigateway.filter;
+
+import com.pm.apigateway.limit.TokenBucketRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RateLimitGatewayFilterFactoryTest {
+
+    private static final InetSocketAddress ALB = new InetSocketAddress("10.0.0.5", 40000);
+
+    @Test
+    void behindTheAlbEachClientGetsItsOwnBucket() {
+        GatewayFilter filter = filter(1);
+
+        assertThat(status(filter, fromAlb("203.0.113.7"))).isNull();
+        assertThat(status(filter, fromAlb("203.0.113.7"))).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        // same ALB address, different client
+        assertThat(status(filter, fromAlb("198.51.100.2"))).isNull();
+    }
+
+    @Test
+    void clientWrittenForwardedEntriesAreNotTrusted() {
+        // the client sent "X-Forwarded-For: 1.2.3.4", the ALB appended the real address
+        MockServerWebExchange exchange = exchange(MockServerHttpRequest.get("/auth/login")
+                .remoteAddress(ALB)
+                .header("X-Forwarded-For", "1.2.3.4, 203.0.113.7"));
+
+        assertThat(RateLimitGatewayFilterFactory.clientKey(exchange, false,
+                RateLimitGatewayFilterFactory.remoteAddressResolver(1))).isEqualTo("ip:203.0.113.7");
+    }
+
+    @Test
+    void withoutTrustedProxiesTheSocketAddressIsUsed() {
+        MockServerWebExchange exchange = exchange(MockServerHttpRequest.get("/auth/login")
+                .remoteAddress(new InetSocketAddress("192.0.2.10", 50000))
+                .header("X-Forwarded-For", "1.2.3.4"));
+
+        assertThat(RateLimitGatewayFilterFactory.clientKey(exchange, false,
+                RateLimitGatewayFilterFactory.remoteAddressResolver(0))).isEqualTo("ip:192.0.2.10");
+    }
+
+    @Test
+    void subjectWinsOverTheAddress() {
+        MockServerWebExchange exchange = exchange(MockServerHttpRequest.get("/api/patients")
+                .remoteAddress(ALB)
+                .header(JwtValidationGatewayFilterFactory.SUBJECT_HEADER, "user@test.com"));
+
+        assertThat(RateLimitGatewayFilterFactory.clientKey(exchange, true,
+                RateLimitGatewayFilterFactory.remoteAddressResolver(1))).isEqualTo("sub:user@test.com");
+    }
+
+    private static GatewayFilter filter(int trustedProxies) {
+        RateLimitGatewayFilterFactory factory = new RateLimitGatewayFilterFactory(
+                new TokenBucketRegistry(1000, Duration.ofMinutes(10)), new SimpleMeterRegistry(), trustedProxies);
+        RateLimitGatewayFilterFactory.Config config = new RateLimitGatewayFilterFactory.Config();
+        // one request, practically no refill
+        config.setReplenishRate(0.001);
+        config.setBurstCapacity(1);
+        config.setKeyBy("ip");
+        config.setRouteId("auth-service-route");
+        return factory.apply(config);
+    }
+
+    private static MockServerWebExchange fromAlb(String client) {
+        return exchange(MockServerHttpRequest.post("/auth/login")
+                .remoteAddress(ALB)
+                .header("X-Forwarded-For", client));
+    }
+
+    private static MockServerWebExchange exchange(MockServerHttpRequest.BaseBuilder<?> request) {
+        return MockServerWebExchange.from(request);
+    }
+
+    // null: passed on to the chain
+    private static HttpStatusCode status(GatewayFilter filter, MockServerWebExchange exchange) {
+        filter.filter(exchange, ex -> Mono.empty()).block();
+        return exchange.getResponse().getStatusCode();
+    }
+}
@@ -0,0 +1,98 @@
+package com.pm.apigateway.limit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AdaptiveConcurrencyLimitTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(20);
+
+    @Test
+    void admitsUpToTheLimitAndReleaseFreesASlot() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(3, 1, 10);
+
+        assertThat(limit.tryAcquire()).isTrue();
+        assertThat(limit.tryAcquire()).isTrue();
+        assertThat(limit.tryAcquire()).isTrue();
+        assertThat(limit.tryAcquire()).isFalse();
+
+        // no sample: the limit stays, the slot is freed
+        limit.release(-1, false);
+        assertThat(limit.inflight()).isEqualTo(2);
+        assertThat(limit.limit()).isEqualTo(3);
+        assertThat(limit.tryAcquire()).isTrue();
+    }
+
+    @Test
+    void growsWhileLatencyStaysAtTheBaselineAndTheLimitIsUsed() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(10, 1, 100);
+
+        runRounds(limit, 20, FAST);
+
+        assertThat(limit.limit()).isGreaterThan(10);
+    }
+
+    @Test
+    void doesNotGrowWhenTheLimitIsNotUsed() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(10, 1, 100);
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(limit.tryAcquire()).isTrue();
+            limit.release(FAST, false);
+        }
+
+        assertThat(limit.limit()).isEqualTo(10);
+    }
+
+    @Test
+    void shrinksWhenLatencyRisesAboveTheBaseline() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(50, 5, 100);
+        runRounds(limit, 5, FAST);
+        int beforeQueueing = limit.limit();
+
+        // downstream starts queueing: round trips 20x the baseline
+        runRounds(limit, 5, SLOW);
+
+        assertThat(limit.limit()).isLessThan(beforeQueueing);
+    }
+
+    @Test
+    void dropsBackOffButNeverBelowTheMinimum() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(100, 20, 200);
+
+        limit.tryAcquire();
+        limit.release(FAST, true);
+        assertThat(limit.limit()).isEqualTo(90);
+
+        for (int i = 0; i < 50; i++) {
+            limit.tryAcquire();
+            limit.release(FAST, true);
+        }
+        assertThat(limit.limit()).isEqualTo(20);
+    }
+
+    @Test
+    void rejectsInconsistentBounds() {
+        assertThatThrownBy(() -> new AdaptiveConcurrencyLimit(5, 0, 10)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new AdaptiveConcurrencyLimit(5, 6, 10)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new AdaptiveConcurrencyLimit(11, 1, 10)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    // each round fills every slot the limit allows, then completes them all with the given round trip
+    private static void runRounds(AdaptiveConcurrencyLimit limit, int rounds, long rttNanos) {
+        for (int round = 0; round < rounds; round++) {
+            int acquired = 0;
+            while (limit.tryAcquire()) {
+                acquired++;
+            }
+            for (int i = 0; i < acquired; i++) {
+                limit.release(rttNanos, false);
+            }
+        }
+    }
+}
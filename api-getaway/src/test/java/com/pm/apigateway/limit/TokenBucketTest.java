@@ -0,0 +1,82 @@
+package com.pm.apigateway.limit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TokenBucketTest {
+
+    @Test
+    void startsFullAndAdmitsABurstOfCapacity() {
+        TokenBucket bucket = new TokenBucket(1, 5);
+
+        for (int remaining = 4; remaining >= 0; remaining--) {
+            assertThat(bucket.tryAcquire()).isEqualTo(remaining);
+        }
+        long refused = bucket.tryAcquire();
+        assertThat(refused).isNegative();
+        // the next token comes within one emission interval (1s)
+        assertThat(-refused).isLessThanOrEqualTo(TimeUnit.SECONDS.toNanos(1));
+    }
+
+    @Test
+    void refillsAtTheRate() throws InterruptedException {
+        // one token every millisecond, no burst
+        TokenBucket bucket = new TokenBucket(1000, 1);
+
+        assertThat(bucket.tryAcquire()).isZero();
+        assertThat(bucket.tryAcquire()).isNegative();
+        Thread.sleep(5);
+        assertThat(bucket.tryAcquire()).isZero();
+    }
+
+    @Test
+    void refusedRequestsDoNotUseUpTokens() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(1000, 1);
+        bucket.tryAcquire();
+        for (int i = 0; i < 100; i++) {
+            assertThat(bucket.tryAcquire()).isNegative();
+        }
+        Thread.sleep(5);
+        assertThat(bucket.tryAcquire()).isZero();
+    }
+
+    @Test
+    void concurrentCallersNeverGetMoreThanTheBurst() throws Exception {
+        // practically no refill during the test: exactly capacity requests may pass
+        TokenBucket bucket = new TokenBucket(0.001, 100);
+        AtomicInteger admitted = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 100; i++) {
+                    if (bucket.tryAcquire() >= 0) {
+                        admitted.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        assertThat(admitted).hasValue(100);
+    }
+
+    @Test
+    void rejectsInvalidSettings() {
+        assertThatThrownBy(() -> new TokenBucket(0, 10)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new TokenBucket(10, 0)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
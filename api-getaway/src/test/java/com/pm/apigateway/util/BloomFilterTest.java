@@ -0,0 +1,37 @@
+package com.pm.apigateway.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BloomFilterTest {
+
+    // Written by auth-service's BloomFilter: create(100, 0.01) holding jti-0 .. jti-99.
+    // auth-service's BloomFilterTest asserts it produces exactly these bytes; this side must read them
+    // back with the same answers. Change both copies (and both tests) together.
+    private static final int GOLDEN_BITS = 959;
+    private static final int GOLDEN_HASHES = 7;
+    private static final String GOLDEN_BYTES = "pcn30Xc7Q6zjTyZ4GlZv6MG1nLLSxVzxPrqHC9e+rD0uFG84byn2+gVtwDHY8vDfhzGd+jDOJFk7fp6Y6htX84O9s3BipEU712JD6VlX5rixsaVoUeuXtUTeHZn4x4MxhVCBckhBAdep6RZ9lHfSqgFtrs3knTl3";
+
+    @Test
+    void readsAuthServiceFiltersWithTheSameHashing() {
+        BloomFilter filter = BloomFilter.fromBytes(Base64.getDecoder().decode(GOLDEN_BYTES),
+                GOLDEN_BITS, GOLDEN_HASHES);
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(filter.mightContain("jti-" + i)).isTrue();
+        }
+        // the exact false positives auth-service's hashing gives for other-0 .. other-999
+        List<Integer> falsePositives = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            if (filter.mightContain("other-" + i)) {
+                falsePositives.add(i);
+            }
+        }
+        assertThat(falsePositives).containsExactly(5, 40, 50, 90, 226, 298, 467, 554, 651, 708, 876, 877, 915, 995);
+    }
+}
@@ -0,0 +1,107 @@
+package com.pm.apigateway.util;
+
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.security.interfaces.ECPublicKey;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class JwtVerifierTest {
+
+    private final KeyPair keyPair = Jwts.SIG.ES256.keyPair().build();
+    private final AtomicReference<String> jwks = new AtomicReference<>("{\"keys\":[]}");
+    private final AtomicInteger fetches = new AtomicInteger();
+    private JwtVerifier verifier;
+
+    @AfterEach
+    void tearDown() {
+        verifier.stop();
+    }
+
+    @Test
+    void unknownKidTriggersOneRateLimitedRefresh() throws Exception {
+        verifier = verifier(Duration.ofHours(1));
+        awaitFetches(1);
+        String token = token("k2");
+
+        assertThatThrownBy(() -> verifier.verify(token)).isInstanceOf(JwtVerifier.UnknownKeyException.class);
+
+        // auth-service rotates k2 in
+        jwks.set(jwks("k2"));
+        verifier.refreshKeys().block();
+        assertThat(verifier.verify(token).getSubject()).isEqualTo("user@test.com");
+        assertThat(fetches).hasValue(2);
+
+        // a second unknown kid right away does not fetch again
+        verifier.refreshKeys().block();
+        assertThat(fetches).hasValue(2);
+    }
+
+    @Test
+    void refreshIsAllowedAgainAfterTheInterval() throws Exception {
+        verifier = verifier(Duration.ZERO);
+        awaitFetches(1);
+
+        verifier.refreshKeys().block();
+        verifier.refreshKeys().block();
+
+        assertThat(fetches).hasValue(3);
+    }
+
+    private JwtVerifier verifier(Duration minRefreshInterval) {
+        WebClient.Builder builder = WebClient.builder().exchangeFunction(request -> {
+            fetches.incrementAndGet();
+            return Mono.just(ClientResponse.create(HttpStatus.OK)
+                    .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                    .body(jwks.get())
+                    .build());
+        });
+        return new JwtVerifier("", "http://auth-service/.well-known/jwks.json", Duration.ofHours(1),
+                minRefreshInterval, builder);
+    }
+
+    // the first periodic refresh runs on a Reactor timer thread
+    private void awaitFetches(int expected) throws InterruptedException {
+        for (int i = 0; i < 100 && fetches.get() < expected; i++) {
+            Thread.sleep(20);
+        }
+        assertThat(fetches).hasValue(expected);
+    }
+
+    private String token(String kid) {
+        return Jwts.builder()
+                .header().keyId(kid).and()
+                .subject("user@test.com")
+                .expiration(Date.from(Instant.now().plusSeconds(60)))
+                .signWith(keyPair.getPrivate(), Jwts.SIG.ES256)
+                .compact();
+    }
+
+    private String jwks(String kid) {
+        ECPublicKey key = (ECPublicKey) keyPair.getPublic();
+        return "{\"keys\":[{\"kty\":\"EC\",\"crv\":\"P-256\",\"kid\":\"" + kid + "\","
+                + "\"x\":\"" + base64Url(key.getW().getAffineX()) + "\","
+                + "\"y\":\"" + base64Url(key.getW().getAffineY()) + "\"}]}";
+    }
+
+    private static String base64Url(BigInteger value) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.toByteArray());
+    }
+}
@@ -0,0 +1,28 @@
+package com.pm.authservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.List;
+
+// jwt.* settings.
+//   jwt.algorithm  HS256 (shared jwt.secret, default), RS256 or ES256
+//   jwt.secret     base64 HMAC key, only used for HS256
+//   jwt.active-kid which of jwt.keys signs new tokens (default: the first one)
+//   jwt.keys[n]    kid + base64 PKCS#8 private key + base64 X.509 public key.
+//                  Every key is published on /.well-known/jwks.json; keys without a private key are verify-only.
+//
+// Rotation without invalidating tokens:
+//   1. add the new key to jwt.keys and deploy (it is published but does not sign yet)
+//   2. once verifiers have refreshed their JWKS, point jwt.active-kid at it
+//   3. remove the old key after the longest token lifetime has passed
+@ConfigurationProperties(prefix = "jwt")
+public record JwtKeyProperties(String algorithm, String secret, String activeKid, List<Key> keys) {
+
+    public JwtKeyProperties {
+        algorithm = algorithm == null ? "HS256" : algorithm.toUpperCase();
+        keys = keys == null ? List.of() : keys;
+    }
+
+    public record Key(String kid, String privateKey, String publicKey) {
+    }
+}
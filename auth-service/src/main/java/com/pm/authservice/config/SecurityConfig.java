@@ -1,5 +1,6 @@
 package com.pm.authservice.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
@@ -35,9 +36,12 @@ public class SecurityConfig {
     //
     //👉 所有请求，无条件放行。
 
+    // cost (log2 rounds) comes from auth.password.bcrypt-strength; every +1 doubles the time per login.
+    // Pick it with BCryptBenchmark (benchmarks module): the highest cost whose matches() still fits the
+    // login latency budget. Existing hashes are re-encoded on the next login, see PasswordVerifier.
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(@Value("${auth.password.bcrypt-strength:10}") int strength) {
+        return new BCryptPasswordEncoder(strength);
     }
     //项目里所有用户密码都会用 BCrypt 算法加密。
     //✅ 安全、通用，很多大公司（Google、GitHub）也用。
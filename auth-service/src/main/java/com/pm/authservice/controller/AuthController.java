@@ -3,9 +3,13 @@ package com.pm.authservice.controller;
 import com.pm.authservice.dto.LoginRequestDTO;
 import com.pm.authservice.dto.LoginResponseDTO;
 
+import com.pm.authservice.dto.RefreshRequestDTO;
+import com.pm.authservice.dto.RevocationListDTO;
 import com.pm.authservice.service.AuthService;
+import com.pm.authservice.service.RevocationService;
 import io.swagger.v3.oas.annotations.Operation;
 import java.util.Optional;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -17,8 +21,10 @@ import org.springframework.web.bind.annotation.RestController;
 @RestController
 public class AuthController {
     private final AuthService authService;
-    public AuthController(AuthService authService) {
+    private final RevocationService revocationService;
+    public AuthController(AuthService authService, RevocationService revocationService) {
         this.authService = authService;
+        this.revocationService = revocationService;
     }
 
 
@@ -27,14 +33,13 @@ public class AuthController {
     public ResponseEntity<LoginResponseDTO> login(
             @RequestBody LoginRequestDTO loginRequestDTO) {
 
-        Optional<String> tokenOptional = authService.authenticate(loginRequestDTO);
+        Optional<LoginResponseDTO> tokenOptional = authService.authenticate(loginRequestDTO);
 
         if (tokenOptional.isEmpty()) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
 
-        String token = tokenOptional.get();
-        return ResponseEntity.ok(new LoginResponseDTO(token));
+        return ResponseEntity.ok(tokenOptional.get());
         // Spring Boot 的精妙点👇
         //return ResponseEntity.ok(new LoginResponseDTO(token));
         //✔️ **这个行代码确实是妙的**，它：**自动**：
@@ -114,4 +119,42 @@ public class AuthController {
         //如果无效（返回 false）：
         //返回 401 Unauthorized
     }
-}
\ No newline at end of file
+
+    @Operation(summary = "Exchange a refresh token for a new access token and refresh token")
+    @PostMapping("/refresh")
+    public ResponseEntity<LoginResponseDTO> refresh(@RequestBody RefreshRequestDTO refreshRequestDTO) {
+        if (refreshRequestDTO.getRefreshToken() == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        return authService.refresh(refreshRequestDTO.getRefreshToken())
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.UNAUTHORIZED).build());
+    }
+
+    @Operation(summary = "Revoke the access token and its refresh token family")
+    @PostMapping("/logout")
+    public ResponseEntity<Void> logout(
+            @RequestHeader("Authorization") String authHeader,
+            @RequestBody(required = false) RefreshRequestDTO refreshRequestDTO) {
+        if(authHeader == null || !authHeader.startsWith("Bearer ")) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        String refreshToken = refreshRequestDTO == null ? null : refreshRequestDTO.getRefreshToken();
+        return authService.logout(authHeader.substring(7), refreshToken)
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+    }
+
+    // 给网关这类 verifier 下载的撤销列表；带 If-None-Match 轮询，没变就 304，不传 body
+    @Operation(summary = "Revoked access tokens (bloom filter + exact jti set)")
+    @GetMapping("/revocations")
+    public ResponseEntity<RevocationListDTO> revocations(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        RevocationListDTO list = revocationService.revocationList();
+        String etag = "\"" + list.version() + "\"";
+        if (etag.equals(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        return ResponseEntity.ok().eTag(etag).body(list);
+    }
+}
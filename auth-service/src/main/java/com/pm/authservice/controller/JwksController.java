@@ -0,0 +1,29 @@
+package com.pm.authservice.controller;
+
+import com.pm.authservice.util.JwtKeySet;
+import io.swagger.v3.oas.annotations.Operation;
+import java.time.Duration;
+import java.util.Map;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+public class JwksController {
+    private final JwtKeySet jwtKeySet;
+
+    public JwksController(JwtKeySet jwtKeySet) {
+        this.jwtKeySet = jwtKeySet;
+    }
+
+    // 公钥集合（JWKS）：gateway / 下游服务下载后自己验 token，不用再调 /validate
+    // Cache-Control 让验证方缓存 5 分钟，轮换密钥时新 key 要先发布再启用（见 JwtKeyProperties）
+    @Operation(summary = "Public keys for verifying tokens (JWK set)")
+    @GetMapping("/.well-known/jwks.json")
+    public ResponseEntity<Map<String, Object>> jwks() {
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(Duration.ofMinutes(5)).cachePublic())
+                .body(jwtKeySet.toJwks());
+    }
+}
@@ -5,11 +5,25 @@ public class LoginResponseDTO {
     // final 被initialized后 ，就不能被再次initialized
     //所以就可以不会改token？？？
 
-    public LoginResponseDTO(String token) {
+    // access token 很短命（expiresIn 秒）；过期前用 refreshToken 调 /refresh 换一对新的
+    private final String refreshToken;
+    private final long expiresIn;
+
+    public LoginResponseDTO(String token, String refreshToken, long expiresIn) {
         this.token = token;
+        this.refreshToken = refreshToken;
+        this.expiresIn = expiresIn;
     }
 
     public String getToken() {
         return token;
     }
-}
\ No newline at end of file
+
+    public String getRefreshToken() {
+        return refreshToken;
+    }
+
+    public long getExpiresIn() {
+        return expiresIn;
+    }
+}
@@ -0,0 +1,9 @@
+package com.pm.authservice.dto;
+
+import java.util.List;
+
+// GET /revocations: every access token revoked before its expiry, as a bloom filter (fast negative check)
+// plus the exact jti list (to confirm a bloom hit). version changes whenever the set does; it is also the ETag.
+public record RevocationListDTO(String version, long generatedAt, int bloomBits, int bloomHashes,
+                                String bloom, List<String> jtis) {
+}
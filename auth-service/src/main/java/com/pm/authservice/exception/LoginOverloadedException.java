@@ -0,0 +1,9 @@
+package com.pm.authservice.exception;
+
+// Thrown when the password verification pool is full or the login waited too long for it.
+public class LoginOverloadedException extends RuntimeException {
+
+    public LoginOverloadedException(String message) {
+        super(message);
+    }
+}
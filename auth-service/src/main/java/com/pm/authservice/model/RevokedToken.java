@@ -0,0 +1,44 @@
+package com.pm.authservice.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import java.time.Instant;
+
+// 被提前作废（/logout）的 access token，按 jti 记。
+// 只需要留到 token 自己过期（expiresAt）为止，之后签名校验就会拒绝它，这一行可以删掉。
+@Entity
+@Table(name = "revoked_tokens")
+public class RevokedToken {
+    @Id
+    @Column(length = 64)
+    private String jti;
+
+    @Column(nullable = false)
+    private Instant expiresAt;
+
+    public RevokedToken() {
+    }
+
+    public RevokedToken(String jti, Instant expiresAt) {
+        this.jti = jti;
+        this.expiresAt = expiresAt;
+    }
+
+    public String getJti() {
+        return jti;
+    }
+
+    public void setJti(String jti) {
+        this.jti = jti;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(Instant expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+}
@@ -0,0 +1,20 @@
+package com.pm.authservice.repository;
+
+import com.pm.authservice.model.RevokedToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface RevokedTokenRepository extends JpaRepository<RevokedToken, String> {
+
+    @Query("SELECT t.jti FROM RevokedToken t WHERE t.expiresAt > :now")
+    List<String> findActiveJtis(Instant now);
+
+    @Modifying
+    @Query("DELETE FROM RevokedToken t WHERE t.expiresAt < :now")
+    int deleteExpired(Instant now);
+
+}
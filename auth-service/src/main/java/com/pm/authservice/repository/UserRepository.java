@@ -2,6 +2,8 @@ package com.pm.authservice.repository;
 
 import com.pm.authservice.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 
 import java.util.Optional;
 import java.util.UUID;
@@ -9,4 +11,8 @@ import java.util.UUID;
 public interface UserRepository extends JpaRepository<User, UUID> {
     Optional<User> findByEmail(String email);
 
+    @Modifying
+    @Query("UPDATE User u SET u.password = :password WHERE u.id = :id")
+    int updatePassword(UUID id, String password);
+
 }
@@ -1,34 +1,86 @@
 package com.pm.authservice.service;
 
 import com.pm.authservice.dto.LoginRequestDTO;
+import com.pm.authservice.dto.LoginResponseDTO;
+import com.pm.authservice.model.User;
 import com.pm.authservice.util.JwtUtil;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
 import io.jsonwebtoken.JwtException;
 import java.util.Optional;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
 @Service
 public class AuthService {
 
     private final UserService userService;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordVerifier passwordVerifier;
     private final JwtUtil jwtUtil;
+    private final RefreshTokenService refreshTokenService;
+    private final RevocationService revocationService;
 
-    public AuthService(UserService userService, PasswordEncoder passwordEncoder,
-                       JwtUtil jwtUtil) {
+    public AuthService(UserService userService, PasswordVerifier passwordVerifier,
+                       JwtUtil jwtUtil, RefreshTokenService refreshTokenService,
+                       RevocationService revocationService) {
         this.userService = userService;
-        this.passwordEncoder = passwordEncoder;
+        this.passwordVerifier = passwordVerifier;
         this.jwtUtil = jwtUtil;
+        this.refreshTokenService = refreshTokenService;
+        this.revocationService = revocationService;
     }
 
-    public Optional<String> authenticate(LoginRequestDTO loginRequestDTO) {
-        Optional<String> token = userService.findByEmail(loginRequestDTO.getEmail())
-                .filter(u -> passwordEncoder.matches(loginRequestDTO.getPassword(),
-                        u.getPassword()))
-                .map(u -> jwtUtil.generateToken(u.getEmail(), u.getRole()));
+    // BCrypt 不在请求线程上跑：交给 PasswordVerifier 的有界线程池，满了就抛 LoginOverloadedException（503）
+    public Optional<LoginResponseDTO> authenticate(LoginRequestDTO loginRequestDTO) {
+        Optional<LoginResponseDTO> tokens = userService.findByEmail(loginRequestDTO.getEmail())
+                .filter(u -> passwordMatches(u, loginRequestDTO.getPassword()))
+                .map(u -> tokens(u, refreshTokenService.issue(u.getId())));
         // turn xx into token
 
-        return token;
+        return tokens;
+    }
+
+    // 用 refresh token 换一对新的 token（旧的 refresh token 随即作废）；不认识/过期/被重复使用 -> empty（401）
+    public Optional<LoginResponseDTO> refresh(String refreshToken) {
+        return refreshTokenService.rotate(refreshToken)
+                .flatMap(rotation -> userService.findById(rotation.userId())
+                        .map(u -> tokens(u, rotation.refreshToken())));
+    }
+
+    // access token 进撤销列表（网关下次同步后就拒绝它），refresh token 整个 family 作废
+    // access token 只活 15 分钟，logout 时已经过期是常态：签名对就照样 logout（过期的不用进撤销列表）
+    // refresh token 必须是同一个用户的，别人的 token 不能顺手作废掉 -> false（401），什么都不做
+    public boolean logout(String accessToken, String refreshToken) {
+        Claims claims;
+        try {
+            claims = jwtUtil.parseClaims(accessToken);
+        } catch (ExpiredJwtException e) {
+            // thrown after the signature was verified, so the claims are genuine
+            claims = e.getClaims();
+        } catch (JwtException e) {
+            return false;
+        }
+        if (refreshToken != null) {
+            Optional<User> user = userService.findByEmail(claims.getSubject());
+            if (user.isEmpty() || !refreshTokenService.revokeFamily(refreshToken, user.get().getId())) {
+                return false;
+            }
+        }
+        revocationService.revoke(claims.getId(), claims.getExpiration().toInstant());
+        return true;
+    }
+
+    private LoginResponseDTO tokens(User user, String refreshToken) {
+        return new LoginResponseDTO(jwtUtil.generateToken(user.getEmail(), user.getRole()),
+                refreshToken, jwtUtil.accessTtl().toSeconds());
+    }
+
+    private boolean passwordMatches(User user, String rawPassword) {
+        PasswordVerifier.Result result = passwordVerifier.verify(rawPassword, user.getPassword());
+        // bcrypt cost 改过了：用新的 cost 重新存一次 hash，用户无感
+        if (result.matches() && result.rehashed() != null) {
+            userService.updatePassword(user, result.rehashed());
+        }
+        return result.matches();
     }
 
     public boolean validateToken(String token) {
@@ -36,8 +88,9 @@ public class AuthService {
         //输入：一个字符串 token
         //输出：true（有效） 或 false（无效）
         try {
-            jwtUtil.validateToken(token);
-            return true;
+            Claims claims = jwtUtil.parseClaims(token);
+            // 签名和过期都没问题，但可能已经 /logout 过
+            return !revocationService.isRevoked(claims.getId());
         } catch (JwtException e){
             return false;
         }
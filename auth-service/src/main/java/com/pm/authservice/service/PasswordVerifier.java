@@ -0,0 +1,111 @@
+package com.pm.authservice.service;
+
+import com.pm.authservice.exception.LoginOverloadedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// BCrypt runs here, not on the request thread.
+// A small fixed pool (default: all cores but one) with a bounded queue: during a login storm
+// logins queue, and once the queue is full (or a login has waited verify-timeout) they are
+// rejected with 503, while /validate and the rest keep a core to run on.
+// Also does the rehash-on-login: a hash with a lower cost than auth.password.bcrypt-strength
+// is re-encoded with the current cost in the same task, while the raw password is at hand.
+// A higher stored cost is kept: lowering the setting never weakens existing hashes.
+// Metrics: executor.* with name=auth.password.verify (queue size, active, wait/run time),
+//          auth.login.rejected{reason=queue_full|timeout}
+@Component
+public class PasswordVerifier {
+
+    public record Result(boolean matches, String rehashed) {
+    }
+
+    private final PasswordEncoder passwordEncoder;
+    private final Duration timeout;
+    private final ExecutorService executor;
+    private final Counter queueFull;
+    private final Counter timedOut;
+
+    public PasswordVerifier(PasswordEncoder passwordEncoder,
+                            @Value("${auth.password.verify-threads:0}") int threads,
+                            @Value("${auth.password.verify-queue:64}") int queueSize,
+                            @Value("${auth.password.verify-timeout:2s}") Duration timeout,
+                            MeterRegistry meterRegistry) {
+        this.passwordEncoder = passwordEncoder;
+        this.timeout = timeout;
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        AtomicInteger counter = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-verify-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.executor = ExecutorServiceMetrics.monitor(meterRegistry, pool, "auth.password.verify");
+        this.queueFull = rejectedCounter(meterRegistry, "queue_full");
+        this.timedOut = rejectedCounter(meterRegistry, "timeout");
+    }
+
+    private static Counter rejectedCounter(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("auth.login.rejected")
+                .description("Logins refused because password verification was saturated")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    public Result verify(String rawPassword, String encodedPassword) {
+        Future<Result> future;
+        try {
+            future = executor.submit(() -> {
+                if (!passwordEncoder.matches(rawPassword, encodedPassword)) {
+                    return new Result(false, null);
+                }
+                return new Result(true, needsRehash(encodedPassword) ? passwordEncoder.encode(rawPassword) : null);
+            });
+        } catch (RejectedExecutionException e) {
+            queueFull.increment();
+            throw new LoginOverloadedException("password verification queue is full");
+        }
+        try {
+            return future.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // still queued: drop it, nobody is waiting for the answer any more
+            future.cancel(true);
+            timedOut.increment();
+            throw new LoginOverloadedException("password verification took longer than " + timeout);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new LoginOverloadedException("interrupted while verifying the password");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("password verification failed", e.getCause());
+        }
+    }
+
+    // only called after matches(), so the hash is one the encoder can read
+    boolean needsRehash(String encodedPassword) {
+        return passwordEncoder.upgradeEncoding(encodedPassword);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,129 @@
+package com.pm.authservice.service;
+
+import com.pm.authservice.model.RefreshToken;
+import com.pm.authservice.repository.RefreshTokenRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.UUID;
+
+// Rotating refresh tokens. The token itself is 32 random bytes (base64url); the DB only has its SHA-256,
+// so a leaked table cannot be replayed. Every /refresh marks the presented token as used and issues the
+// next one in the same family. A used token coming back means two parties hold the chain (theft):
+// the whole family is revoked and the user has to log in again.
+@Service
+public class RefreshTokenService {
+
+    private static final Logger log = LoggerFactory.getLogger(RefreshTokenService.class);
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final Duration ttl;
+
+    public RefreshTokenService(RefreshTokenRepository refreshTokenRepository,
+                               @Value("${auth.token.refresh-ttl:7d}") Duration ttl) {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.ttl = ttl;
+    }
+
+    public record Rotation(UUID userId, String refreshToken) {
+    }
+
+    // on login: start a new family
+    @Transactional
+    public String issue(UUID userId) {
+        return issue(userId, UUID.randomUUID());
+    }
+
+    // empty = unknown, expired or reused token -> 401
+    @Transactional
+    public Optional<Rotation> rotate(String rawToken) {
+        Optional<RefreshToken> found = refreshTokenRepository.findByTokenHash(hash(rawToken));
+        if (found.isEmpty()) {
+            return Optional.empty();
+        }
+        RefreshToken token = found.get();
+        Instant now = Instant.now();
+        if (token.getRevokedAt() != null) {
+            int revoked = refreshTokenRepository.revokeFamily(token.getFamilyId(), now);
+            log.warn("Refresh token reuse for user {}, revoked {} token(s) of family {}",
+                    token.getUserId(), revoked, token.getFamilyId());
+            return Optional.empty();
+        }
+        if (!token.getExpiresAt().isAfter(now)) {
+            return Optional.empty();
+        }
+        token.setRevokedAt(now);
+        return Optional.of(new Rotation(token.getUserId(), issue(token.getUserId(), token.getFamilyId())));
+    }
+
+    // on logout: the presented token and everything rotated from the same login.
+    // false = the token belongs to another user, nothing is revoked; an unknown (already purged) token is fine
+    @Transactional
+    public boolean revokeFamily(String rawToken, UUID userId) {
+        Optional<RefreshToken> found = refreshTokenRepository.findByTokenHash(hash(rawToken));
+        if (found.isEmpty()) {
+            return true;
+        }
+        RefreshToken token = found.get();
+        if (!token.getUserId().equals(userId)) {
+            log.warn("Logout of user {} presented a refresh token of user {}", userId, token.getUserId());
+            return false;
+        }
+        refreshTokenRepository.revokeFamily(token.getFamilyId(), Instant.now());
+        return true;
+    }
+
+    public Duration ttl() {
+        return ttl;
+    }
+
+    // used/revoked rows are kept until they expire: that is what makes reuse detection work
+    @Scheduled(fixedDelayString = "${auth.token.purge-interval-ms:3600000}")
+    @Transactional
+    public void purgeExpired() {
+        int deleted = refreshTokenRepository.deleteExpired(Instant.now());
+        if (deleted > 0) {
+            log.info("Purged {} expired refresh tokens", deleted);
+        }
+    }
+
+    private String issue(UUID userId, UUID familyId) {
+        byte[] bytes = new byte[32];
+        RANDOM.nextBytes(bytes);
+        String rawToken = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        Instant now = Instant.now();
+        RefreshToken token = new RefreshToken();
+        token.setId(UUID.randomUUID());
+        token.setUserId(userId);
+        token.setFamilyId(familyId);
+        token.setTokenHash(hash(rawToken));
+        token.setCreatedAt(now);
+        token.setExpiresAt(now.plus(ttl));
+        refreshTokenRepository.save(token);
+        return rawToken;
+    }
+
+    private static String hash(String rawToken) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(rawToken.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
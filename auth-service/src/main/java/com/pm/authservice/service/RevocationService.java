@@ -0,0 +1,138 @@
+package com.pm.authservice.service;
+
+import com.pm.authservice.dto.RevocationListDTO;
+import com.pm.authservice.model.RevokedToken;
+import com.pm.authservice.repository.RevokedTokenRepository;
+import com.pm.authservice.util.BloomFilter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+
+// Access tokens revoked before they expire (/logout), by jti.
+// The table is small: a row only lives until its token would have expired anyway (auth.token.access-ttl).
+// It is reloaded into an immutable snapshot (exact set + bloom filter) every auth.revocation.reload-ms,
+// so several auth-service instances converge on the same set; GET /revocations serves that snapshot
+// and verifiers (api-gateway) check tokens against their downloaded copy in memory.
+@Service
+public class RevocationService {
+
+    private static final Logger log = LoggerFactory.getLogger(RevocationService.class);
+
+    private final RevokedTokenRepository revokedTokenRepository;
+    private final double falsePositiveRate;
+    private volatile Snapshot snapshot;
+
+    private record Snapshot(Set<String> jtis, RevocationListDTO list) {
+    }
+
+    public RevocationService(RevokedTokenRepository revokedTokenRepository,
+                             @Value("${auth.revocation.bloom-fpp:0.01}") double falsePositiveRate,
+                             MeterRegistry meterRegistry) {
+        this.revokedTokenRepository = revokedTokenRepository;
+        this.falsePositiveRate = falsePositiveRate;
+        this.snapshot = build(List.of());
+        Gauge.builder("auth.revocation.size", this, s -> s.snapshot.jtis().size())
+                .description("Revoked, not yet expired access tokens")
+                .register(meterRegistry);
+    }
+
+    @Transactional
+    public void revoke(String jti, Instant expiresAt) {
+        if (jti == null || !expiresAt.isAfter(Instant.now())) {
+            return;
+        }
+        revokedTokenRepository.save(new RevokedToken(jti, expiresAt));
+        // published only once the row is committed: a rolled-back revoke must not show up in /revocations
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    publish(jti);
+                }
+            });
+        } else {
+            publish(jti);
+        }
+    }
+
+    // visible on this instance right away; other instances pick it up on their next reload
+    private void publish(String jti) {
+        synchronized (this) {
+            Snapshot current = snapshot;
+            if (!current.jtis().contains(jti)) {
+                List<String> jtis = new ArrayList<>(current.jtis());
+                jtis.add(jti);
+                snapshot = build(jtis);
+            }
+        }
+    }
+
+    public boolean isRevoked(String jti) {
+        return jti != null && snapshot.jtis().contains(jti);
+    }
+
+    public RevocationListDTO revocationList() {
+        return snapshot.list();
+    }
+
+    @Scheduled(fixedDelayString = "${auth.revocation.reload-ms:10000}")
+    public void reload() {
+        List<String> jtis = revokedTokenRepository.findActiveJtis(Instant.now());
+        synchronized (this) {
+            if (!new HashSet<>(jtis).equals(snapshot.jtis())) {
+                snapshot = build(jtis);
+                log.debug("Revocation list reloaded: {} jti(s), version {}", jtis.size(), snapshot.list().version());
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${auth.token.purge-interval-ms:3600000}")
+    @Transactional
+    public void purgeExpired() {
+        revokedTokenRepository.deleteExpired(Instant.now());
+    }
+
+    private Snapshot build(List<String> jtis) {
+        List<String> sorted = new ArrayList<>(jtis);
+        Collections.sort(sorted);
+        BloomFilter bloom = BloomFilter.create(sorted.size(), falsePositiveRate);
+        sorted.forEach(bloom::add);
+        RevocationListDTO list = new RevocationListDTO(version(sorted), System.currentTimeMillis(),
+                bloom.bits(), bloom.hashes(), Base64.getEncoder().encodeToString(bloom.toBytes()),
+                List.copyOf(sorted));
+        return new Snapshot(Set.copyOf(sorted), list);
+    }
+
+    // content hash, not a counter: every auth-service instance gives the same set the same version/ETag
+    private static String version(List<String> sortedJtis) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String jti : sortedJtis) {
+                digest.update(jti.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) '\n');
+            }
+            return HexFormat.of().formatHex(digest.digest(), 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
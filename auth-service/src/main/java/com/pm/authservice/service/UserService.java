@@ -1,21 +1,66 @@
 package com.pm.authservice.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.pm.authservice.model.User;
 import com.pm.authservice.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
 import java.util.Optional;
+import java.util.UUID;
 
 @Service
 public class UserService {
 
     private final UserRepository userRepository;
+    // 登录时按 email 查用户：短 TTL 缓存，重复登录（和登录风暴）不用每次都查库。
+    // 只缓存查到的用户；改密码（rehash）时会 evict。缓存里的 User 只读，不要改它。
+    // 命中率：/actuator/metrics/cache.gets?tag=cache:users
+    private final Cache<String, User> usersByEmail;
+    private final boolean cacheEnabled;
 
-    public UserService(UserRepository userRepository) {
+    public UserService(UserRepository userRepository,
+                       @Value("${auth.user-cache.enabled:true}") boolean cacheEnabled,
+                       @Value("${auth.user-cache.max-size:10000}") long maxSize,
+                       @Value("${auth.user-cache.ttl:30s}") Duration ttl,
+                       MeterRegistry meterRegistry) {
         this.userRepository = userRepository;
+        this.cacheEnabled = cacheEnabled;
+        this.usersByEmail = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, usersByEmail, "users");
     }
+
     public Optional<User> findByEmail (String email){
-        return userRepository.findByEmail(email);
+        if (!cacheEnabled) {
+            return userRepository.findByEmail(email);
+        }
+        User cached = usersByEmail.getIfPresent(email);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        Optional<User> user = userRepository.findByEmail(email);
+        user.ifPresent(u -> usersByEmail.put(email, u));
+        return user;
+    }
+
+    // /refresh: not cached, a refresh is rare compared to requests carrying the access token
+    public Optional<User> findById(UUID id) {
+        return userRepository.findById(id);
+    }
+
+    @Transactional
+    public void updatePassword(User user, String encodedPassword) {
+        userRepository.updatePassword(user.getId(), encodedPassword);
+        usersByEmail.invalidate(user.getEmail());
     }
 
 }
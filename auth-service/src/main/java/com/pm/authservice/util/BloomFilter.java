@@ -0,0 +1,95 @@
+package com.pm.authservice.util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+// Bloom filter over jti strings, shipped to verifiers inside GET /revocations.
+// A verifier asks the filter first: "no" is definite, so almost every (not revoked) request stops here
+// with a few multiplications and no lookup; only "maybe" falls through to the exact jti set.
+// Wire format: bits as big-endian longs, plus bit count and hash count. The api-gateway has a copy of
+// the read side (com.pm.apigateway.util.BloomFilter) and must keep the same hashing.
+public final class BloomFilter {
+
+    private final long[] words;
+    private final int bits;
+    private final int hashes;
+
+    private BloomFilter(long[] words, int bits, int hashes) {
+        this.words = words;
+        this.bits = bits;
+        this.hashes = hashes;
+    }
+
+    // standard sizing: m = -n ln p / (ln 2)^2, k = m / n * ln 2
+    public static BloomFilter create(int expectedItems, double falsePositiveRate) {
+        int n = Math.max(1, expectedItems);
+        int bits = (int) Math.max(64, Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2))));
+        int hashes = Math.max(1, (int) Math.round((double) bits / n * Math.log(2)));
+        return new BloomFilter(new long[(bits + 63) / 64], bits, hashes);
+    }
+
+    public static BloomFilter fromBytes(byte[] bytes, int bits, int hashes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        long[] words = new long[(bits + 63) / 64];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = buffer.getLong();
+        }
+        return new BloomFilter(words, bits, hashes);
+    }
+
+    public void add(String value) {
+        long hash = fnv1a64(value);
+        int h1 = (int) hash;
+        int h2 = (int) (mix64(hash) >>> 32) | 1;
+        for (int i = 0; i < hashes; i++) {
+            int bit = Math.floorMod(h1 + i * h2, bits);
+            words[bit >>> 6] |= 1L << bit;
+        }
+    }
+
+    public boolean mightContain(String value) {
+        long hash = fnv1a64(value);
+        int h1 = (int) hash;
+        int h2 = (int) (mix64(hash) >>> 32) | 1;
+        for (int i = 0; i < hashes; i++) {
+            int bit = Math.floorMod(h1 + i * h2, bits);
+            if ((words[bit >>> 6] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public byte[] toBytes() {
+        ByteBuffer buffer = ByteBuffer.allocate(words.length * Long.BYTES);
+        for (long word : words) {
+            buffer.putLong(word);
+        }
+        return buffer.array();
+    }
+
+    public int bits() {
+        return bits;
+    }
+
+    public int hashes() {
+        return hashes;
+    }
+
+    // double hashing (Kirsch-Mitzenmacher): k indexes from two hashes of one FNV-1a pass over UTF-8
+    private static long fnv1a64(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    // splitmix64 finalizer, so the second hash is not just the upper half of the first
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,158 @@
+package com.pm.authservice.util;
+
+import com.pm.authservice.config.JwtKeyProperties;
+import io.jsonwebtoken.Header;
+import io.jsonwebtoken.ProtectedHeader;
+import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.InvalidKeyException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Signing and verification keys for JwtUtil, built from JwtKeyProperties.
+// HS256: one shared secret, nothing is published.
+// RS256/ES256: one active signing key (identified by kid) plus any number of verify-only keys,
+// all of them published as a JWK set so verifiers never need a secret or a call back to us.
+@Component
+public class JwtKeySet {
+
+    private static final Logger log = LoggerFactory.getLogger(JwtKeySet.class);
+
+    private final String algorithm;
+    private final String activeKid;
+    private final Key signingKey;
+    private final Map<String, PublicKey> publicKeys = new LinkedHashMap<>();
+
+    public JwtKeySet(JwtKeyProperties properties) throws GeneralSecurityException {
+        this.algorithm = properties.algorithm();
+        switch (algorithm) {
+            case "HS256" -> {
+                byte[] keyBytes = Base64.getDecoder()
+                        .decode(properties.secret().getBytes(StandardCharsets.UTF_8));
+                this.signingKey = Keys.hmacShaKeyFor(keyBytes);
+                this.activeKid = null;
+            }
+            case "RS256", "ES256" -> {
+                String keyType = algorithm.startsWith("RS") ? "RSA" : "EC";
+                List<JwtKeyProperties.Key> keys = properties.keys();
+                if (keys.isEmpty()) {
+                    keys = List.of(generateEphemeralKey(keyType));
+                }
+                KeyFactory keyFactory = KeyFactory.getInstance(keyType);
+                Map<String, PrivateKey> privateKeys = new LinkedHashMap<>();
+                for (JwtKeyProperties.Key key : keys) {
+                    publicKeys.put(key.kid(), keyFactory.generatePublic(
+                            new X509EncodedKeySpec(Base64.getDecoder().decode(key.publicKey()))));
+                    if (key.privateKey() != null && !key.privateKey().isBlank()) {
+                        privateKeys.put(key.kid(), keyFactory.generatePrivate(
+                                new PKCS8EncodedKeySpec(Base64.getDecoder().decode(key.privateKey()))));
+                    }
+                }
+                this.activeKid = properties.activeKid() != null ? properties.activeKid() : keys.get(0).kid();
+                this.signingKey = privateKeys.get(activeKid);
+                if (signingKey == null) {
+                    throw new IllegalStateException("No private key for active kid " + activeKid);
+                }
+            }
+            default -> throw new IllegalStateException("Unsupported jwt.algorithm " + algorithm);
+        }
+        log.info("JWT signing with {} (kid={}), {} published key(s)", algorithm, activeKid, publicKeys.size());
+    }
+
+    public Key signingKey() {
+        return signingKey;
+    }
+
+    // null for HS256
+    public String activeKid() {
+        return activeKid;
+    }
+
+    // key locator for the parser: the kid in the token header picks the verification key
+    public Key verificationKey(Header header) {
+        if (publicKeys.isEmpty()) {
+            return signingKey;
+        }
+        String kid = header instanceof ProtectedHeader protectedHeader ? protectedHeader.getKeyId() : null;
+        PublicKey key = kid == null ? null : publicKeys.get(kid);
+        if (key == null) {
+            throw new InvalidKeyException("Unknown kid " + kid);
+        }
+        return key;
+    }
+
+    // RFC 7517 JWK set of every published public key
+    public Map<String, Object> toJwks() {
+        List<Map<String, Object>> jwks = new ArrayList<>(publicKeys.size());
+        publicKeys.forEach((kid, key) -> jwks.add(toJwk(kid, key)));
+        return Map.of("keys", jwks);
+    }
+
+    private Map<String, Object> toJwk(String kid, PublicKey key) {
+        Map<String, Object> jwk = new LinkedHashMap<>();
+        jwk.put("kid", kid);
+        jwk.put("use", "sig");
+        jwk.put("alg", algorithm);
+        if (key instanceof RSAPublicKey rsa) {
+            jwk.put("kty", "RSA");
+            jwk.put("n", base64Url(rsa.getModulus(), 0));
+            jwk.put("e", base64Url(rsa.getPublicExponent(), 0));
+        } else if (key instanceof ECPublicKey ec) {
+            jwk.put("kty", "EC");
+            jwk.put("crv", "P-256");
+            jwk.put("x", base64Url(ec.getW().getAffineX(), 32));
+            jwk.put("y", base64Url(ec.getW().getAffineY(), 32));
+        }
+        return jwk;
+    }
+
+    // unsigned big-endian, left-padded to length when length > 0
+    private static String base64Url(BigInteger value, int length) {
+        byte[] bytes = value.toByteArray();
+        if (bytes.length > 1 && bytes[0] == 0) {
+            bytes = Arrays.copyOfRange(bytes, 1, bytes.length);
+        }
+        if (length > bytes.length) {
+            byte[] padded = new byte[length];
+            System.arraycopy(bytes, 0, padded, length - bytes.length, bytes.length);
+            bytes = padded;
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    // dev convenience: no keys configured, so tokens only survive until restart
+    private static JwtKeyProperties.Key generateEphemeralKey(String keyType) throws GeneralSecurityException {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance(keyType);
+        if ("RSA".equals(keyType)) {
+            generator.initialize(2048);
+        } else {
+            generator.initialize(new ECGenParameterSpec("secp256r1"));
+        }
+        KeyPair pair = generator.generateKeyPair();
+        log.warn("No jwt.keys configured, using an ephemeral {} key", keyType);
+        return new JwtKeyProperties.Key("ephemeral-" + System.currentTimeMillis(),
+                Base64.getEncoder().encodeToString(pair.getPrivate().getEncoded()),
+                Base64.getEncoder().encodeToString(pair.getPublic().getEncoded()));
+    }
+}
@@ -1,54 +1,71 @@
 package com.pm.authservice.util;
 
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtBuilder;
 import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.security.Keys;
 import io.jsonwebtoken.security.SignatureException;
-import java.nio.charset.StandardCharsets;
-import java.security.Key;
-import java.util.Base64;
+import java.time.Duration;
 import java.util.Date;
-import javax.crypto.SecretKey;
+import java.util.UUID;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 @Component
 public class JwtUtil {
 
-    private final Key secretKey;
+    private final JwtKeySet keySet;
+    // built once; the key locator picks the verification key by the token's kid header
+    private final JwtParser parser;
+    // access tokens are short-lived; clients get new ones from /refresh (see RefreshTokenService)
+    private final Duration accessTtl;
 
-    public JwtUtil(@Value("${jwt.secret}") String secret) {
-        byte[] keyBytes = Base64.getDecoder()
-                .decode(secret.getBytes(StandardCharsets.UTF_8));
-        this.secretKey = Keys.hmacShaKeyFor(keyBytes);
+    public JwtUtil(JwtKeySet keySet, @Value("${auth.token.access-ttl:15m}") Duration accessTtl) {
+        this.keySet = keySet;
+        this.accessTtl = accessTtl;
+        this.parser = Jwts.parser()
+                .keyLocator(keySet::verificationKey)
+                .build();
     }
 
     public String generateToken(String email, String role) {
-        return Jwts.builder()
+        JwtBuilder builder = Jwts.builder();
+        if (keySet.activeKid() != null) {
+            builder.header().keyId(keySet.activeKid()).and();
+        }
+        return builder
+                .id(UUID.randomUUID().toString()) // jti: what /logout revokes, see RevocationService
                 .subject(email)
                 .claim("role", role)
                 .issuedAt(new Date())
-                .expiration(new Date(System.currentTimeMillis() + 1000 * 60 * 60 *10)) // 10 hours
-                .signWith(secretKey)
+                .expiration(new Date(System.currentTimeMillis() + accessTtl.toMillis())) // auth.token.access-ttl
+                .signWith(keySet.signingKey()) // HS256 / RS256 / ES256, picked from the key type
                 .compact();
     }
 
+    public Duration accessTtl() {
+        return accessTtl;
+    }
+
+    // verified claims (jti, exp, ...); throws JwtException like validateToken
+    public Claims parseClaims(String token) {
+        return parser.parseSignedClaims(token).getPayload();
+    }
+
     public void validateToken(String token) {
         //输入：JWT token 字符串
         //返回：void （但它会通过 抛异常 来表示 token 是否有效）
         //✔️ 如果验证成功 ➔ 什么也不做（不抛异常）
         //❌ 如果验证失败 ➔ 抛 JwtException
         try {
-            Jwts.parser().verifyWith((SecretKey) secretKey)
-                    .build()
-                    .parseSignedClaims(token);
+            parser.parseSignedClaims(token);
             //核心验证逻辑
             //它做了什么？
-            //Jwts.parser() ➔ 打包创建一个 JWT 解析器
-            //.verifyWith((SecretKey) secretKey) ➔
-                //告诉解析器：验证这个 token 的签名，用的 这个 secretKey
-                //也就是你的服务端私钥/密钥
-            //.build().parseSignedClaims(token) ➔
+            //parser 在构造函数里只建一次：Jwts.parser().keyLocator(...) ➔
+                //告诉解析器：按 token 头里的 kid 去 JwtKeySet 找验证签名用的 key
+                //HS256 时就是 jwt.secret；RS256/ES256 时是对应 kid 的公钥
+            //parser.parseSignedClaims(token) ➔
                 //开始真正去解析和验证这个 token
                 //它会自动检查：
                 //📝 token 格式是否正确
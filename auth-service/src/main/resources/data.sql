@@ -16,3 +16,21 @@ SELECT '223e4567-e89b-12d3-a456-426614174006', 'testuser@test.com',
     WHERE id = '223e4567-e89b-12d3-a456-426614174006'
        OR email = 'testuser@test.com'
 );
+
+-- refresh tokens (RefreshToken): only the SHA-256 of the token is stored
+CREATE TABLE IF NOT EXISTS refresh_tokens (
+    id UUID PRIMARY KEY,
+    user_id UUID NOT NULL,
+    family_id UUID NOT NULL,
+    token_hash VARCHAR(64) UNIQUE NOT NULL,
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL,
+    expires_at TIMESTAMP WITH TIME ZONE NOT NULL,
+    revoked_at TIMESTAMP WITH TIME ZONE
+    );
+CREATE INDEX IF NOT EXISTS idx_refresh_tokens_family ON refresh_tokens (family_id);
+
+-- access tokens revoked before they expire (RevokedToken), served to verifiers by GET /revocations
+CREATE TABLE IF NOT EXISTS revoked_tokens (
+    jti VARCHAR(64) PRIMARY KEY,
+    expires_at TIMESTAMP WITH TIME ZONE NOT NULL
+    );
@@ -0,0 +1,93 @@
+package com.pm.authservice.service;
+
+import com.pm.authservice.config.JwtKeyProperties;
+import com.pm.authservice.model.User;
+import com.pm.authservice.util.JwtKeySet;
+import com.pm.authservice.util.JwtUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AuthServiceTest {
+
+    private final UserService userService = mock(UserService.class);
+    private final RefreshTokenService refreshTokenService = mock(RefreshTokenService.class);
+    private final RevocationService revocationService = mock(RevocationService.class);
+    private final User user = new User();
+    private JwtKeySet keySet;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        byte[] secret = new byte[32];
+        new SecureRandom().nextBytes(secret);
+        keySet = new JwtKeySet(new JwtKeyProperties("HS256", Base64.getEncoder().encodeToString(secret), null, null));
+        user.setId(UUID.randomUUID());
+        user.setEmail("user@test.com");
+        user.setRole("ADMIN");
+        when(userService.findByEmail("user@test.com")).thenReturn(Optional.of(user));
+    }
+
+    @Test
+    void logoutWithAnExpiredAccessTokenStillRevokesTheRefreshFamily() {
+        String expired = new JwtUtil(keySet, Duration.ofMinutes(-1)).generateToken("user@test.com", "ADMIN");
+        when(refreshTokenService.revokeFamily("refresh", user.getId())).thenReturn(true);
+
+        assertThat(authService(Duration.ofMinutes(15)).logout(expired, "refresh")).isTrue();
+
+        verify(refreshTokenService).revokeFamily("refresh", user.getId());
+    }
+
+    @Test
+    void logoutRevokesAnUnexpiredAccessToken() {
+        JwtUtil jwtUtil = new JwtUtil(keySet, Duration.ofMinutes(15));
+        String token = jwtUtil.generateToken("user@test.com", "ADMIN");
+        when(refreshTokenService.revokeFamily("refresh", user.getId())).thenReturn(true);
+
+        assertThat(authService(Duration.ofMinutes(15)).logout(token, "refresh")).isTrue();
+
+        verify(revocationService).revoke(eq(jwtUtil.parseClaims(token).getId()), any(Instant.class));
+    }
+
+    @Test
+    void refreshTokenOfAnotherUserIsRefused() {
+        String token = new JwtUtil(keySet, Duration.ofMinutes(15)).generateToken("user@test.com", "ADMIN");
+        when(refreshTokenService.revokeFamily("someone-elses", user.getId())).thenReturn(false);
+
+        assertThat(authService(Duration.ofMinutes(15)).logout(token, "someone-elses")).isFalse();
+
+        verify(revocationService, never()).revoke(anyString(), any());
+    }
+
+    @Test
+    void forgedAccessTokenIsRefused() throws Exception {
+        byte[] otherSecret = new byte[32];
+        new SecureRandom().nextBytes(otherSecret);
+        JwtKeySet otherKeys = new JwtKeySet(new JwtKeyProperties("HS256",
+                Base64.getEncoder().encodeToString(otherSecret), null, null));
+        String forged = new JwtUtil(otherKeys, Duration.ofMinutes(-1)).generateToken("user@test.com", "ADMIN");
+
+        assertThat(authService(Duration.ofMinutes(15)).logout(forged, "refresh")).isFalse();
+
+        verify(refreshTokenService, never()).revokeFamily(anyString(), any());
+    }
+
+    private AuthService authService(Duration accessTtl) {
+        return new AuthService(userService, mock(PasswordVerifier.class), new JwtUtil(keySet, accessTtl),
+                refreshTokenService, revocationService);
+    }
+}
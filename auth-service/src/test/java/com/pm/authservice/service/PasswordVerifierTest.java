@@ -0,0 +1,48 @@
+package com.pm.authservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PasswordVerifierTest {
+
+    private final PasswordVerifier verifier = new PasswordVerifier(new BCryptPasswordEncoder(6),
+            1, 4, Duration.ofSeconds(10), new SimpleMeterRegistry());
+
+    @AfterEach
+    void tearDown() {
+        verifier.shutdown();
+    }
+
+    @Test
+    void lowerCostIsRehashedToTheConfiguredCost() {
+        String weak = new BCryptPasswordEncoder(4).encode("password123");
+
+        PasswordVerifier.Result result = verifier.verify("password123", weak);
+
+        assertThat(result.matches()).isTrue();
+        assertThat(result.rehashed()).startsWith("$2a$06$");
+        assertThat(new BCryptPasswordEncoder(6).matches("password123", result.rehashed())).isTrue();
+    }
+
+    @Test
+    void sameOrHigherCostIsKept() {
+        assertThat(verifier.verify("password123", new BCryptPasswordEncoder(6).encode("password123")).rehashed())
+                .isNull();
+        assertThat(verifier.verify("password123", new BCryptPasswordEncoder(8).encode("password123")).rehashed())
+                .isNull();
+    }
+
+    @Test
+    void wrongPasswordIsNeverRehashed() {
+        PasswordVerifier.Result result = verifier.verify("wrong", new BCryptPasswordEncoder(4).encode("password123"));
+
+        assertThat(result.matches()).isFalse();
+        assertThat(result.rehashed()).isNull();
+    }
+}
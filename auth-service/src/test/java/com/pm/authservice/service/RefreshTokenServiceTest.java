@@ -0,0 +1,75 @@
+package com.pm.authservice.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// data.sql is PostgreSQL-only; the schema comes from the entities here.
+// No test transaction: every call commits on its own, like separate /refresh requests.
+@DataJpaTest(properties = "spring.sql.init.mode=never")
+@Import(RefreshTokenService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class RefreshTokenServiceTest {
+
+    private static final UUID USER = UUID.randomUUID();
+
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+
+    @Test
+    void rotationIssuesANewTokenAndUsesUpTheOldOne() {
+        String first = refreshTokenService.issue(USER);
+
+        Optional<RefreshTokenService.Rotation> rotation = refreshTokenService.rotate(first);
+
+        assertThat(rotation).isPresent();
+        assertThat(rotation.get().userId()).isEqualTo(USER);
+        assertThat(rotation.get().refreshToken()).isNotEqualTo(first);
+        assertThat(refreshTokenService.rotate(rotation.get().refreshToken())).isPresent();
+    }
+
+    @Test
+    void reusingARotatedTokenRevokesTheWholeFamily() {
+        String first = refreshTokenService.issue(USER);
+        String second = refreshTokenService.rotate(first).orElseThrow().refreshToken();
+
+        // the old token comes back: someone else holds the chain
+        assertThat(refreshTokenService.rotate(first)).isEmpty();
+        // so the legitimate holder's current token is gone too
+        assertThat(refreshTokenService.rotate(second)).isEmpty();
+    }
+
+    @Test
+    void otherFamiliesSurviveAReuse() {
+        String stolen = refreshTokenService.issue(USER);
+        String otherDevice = refreshTokenService.issue(USER);
+        refreshTokenService.rotate(stolen);
+        refreshTokenService.rotate(stolen);
+
+        assertThat(refreshTokenService.rotate(otherDevice)).isPresent();
+    }
+
+    @Test
+    void unknownTokenIsRefused() {
+        assertThat(refreshTokenService.rotate("not-a-token")).isEmpty();
+    }
+
+    @Test
+    void logoutRevokesTheFamilyOnlyForItsOwner() {
+        String token = refreshTokenService.issue(USER);
+
+        assertThat(refreshTokenService.revokeFamily(token, UUID.randomUUID())).isFalse();
+        String rotated = refreshTokenService.rotate(token).orElseThrow().refreshToken();
+
+        assertThat(refreshTokenService.revokeFamily(rotated, USER)).isTrue();
+        assertThat(refreshTokenService.rotate(rotated)).isEmpty();
+    }
+}
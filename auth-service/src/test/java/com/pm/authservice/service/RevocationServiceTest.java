@@ -0,0 +1,69 @@
+package com.pm.authservice.service;
+
+import com.pm.authservice.repository.RevokedTokenRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class RevocationServiceTest {
+
+    private final RevocationService revocationService = new RevocationService(mock(RevokedTokenRepository.class),
+            0.01, new SimpleMeterRegistry());
+    private final TransactionTemplate transactionTemplate = new TransactionTemplate(new NoOpTransactionManager());
+
+    @Test
+    void revocationIsPublishedOnlyAfterCommit() {
+        transactionTemplate.executeWithoutResult(status -> {
+            revocationService.revoke("jti-1", Instant.now().plusSeconds(60));
+            assertThat(revocationService.isRevoked("jti-1")).isFalse();
+        });
+
+        assertThat(revocationService.isRevoked("jti-1")).isTrue();
+        assertThat(revocationService.revocationList().jtis()).containsExactly("jti-1");
+    }
+
+    @Test
+    void rolledBackRevocationIsNeverPublished() {
+        transactionTemplate.executeWithoutResult(status -> {
+            revocationService.revoke("jti-1", Instant.now().plusSeconds(60));
+            status.setRollbackOnly();
+        });
+
+        assertThat(revocationService.isRevoked("jti-1")).isFalse();
+    }
+
+    @Test
+    void alreadyExpiredTokensAreNotListed() {
+        revocationService.revoke("jti-1", Instant.now().minusSeconds(1));
+
+        assertThat(revocationService.isRevoked("jti-1")).isFalse();
+    }
+
+    // just enough of a transaction manager for TransactionTemplate to run synchronizations on commit
+    static class NoOpTransactionManager extends AbstractPlatformTransactionManager {
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.pm.authservice.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BloomFilterTest {
+
+    // Wire-format golden vector: create(100, 0.01) holding jti-0 .. jti-99.
+    // api-getaway's BloomFilterTest reads the same bytes with its copy of the filter, so a change to the
+    // hashing or bit layout in either copy fails one of the two tests. Change both together.
+    static final int GOLDEN_BITS = 959;
+    static final int GOLDEN_HASHES = 7;
+    static final String GOLDEN_BYTES = "pcn30Xc7Q6zjTyZ4GlZv6MG1nLLSxVzxPrqHC9e+rD0uFG84byn2+gVtwDHY8vDfhzGd+jDOJFk7fp6Y6htX84O9s3BipEU712JD6VlX5rixsaVoUeuXtUTeHZn4x4MxhVCBckhBAdep6RZ9lHfSqgFtrs3knTl3";
+
+    @Test
+    void wireFormatMatchesTheGoldenVector() {
+        BloomFilter filter = BloomFilter.create(100, 0.01);
+        for (int i = 0; i < 100; i++) {
+            filter.add("jti-" + i);
+        }
+
+        assertThat(filter.bits()).isEqualTo(GOLDEN_BITS);
+        assertThat(filter.hashes()).isEqualTo(GOLDEN_HASHES);
+        assertThat(Base64.getEncoder().encodeToString(filter.toBytes())).isEqualTo(GOLDEN_BYTES);
+    }
+
+    @Test
+    void roundTripsThroughBytesWithoutFalseNegatives() {
+        BloomFilter filter = BloomFilter.create(1000, 0.01);
+        for (int i = 0; i < 1000; i++) {
+            filter.add("jti-" + i);
+        }
+        BloomFilter copy = BloomFilter.fromBytes(filter.toBytes(), filter.bits(), filter.hashes());
+
+        int falsePositives = 0;
+        for (int i = 0; i < 1000; i++) {
+            assertThat(copy.mightContain("jti-" + i)).isTrue();
+            if (copy.mightContain("other-" + i)) {
+                falsePositives++;
+            }
+        }
+        // 1% target
+        assertThat(falsePositives).isLessThan(30);
+    }
+}
@@ -0,0 +1,45 @@
+package com.pm.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.TimeUnit;
+
+// PasswordEncoder.matches on login, per bcrypt cost (auth.password.bcrypt-strength, default 10).
+// Every extra round doubles the cost; this is the number to calibrate the strength with.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BCryptBenchmark {
+
+    @Param({"10", "11", "12"})
+    private int strength;
+
+    private PasswordEncoder passwordEncoder;
+    private String hash;
+
+    @Setup
+    public void setUp() {
+        passwordEncoder = new BCryptPasswordEncoder(strength);
+        hash = passwordEncoder.encode("password123");
+    }
+
+    @Benchmark
+    public boolean matches() {
+        return passwordEncoder.matches("password123", hash);
+    }
+}
@@ -0,0 +1,108 @@
+package com.pm.benchmarks;
+
+import billing.BillingRequest;
+import com.pm.billingservice.model.BillingAccount;
+import com.pm.billingservice.repository.BillingAccountRepository;
+import com.pm.billingservice.service.BillingAccountWriter;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Billing accounts stored per second through BillingAccountWriter, with 1, 16 and 256 concurrent callers
+// (each caller = one JMH thread blocked on its create(), like a gRPC call waiting for its response).
+// Score = accounts/sec across all callers. maxBatchSize=1 is the baseline without group commit
+// (one transaction per account); 256 is the service default.
+// Runs against an H2 file like the service's default store; for PostgreSQL:
+//   -p jdbcUrl=jdbc:postgresql://localhost:5432/billing -Dbench.db.user=... -Dbench.db.password=...
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BillingAccountWriterBenchmark {
+
+    @Param({"1", "256"})
+    private int maxBatchSize;
+
+    @Param({"jdbc:h2:file:./target/billing-benchmark/billing"})
+    private String jdbcUrl;
+
+    private HikariDataSource dataSource;
+    private BillingAccountWriter writer;
+    // every create is a new patient, so every call inserts
+    private final String run = UUID.randomUUID().toString();
+    private final AtomicLong sequence = new AtomicLong();
+
+    @Setup
+    public void setUp() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(jdbcUrl);
+        dataSource.setUsername(System.getProperty("bench.db.user", "sa"));
+        dataSource.setPassword(System.getProperty("bench.db.password", ""));
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(dataSource);
+        new JdbcTemplate(dataSource).update("DELETE FROM billing_account");
+
+        writer = new BillingAccountWriter(
+                new BillingAccountRepository(new NamedParameterJdbcTemplate(dataSource)),
+                new TransactionTemplate(new DataSourceTransactionManager(dataSource)),
+                new SimpleMeterRegistry(), maxBatchSize, 100_000, 4);
+        writer.start();
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        writer.stop();
+        dataSource.close();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public BillingAccount callers1() {
+        return create();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public BillingAccount callers16() {
+        return create();
+    }
+
+    @Benchmark
+    @Threads(256)
+    public BillingAccount callers256() {
+        return create();
+    }
+
+    private BillingAccount create() {
+        String patientId = run + "-" + sequence.incrementAndGet();
+        return writer.create(BillingRequest.newBuilder()
+                        .setPatientId(patientId)
+                        .setName("Benchmark Patient")
+                        .setEmail(patientId + "@test.com")
+                        .build())
+                .join();
+    }
+}
@@ -0,0 +1,35 @@
+package com.pm.benchmarks;
+
+import com.pm.patientservice.dto.PatientRequestDTO;
+import com.pm.patientservice.model.Patient;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+// 固定的测试数据，和 data.sql 里的病人长得差不多
+final class Fixtures {
+
+    private Fixtures() {
+    }
+
+    static Patient patient(int i) {
+        Patient patient = new Patient();
+        patient.setId(new UUID(0x123e4567e89b42d3L, 0xa456426614174000L + i));
+        patient.setName("Patient " + i);
+        patient.setEmail("patient" + i + "@example.com");
+        patient.setAddress(i + " Main Street, Springfield");
+        patient.setDateOfBirth(LocalDate.of(1985, 6, 15).plusDays(i));
+        patient.setRegisteredDate(LocalDate.of(2024, 1, 10));
+        return patient;
+    }
+
+    static PatientRequestDTO request(int i) {
+        PatientRequestDTO request = new PatientRequestDTO();
+        request.setName("Patient " + i);
+        request.setEmail("patient" + i + "@example.com");
+        request.setAddress(i + " Main Street, Springfield");
+        request.setDateOfBirth("1985-06-15");
+        request.setRegisteredDate("2024-01-10");
+        return request;
+    }
+}
@@ -0,0 +1,58 @@
+package com.pm.benchmarks;
+
+import com.pm.authservice.config.JwtKeyProperties;
+import com.pm.authservice.util.JwtKeySet;
+import com.pm.authservice.util.JwtUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// JwtUtil.generateToken (login) and validateToken (/validate) for each supported jwt.algorithm.
+// RS256/ES256 run on the ephemeral key pair JwtKeySet generates when no jwt.keys are configured.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtBenchmark {
+
+    @Param({"HS256", "RS256", "ES256"})
+    private String algorithm;
+
+    private JwtUtil jwtUtil;
+    private String token;
+
+    @Setup
+    public void setUp() throws GeneralSecurityException {
+        String secret = Base64.getEncoder().encodeToString(
+                "benchmark-secret-key-that-is-at-least-256-bits".getBytes());
+        jwtUtil = new JwtUtil(new JwtKeySet(new JwtKeyProperties(algorithm, secret, null, List.of())),
+                Duration.ofMinutes(15));
+        token = jwtUtil.generateToken("testuser@test.com", "ADMIN");
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtUtil.generateToken("testuser@test.com", "ADMIN");
+    }
+
+    @Benchmark
+    public void validateToken() {
+        jwtUtil.validateToken(token);
+    }
+}
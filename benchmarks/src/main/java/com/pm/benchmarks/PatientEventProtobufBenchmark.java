@@ -0,0 +1,67 @@
+package com.pm.benchmarks;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.pm.patientservice.mapper.PatientEventMapper;
+import com.pm.patientservice.model.Patient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import patient.events.PatientEvent;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// PatientEvent on both ends of Kafka: the outbox encodes it in patient-service,
+// analytics-service decodes it once per record.
+//   buildAndEncode = what a request thread pays per change (PatientEventMapper + toByteArray)
+//   encode / decode = the wire format alone, on an already built event
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PatientEventProtobufBenchmark {
+
+    private Patient patient;
+    private PatientEvent created;
+    private byte[] createdBytes;
+    private byte[] updatedBytes;
+
+    @Setup
+    public void setUp() {
+        patient = Fixtures.patient(0);
+        created = PatientEventMapper.toCreatedEvent(patient);
+        createdBytes = created.toByteArray();
+        updatedBytes = PatientEventMapper.toUpdatedEvent(patient,
+                Set.of(PatientEventMapper.NAME, PatientEventMapper.ADDRESS)).toByteArray();
+    }
+
+    @Benchmark
+    public byte[] buildAndEncode() {
+        return PatientEventMapper.toCreatedEvent(patient).toByteArray();
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return created.toByteArray();
+    }
+
+    @Benchmark
+    public PatientEvent decodeCreated() throws InvalidProtocolBufferException {
+        return PatientEvent.parseFrom(createdBytes);
+    }
+
+    // carries a FieldMask, so it also exercises the nested message path
+    @Benchmark
+    public PatientEvent decodeUpdated() throws InvalidProtocolBufferException {
+        return PatientEvent.parseFrom(updatedBytes);
+    }
+}
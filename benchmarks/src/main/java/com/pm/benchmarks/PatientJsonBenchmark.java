@@ -0,0 +1,56 @@
+package com.pm.benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.pm.patientservice.dto.PatientResponseDTO;
+import com.pm.patientservice.mapper.PatientMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Jackson serialization of the GET /patients body. Sizes cover a single patient,
+// the default page (50), the max page (500) and a large export-sized list.
+// The writer is resolved once, the way Spring's converter caches it.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PatientJsonBenchmark {
+
+    @Param({"1", "50", "500", "5000"})
+    private int size;
+
+    private ObjectWriter writer;
+    private List<PatientResponseDTO> patients;
+
+    @Setup
+    public void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        writer = objectMapper.writerFor(
+                objectMapper.getTypeFactory().constructCollectionType(List.class, PatientResponseDTO.class));
+        patients = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            patients.add(PatientMapper.toDTO(Fixtures.patient(i)));
+        }
+    }
+
+    @Benchmark
+    public byte[] serialize() throws JsonProcessingException {
+        return writer.writeValueAsBytes(patients);
+    }
+}
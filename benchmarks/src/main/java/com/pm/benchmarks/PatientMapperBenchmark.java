@@ -0,0 +1,62 @@
+package com.pm.benchmarks;
+
+import com.pm.patientservice.dto.PatientRequestDTO;
+import com.pm.patientservice.dto.PatientResponseDTO;
+import com.pm.patientservice.mapper.PatientMapper;
+import com.pm.patientservice.model.BillingStatus;
+import com.pm.patientservice.model.Patient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// PatientMapper.toDTO / toModel, called once per patient on every read and write.
+// toModel includes two LocalDate.parse calls and a UUID.randomUUID; parseDate isolates the parse.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PatientMapperBenchmark {
+
+    private Patient patient;
+    private PatientRequestDTO request;
+
+    @Setup
+    public void setUp() {
+        patient = Fixtures.patient(0);
+        patient.setBillingStatus(BillingStatus.ACTIVE);
+        request = Fixtures.request(0);
+    }
+
+    @Benchmark
+    public PatientResponseDTO toDTO() {
+        return PatientMapper.toDTO(patient);
+    }
+
+    @Benchmark
+    public Patient toModel() {
+        return PatientMapper.toModel(request);
+    }
+
+    @Benchmark
+    public LocalDate parseDate() {
+        return LocalDate.parse(request.getDateOfBirth());
+    }
+
+    @Benchmark
+    public UUID randomUUID() {
+        return UUID.randomUUID();
+    }
+}
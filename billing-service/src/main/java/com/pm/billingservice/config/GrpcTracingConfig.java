@@ -0,0 +1,17 @@
+package com.pm.billingservice.config;
+
+import io.micrometer.core.instrument.binder.grpc.ObservationGrpcServerInterceptor;
+import io.micrometer.observation.ObservationRegistry;
+import net.devh.boot.grpc.server.interceptor.GrpcGlobalServerInterceptor;
+import org.springframework.context.annotation.Configuration;
+
+// Continues the caller's trace on every BillingGrpcService call: reads the traceparent that
+// patient-service's ObservationGrpcClientInterceptor put in the call metadata and opens a server span under it.
+@Configuration
+public class GrpcTracingConfig {
+
+    @GrpcGlobalServerInterceptor
+    ObservationGrpcServerInterceptor observationGrpcServerInterceptor(ObservationRegistry observationRegistry) {
+        return new ObservationGrpcServerInterceptor(observationRegistry);
+    }
+}
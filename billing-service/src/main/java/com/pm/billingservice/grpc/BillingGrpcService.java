@@ -1,26 +1,156 @@
 package com.pm.billingservice.grpc;
 
+import billing.BillingBatchResult;
+import billing.BillingRequest;
 import billing.BillingResponse;
 import billing.BillingServiceGrpc;
+import com.pm.billingservice.model.BillingAccount;
+import com.pm.billingservice.service.BillingAccountWriter;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.stub.ServerCallStreamObserver;
 import io.grpc.stub.StreamObserver;
 import net.devh.boot.grpc.server.service.GrpcService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+
+import java.util.concurrent.CompletionException;
 
 // 3:53:54
+// Accounts are stored by BillingAccountWriter (group commit, idempotent by patientId).
+// Neither RPC blocks a gRPC thread on the database: responses are sent from the writer's completion
+// threads, never from the writer thread itself.
 @GrpcService
 public class BillingGrpcService extends BillingServiceGrpc.BillingServiceImplBase {
     private static final Logger log = LoggerFactory.getLogger(BillingGrpcService.class);
 
+    private final BillingAccountWriter billingAccountWriter;
+    // requests of one batch stream that may be waiting for the writer at the same time
+    private final int streamWindow;
+
+    public BillingGrpcService(BillingAccountWriter billingAccountWriter,
+                              @Value("${billing.grpc.stream-window:64}") int streamWindow) {
+        this.billingAccountWriter = billingAccountWriter;
+        this.streamWindow = streamWindow;
+    }
+
     @Override
     public void createBillingAccount(billing.BillingRequest billingRequest, StreamObserver<billing.BillingResponse> responseObserver) {
-        log.info("Create billing account request received {}", billingRequest.toString());
-
-        // business logic - like save too database perform calculate..
+        log.debug("Create billing account request received for patient {}", billingRequest.getPatientId());
 
-        BillingResponse response = BillingResponse.newBuilder().setAccountId("12345").setStatus("active").build();
-        responseObserver.onNext(response);
-        responseObserver.onCompleted();
+        billingAccountWriter.create(billingRequest).whenComplete((account, ex) -> {
+            if (ex != null) {
+                responseObserver.onError(toStatus(ex));
+                return;
+            }
+            responseObserver.onNext(toResponse(account));
+            responseObserver.onCompleted();
+        });
         // we can return as many as requests we want
     }
+
+    // Bidi stream with manual flow control: up to stream-window requests are with the writer at once
+    // (so one stream's requests can share a group commit), and we only ask the client for more once
+    // a result could be written, so a slow reader cannot make us buffer without bound.
+    // Results are sent in completion order; the client matches them by patientId.
+    @Override
+    public StreamObserver<BillingRequest> batchCreateBillingAccounts(StreamObserver<BillingBatchResult> responseObserver) {
+        ServerCallStreamObserver<BillingBatchResult> serverObserver =
+                (ServerCallStreamObserver<BillingBatchResult>) responseObserver;
+        serverObserver.disableAutoRequest();
+
+        // the observer is not thread-safe and completions arrive on several of the writer's completion threads:
+        // everything below holds lock
+        Object lock = new Object();
+        int[] owed = {streamWindow};       // requests we may ask for once the transport is ready
+        int[] outstanding = {0};           // received, result not sent yet
+        boolean[] halfClosed = {false};
+        boolean[] cancelled = {false};
+
+        serverObserver.setOnCancelHandler(() -> {
+            synchronized (lock) {
+                cancelled[0] = true;
+            }
+        });
+        serverObserver.setOnReadyHandler(() -> {
+            synchronized (lock) {
+                if (serverObserver.isReady() && owed[0] > 0 && !cancelled[0]) {
+                    serverObserver.request(owed[0]);
+                    owed[0] = 0;
+                }
+            }
+        });
+
+        return new StreamObserver<>() {
+            @Override
+            public void onNext(BillingRequest request) {
+                synchronized (lock) {
+                    outstanding[0]++;
+                }
+                billingAccountWriter.create(request).whenComplete((account, ex) -> {
+                    BillingBatchResult.Builder result = BillingBatchResult.newBuilder()
+                            .setPatientId(request.getPatientId());
+                    if (ex == null) {
+                        result.setSuccess(true).setResponse(toResponse(account));
+                    } else {
+                        Status status = toStatus(ex).getStatus();
+                        log.warn("Batch billing account failed for patient {}: {}", request.getPatientId(), status);
+                        result.setSuccess(false)
+                                .setError(String.valueOf(status.getDescription()))
+                                .setStatusCode(status.getCode().value());
+                    }
+                    synchronized (lock) {
+                        outstanding[0]--;
+                        if (cancelled[0]) {
+                            return;
+                        }
+                        serverObserver.onNext(result.build());
+                        if (serverObserver.isReady()) {
+                            serverObserver.request(1);
+                        } else {
+                            // the onReady handler asks for it once the client has drained
+                            owed[0]++;
+                        }
+                        if (halfClosed[0] && outstanding[0] == 0) {
+                            serverObserver.onCompleted();
+                        }
+                    }
+                });
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                log.warn("Batch billing stream aborted by client: {}", t.getMessage());
+                synchronized (lock) {
+                    cancelled[0] = true;
+                }
+            }
+
+            @Override
+            public void onCompleted() {
+                synchronized (lock) {
+                    halfClosed[0] = true;
+                    if (outstanding[0] == 0 && !cancelled[0]) {
+                        serverObserver.onCompleted();
+                    }
+                }
+            }
+        };
+    }
+
+    private static BillingResponse toResponse(BillingAccount account) {
+        return BillingResponse.newBuilder()
+                .setAccountId(account.accountId().toString())
+                .setStatus(account.status())
+                .build();
+    }
+
+    private static StatusRuntimeException toStatus(Throwable ex) {
+        Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+        if (cause instanceof StatusRuntimeException statusException) {
+            return statusException;
+        }
+        return Status.INTERNAL.withDescription(cause.getMessage()).withCause(cause).asRuntimeException();
+    }
 }
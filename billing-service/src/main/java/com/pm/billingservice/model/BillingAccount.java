@@ -0,0 +1,11 @@
+package com.pm.billingservice.model;
+
+import java.time.Instant;
+import java.util.UUID;
+
+// one row of billing_account
+public record BillingAccount(UUID accountId, String patientId, String name, String email,
+                             String status, Instant createdAt) {
+
+    public static final String STATUS_ACTIVE = "active";
+}
@@ -0,0 +1,67 @@
+package com.pm.billingservice.repository;
+
+import com.pm.billingservice.model.BillingAccount;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+// JDBC access to billing_account in schema.sql. Callers provide the transaction.
+@Repository
+public class BillingAccountRepository {
+
+    private static final RowMapper<BillingAccount> ROW_MAPPER = (rs, rowNum) -> new BillingAccount(
+            rs.getObject("account_id", UUID.class),
+            rs.getString("patient_id"),
+            rs.getString("name"),
+            rs.getString("email"),
+            rs.getString("status"),
+            rs.getTimestamp("created_at").toInstant());
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public BillingAccountRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // patient_id -> account, for the ids that already have one; one query for the whole batch
+    public Map<String, BillingAccount> findByPatientIds(Collection<String> patientIds) {
+        Map<String, BillingAccount> accounts = new HashMap<>();
+        if (patientIds.isEmpty()) {
+            return accounts;
+        }
+        jdbcTemplate.query("""
+                        SELECT account_id, patient_id, name, email, status, created_at
+                        FROM billing_account WHERE patient_id IN (:patientIds)
+                        """,
+                Map.of("patientIds", patientIds), ROW_MAPPER)
+                .forEach(account -> accounts.put(account.patientId(), account));
+        return accounts;
+    }
+
+    // one JDBC batch; a patient_id that is already there fails the batch with DuplicateKeyException
+    public void insertAll(List<BillingAccount> accounts) {
+        MapSqlParameterSource[] rows = new MapSqlParameterSource[accounts.size()];
+        for (int i = 0; i < rows.length; i++) {
+            BillingAccount account = accounts.get(i);
+            rows[i] = new MapSqlParameterSource()
+                    .addValue("accountId", account.accountId())
+                    .addValue("patientId", account.patientId())
+                    .addValue("name", account.name())
+                    .addValue("email", account.email())
+                    .addValue("status", account.status())
+                    .addValue("createdAt", Timestamp.from(account.createdAt()));
+        }
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO billing_account (account_id, patient_id, name, email, status, created_at)
+                VALUES (:accountId, :patientId, :name, :email, :status, :createdAt)
+                """, rows);
+    }
+}
@@ -0,0 +1,300 @@
+package com.pm.billingservice.service;
+
+import billing.BillingRequest;
+import com.pm.billingservice.model.BillingAccount;
+import com.pm.billingservice.repository.BillingAccountRepository;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Group commit for billing accounts: gRPC calls only enqueue, one writer thread turns whatever is queued
+// into a single transaction (one SELECT for the existing patient ids, one batched INSERT for the rest,
+// one commit). There is no timer: while a transaction is committing the next callers queue up, so the
+// batch grows with the load and a lone request is written immediately. The callers are completed on a
+// small completion pool, so their callbacks (gRPC responses) never hold up the next commit.
+//
+// Idempotent by patientId: a patient that already has an account (a retry from patient-service, or the
+// same patient twice in one batch) gets the existing account back. If another instance inserts the same
+// patient between our SELECT and INSERT, the unique constraint fails the transaction and it is retried
+// once, which then finds that row.
+//
+// If a batch still fails, every patient in it is written again in a transaction of its own, so one bad
+// row only fails its own callers and not the unrelated ones that happened to share its commit.
+@Service
+public class BillingAccountWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(BillingAccountWriter.class);
+
+    // column sizes in schema.sql
+    private static final int MAX_PATIENT_ID_LENGTH = 64;
+    private static final int MAX_TEXT_LENGTH = 255;
+
+    private record Pending(BillingRequest request, CompletableFuture<BillingAccount> result) {
+    }
+
+    private final BillingAccountRepository billingAccountRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxBatchSize;
+    private final int maxQueued;
+    private final BlockingQueue<Pending> queue;
+    private final Thread writer;
+    private final ExecutorService completionExecutor;
+    private volatile boolean running = true;
+
+    private final DistributionSummary batchSize;
+    private final Timer writeTimer;
+
+    public BillingAccountWriter(BillingAccountRepository billingAccountRepository,
+                                TransactionTemplate transactionTemplate,
+                                MeterRegistry meterRegistry,
+                                @Value("${billing.account.writer.max-batch-size:256}") int maxBatchSize,
+                                @Value("${billing.account.writer.max-queued:10000}") int maxQueued,
+                                @Value("${billing.account.writer.completion-threads:4}") int completionThreads) {
+        this.billingAccountRepository = billingAccountRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.maxBatchSize = maxBatchSize;
+        this.maxQueued = maxQueued;
+        this.queue = new LinkedBlockingQueue<>(maxQueued);
+        this.writer = new Thread(this::run, "billing-account-writer");
+        this.writer.setDaemon(true);
+        AtomicInteger completionThreadCount = new AtomicInteger();
+        this.completionExecutor = Executors.newFixedThreadPool(completionThreads, runnable -> {
+            Thread thread = new Thread(runnable, "billing-account-completion-" + completionThreadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.batchSize = DistributionSummary.builder("billing.account.batch.size")
+                .description("Accounts requested per group-commit transaction")
+                .register(meterRegistry);
+        this.writeTimer = Timer.builder("billing.account.write")
+                .description("One group-commit transaction, SELECT to commit")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        meterRegistry.gauge("billing.account.queue", queue, BlockingQueue::size);
+    }
+
+    @PostConstruct
+    public void start() {
+        writer.start();
+    }
+
+    // completes with the patient's account (new or existing) once the batch holding it has committed
+    public CompletableFuture<BillingAccount> create(BillingRequest request) {
+        String invalid = validate(request);
+        if (invalid != null) {
+            return CompletableFuture.failedFuture(Status.INVALID_ARGUMENT.withDescription(invalid).asRuntimeException());
+        }
+        if (!running) {
+            return CompletableFuture.failedFuture(shuttingDown());
+        }
+        Pending pending = new Pending(request, new CompletableFuture<>());
+        if (!queue.offer(pending)) {
+            // patient-service retries with backoff (BillingAccountService)
+            return CompletableFuture.failedFuture(Status.RESOURCE_EXHAUSTED
+                    .withDescription("More than " + maxQueued + " billing accounts waiting to be written")
+                    .asRuntimeException());
+        }
+        // stop() ran between the check and the offer: if nobody has picked the request up, it never will
+        if (!running && queue.remove(pending)) {
+            return CompletableFuture.failedFuture(shuttingDown());
+        }
+        return pending.result();
+    }
+
+    // a value the columns can't hold would fail the whole transaction, so it is rejected up front
+    private static String validate(BillingRequest request) {
+        if (request.getPatientId().isBlank()) {
+            return "patientId is required";
+        }
+        if (length(request.getPatientId()) > MAX_PATIENT_ID_LENGTH) {
+            return "patientId is longer than " + MAX_PATIENT_ID_LENGTH + " characters";
+        }
+        if (length(request.getName()) > MAX_TEXT_LENGTH) {
+            return "name is longer than " + MAX_TEXT_LENGTH + " characters";
+        }
+        if (length(request.getEmail()) > MAX_TEXT_LENGTH) {
+            return "email is longer than " + MAX_TEXT_LENGTH + " characters";
+        }
+        return null;
+    }
+
+    // VARCHAR(n) counts characters, not UTF-16 units
+    private static int length(String value) {
+        return value.codePointCount(0, value.length());
+    }
+
+    public boolean isWriterAlive() {
+        return writer.isAlive();
+    }
+
+    public int queued() {
+        return queue.size();
+    }
+
+    private void run() {
+        List<Pending> batch = new ArrayList<>(maxBatchSize);
+        while (true) {
+            Pending first;
+            try {
+                // with a timeout, so the loop notices stop() once the queue is empty
+                first = queue.poll(100, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (first == null) {
+                if (!running) {
+                    return;
+                }
+                continue;
+            }
+            batch.add(first);
+            queue.drainTo(batch, maxBatchSize - 1);
+            try {
+                write(batch);
+            } catch (Throwable t) {
+                // whatever it was, it must not take the writer thread down: every later request would hang
+                fail(batch, t);
+            }
+            batch.clear();
+        }
+    }
+
+    private void write(List<Pending> batch) {
+        // first request per patient wins; later duplicates in the batch share its result
+        Map<String, List<Pending>> byPatient = new LinkedHashMap<>();
+        for (Pending pending : batch) {
+            byPatient.computeIfAbsent(pending.request().getPatientId(), id -> new ArrayList<>()).add(pending);
+        }
+        batchSize.record(batch.size());
+
+        try {
+            Map<String, BillingAccount> accounts = writeWithRetry(requests(byPatient));
+            for (Pending pending : batch) {
+                complete(pending, accounts.get(pending.request().getPatientId()));
+            }
+            return;
+        } catch (RuntimeException e) {
+            if (byPatient.size() == 1) {
+                fail(batch, e);
+                return;
+            }
+            log.warn("Batch of {} billing accounts failed ({}), writing them one by one", byPatient.size(), e.getMessage());
+        }
+
+        byPatient.forEach((patientId, pendings) -> {
+            try {
+                BillingAccount account = writeWithRetry(requests(Map.of(patientId, pendings))).get(patientId);
+                pendings.forEach(pending -> complete(pending, account));
+            } catch (RuntimeException e) {
+                fail(pendings, e);
+            }
+        });
+    }
+
+    private static Map<String, BillingRequest> requests(Map<String, List<Pending>> byPatient) {
+        Map<String, BillingRequest> requests = new LinkedHashMap<>();
+        byPatient.forEach((patientId, pendings) -> requests.put(patientId, pendings.get(0).request()));
+        return requests;
+    }
+
+    private Map<String, BillingAccount> writeWithRetry(Map<String, BillingRequest> requests) {
+        try {
+            return writeTimer.record(() -> writeOnce(requests));
+        } catch (DuplicateKeyException e) {
+            log.debug("Billing account inserted concurrently, retrying {} requests", requests.size());
+            return writeTimer.record(() -> writeOnce(requests));
+        }
+    }
+
+    // one transaction: existing accounts are returned as they are, the rest are inserted in one JDBC batch
+    private Map<String, BillingAccount> writeOnce(Map<String, BillingRequest> requests) {
+        return transactionTemplate.execute(tx -> {
+            Map<String, BillingAccount> accounts = billingAccountRepository.findByPatientIds(requests.keySet());
+            List<BillingAccount> created = new ArrayList<>(requests.size() - accounts.size());
+            Instant now = Instant.now();
+            requests.forEach((patientId, request) -> {
+                if (!accounts.containsKey(patientId)) {
+                    BillingAccount account = new BillingAccount(UUID.randomUUID(), patientId,
+                            request.getName(), request.getEmail(), BillingAccount.STATUS_ACTIVE, now);
+                    created.add(account);
+                    accounts.put(patientId, account);
+                }
+            });
+            if (!created.isEmpty()) {
+                billingAccountRepository.insertAll(created);
+            }
+            return accounts;
+        });
+    }
+
+    private void fail(List<Pending> pendings, Throwable e) {
+        log.error("Could not write {} billing accounts: {}", pendings.size(), e.toString());
+        RuntimeException error = Status.UNAVAILABLE
+                .withDescription("Billing account could not be stored").withCause(e).asRuntimeException();
+        pendings.forEach(pending -> completeExceptionally(pending, error));
+    }
+
+    private void complete(Pending pending, BillingAccount account) {
+        try {
+            completionExecutor.execute(() -> pending.result().complete(account));
+        } catch (RejectedExecutionException e) {
+            // the pool is already shut down (stop() gave up waiting for this batch)
+            pending.result().complete(account);
+        }
+    }
+
+    private void completeExceptionally(Pending pending, Throwable error) {
+        try {
+            completionExecutor.execute(() -> pending.result().completeExceptionally(error));
+        } catch (RejectedExecutionException e) {
+            pending.result().completeExceptionally(error);
+        }
+    }
+
+    private static StatusRuntimeException shuttingDown() {
+        return Status.UNAVAILABLE.withDescription("billing-service is shutting down").asRuntimeException();
+    }
+
+    // stops taking new requests; the writer finishes what is already queued, whatever is still queued
+    // after that is failed so no caller waits forever
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        writer.join(5000);
+        List<Pending> abandoned = new ArrayList<>();
+        queue.drainTo(abandoned);
+        if (!abandoned.isEmpty()) {
+            log.warn("Failing {} billing accounts still queued at shutdown", abandoned.size());
+            StatusRuntimeException error = shuttingDown();
+            abandoned.forEach(pending -> pending.result().completeExceptionally(error));
+        }
+        completionExecutor.shutdown();
+        completionExecutor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,23 @@
+package com.pm.billingservice.service;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+// /actuator/health component "billingAccountWriter": DOWN once the writer thread is gone, because from
+// then on every CreateBillingAccount only queues up and never completes
+@Component
+public class BillingAccountWriterHealthIndicator implements HealthIndicator {
+
+    private final BillingAccountWriter billingAccountWriter;
+
+    public BillingAccountWriterHealthIndicator(BillingAccountWriter billingAccountWriter) {
+        this.billingAccountWriter = billingAccountWriter;
+    }
+
+    @Override
+    public Health health() {
+        Health.Builder health = billingAccountWriter.isWriterAlive() ? Health.up() : Health.down();
+        return health.withDetail("queued", billingAccountWriter.queued()).build();
+    }
+}
@@ -0,0 +1,13 @@
+-- Billing accounts (see BillingAccountRepository). Run on every start, so everything is IF NOT EXISTS.
+-- Works on both the embedded H2 file and PostgreSQL.
+
+-- one account per patient: patient_id is the idempotency key, a retried CreateBillingAccount
+-- returns the existing row instead of inserting a second one
+CREATE TABLE IF NOT EXISTS billing_account (
+    account_id UUID                     PRIMARY KEY,
+    patient_id VARCHAR(64)              NOT NULL UNIQUE,
+    name       VARCHAR(255),
+    email      VARCHAR(255),
+    status     VARCHAR(16)              NOT NULL,
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL
+);
@@ -0,0 +1,219 @@
+package com.pm.billingservice.service;
+
+import billing.BillingRequest;
+import com.pm.billingservice.model.BillingAccount;
+import com.pm.billingservice.repository.BillingAccountRepository;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doCallRealMethod;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.spy;
+
+// against an in-memory H2 with the real schema.sql; requests are queued before start() so they share a batch
+class BillingAccountWriterTest {
+
+    private EmbeddedDatabase database;
+    private NamedParameterJdbcTemplate jdbcTemplate;
+    private BillingAccountRepository repository;
+    private BillingAccountWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .addScript("schema.sql")
+                .build();
+        jdbcTemplate = new NamedParameterJdbcTemplate(database);
+        repository = spy(new BillingAccountRepository(jdbcTemplate));
+        writer = writer(10);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        writer.stop();
+        database.shutdown();
+    }
+
+    @Test
+    void samePatientTwiceInOneBatchGetsOneAccount() throws Exception {
+        CompletableFuture<BillingAccount> first = writer.create(request("p-1"));
+        CompletableFuture<BillingAccount> second = writer.create(request("p-1"));
+        writer.start();
+
+        assertThat(await(second).accountId()).isEqualTo(await(first).accountId());
+        assertThat(rows()).isEqualTo(1);
+    }
+
+    @Test
+    void retryReturnsTheExistingAccount() throws Exception {
+        writer.start();
+        BillingAccount created = await(writer.create(request("p-1")));
+
+        assertThat(await(writer.create(request("p-1"))).accountId()).isEqualTo(created.accountId());
+        assertThat(rows()).isEqualTo(1);
+    }
+
+    @Test
+    void accountInsertedConcurrentlyIsFoundOnRetry() throws Exception {
+        UUID otherInstance = UUID.randomUUID();
+        AtomicBoolean raced = new AtomicBoolean();
+        doAnswer(invocation -> {
+            Object found = invocation.callRealMethod();
+            if (raced.compareAndSet(false, true)) {
+                // another instance commits the same patient between our SELECT and INSERT
+                CompletableFuture.runAsync(() -> insert(otherInstance, "p-1")).join();
+            }
+            return found;
+        }).when(repository).findByPatientIds(anyCollection());
+        writer.start();
+
+        assertThat(await(writer.create(request("p-1"))).accountId()).isEqualTo(otherInstance);
+        assertThat(rows()).isEqualTo(1);
+    }
+
+    @Test
+    void badRowOnlyFailsItsOwnCaller() throws Exception {
+        doAnswer(invocation -> {
+            List<BillingAccount> accounts = invocation.getArgument(0);
+            if (accounts.stream().anyMatch(account -> account.patientId().equals("poison"))) {
+                throw new DataIntegrityViolationException("value too long");
+            }
+            return invocation.callRealMethod();
+        }).when(repository).insertAll(anyList());
+        CompletableFuture<BillingAccount> before = writer.create(request("p-1"));
+        CompletableFuture<BillingAccount> poison = writer.create(request("poison"));
+        CompletableFuture<BillingAccount> after = writer.create(request("p-2"));
+        writer.start();
+
+        assertThat(await(before).patientId()).isEqualTo("p-1");
+        assertThat(await(after).patientId()).isEqualTo("p-2");
+        assertThat(statusOf(poison)).isEqualTo(Status.Code.UNAVAILABLE);
+        assertThat(rows()).isEqualTo(2);
+    }
+
+    @Test
+    void errorFailsTheBatchButNotTheWriter() throws Exception {
+        doThrow(new StackOverflowError()).doCallRealMethod().when(repository).findByPatientIds(anyCollection());
+        writer.start();
+
+        assertThat(statusOf(writer.create(request("p-1")))).isEqualTo(Status.Code.UNAVAILABLE);
+        assertThat(await(writer.create(request("p-1"))).patientId()).isEqualTo("p-1");
+        assertThat(writer.isWriterAlive()).isTrue();
+    }
+
+    @Test
+    void callersAreNotCompletedOnTheWriterThread() throws Exception {
+        AtomicReference<String> thread = new AtomicReference<>();
+        CompletableFuture<BillingAccount> result = writer.create(request("p-1"))
+                .whenComplete((account, ex) -> thread.set(Thread.currentThread().getName()));
+        writer.start();
+
+        await(result);
+        assertThat(thread.get()).startsWith("billing-account-completion-");
+    }
+
+    @Test
+    void valuesTheColumnsCannotHoldAreRejectedUpFront() {
+        BillingRequest longName = request("p-1").toBuilder().setName("n".repeat(256)).build();
+        BillingRequest longEmail = request("p-1").toBuilder().setEmail("e".repeat(256)).build();
+
+        assertThat(statusOf(writer.create(request(" ")))).isEqualTo(Status.Code.INVALID_ARGUMENT);
+        assertThat(statusOf(writer.create(request("p".repeat(65))))).isEqualTo(Status.Code.INVALID_ARGUMENT);
+        assertThat(statusOf(writer.create(longName))).isEqualTo(Status.Code.INVALID_ARGUMENT);
+        assertThat(statusOf(writer.create(longEmail))).isEqualTo(Status.Code.INVALID_ARGUMENT);
+        assertThat(writer.queued()).isZero();
+    }
+
+    @Test
+    void fullQueueFailsFast() throws InterruptedException {
+        writer.stop();
+        writer = writer(1);
+
+        CompletableFuture<BillingAccount> queued = writer.create(request("p-1"));
+
+        assertThat(statusOf(writer.create(request("p-2")))).isEqualTo(Status.Code.RESOURCE_EXHAUSTED);
+        assertThat(queued).isNotDone();
+    }
+
+    @Test
+    void stopFailsWhatIsStillQueuedAndRejectsNewRequests() throws InterruptedException {
+        // the writer thread never started, so nothing drains the queue before stop()
+        CompletableFuture<BillingAccount> queued = writer.create(request("p-1"));
+        writer.stop();
+
+        assertThat(statusOf(queued)).isEqualTo(Status.Code.UNAVAILABLE);
+        assertThat(statusOf(writer.create(request("p-2")))).isEqualTo(Status.Code.UNAVAILABLE);
+    }
+
+    private BillingAccountWriter writer(int maxQueued) {
+        return new BillingAccountWriter(repository,
+                new TransactionTemplate(new DataSourceTransactionManager(database)),
+                new SimpleMeterRegistry(), 256, maxQueued, 2);
+    }
+
+    private static BillingRequest request(String patientId) {
+        return BillingRequest.newBuilder()
+                .setPatientId(patientId)
+                .setName("Billing Test")
+                .setEmail(patientId + "@test.com")
+                .build();
+    }
+
+    private static BillingAccount await(CompletableFuture<BillingAccount> future) throws Exception {
+        return future.get(5, TimeUnit.SECONDS);
+    }
+
+    private static Status.Code statusOf(CompletableFuture<BillingAccount> future) {
+        try {
+            future.get(5, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof StatusRuntimeException statusException) {
+                return statusException.getStatus().getCode();
+            }
+            throw new AssertionError("not a gRPC status", e.getCause());
+        } catch (Exception e) {
+            throw new AssertionError(e);
+        }
+        throw new AssertionError("completed successfully");
+    }
+
+    private int rows() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM billing_account", Map.of(), Integer.class);
+    }
+
+    private void insert(UUID accountId, String patientId) {
+        jdbcTemplate.update("""
+                INSERT INTO billing_account (account_id, patient_id, name, email, status, created_at)
+                VALUES (:accountId, :patientId, 'Other Instance', NULL, 'active', :createdAt)
+                """, Map.of("accountId", accountId, "patientId", patientId,
+                "createdAt", Timestamp.from(Instant.now())));
+    }
+}
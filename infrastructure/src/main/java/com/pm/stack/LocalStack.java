@@ -45,15 +45,20 @@ public class LocalStack extends Stack {
     // ✅ ECS Cluster：容器服务的集群
     private final Cluster ecsCluster;
 
+    // ✅ 所有服务把 span 发到这里（OTLP/HTTP）
+    private static final String OTLP_TRACING_ENDPOINT = "http://host.docker.internal:4318/v1/traces";
+
     public LocalStack(final App scope, final String id, final StackProps props) {
         super(scope, id, props);
 
         // ✅ 创建 VPC（私有网络）
         this.vpc = createVpc();
 
-        // ✅ 创建 2 个 PostgreSQL 数据库
+        // ✅ 创建 3 个 PostgreSQL 数据库
         DatabaseInstance authServiceDb = createDatabase("AuthServiceDB", "auth-service-db");
         DatabaseInstance patientServiceDb = createDatabase("PatientServiceDB", "patient-service-db");
+        // billing accounts（BillingAccountWriter），不跑在 LocalStack 时用内嵌 H2 文件
+        DatabaseInstance billingServiceDb = createDatabase("BillingServiceDB", "billing-service-db");
 
         // ✅ 为数据库配置健康检查（可选，用于 Route53 健康监测）
         createDbHealthCheck(authServiceDb, "AuthServiceDBHealthCheck");
@@ -67,8 +72,15 @@ public class LocalStack extends Stack {
         CfnHealthCheck patientDbHealthCheck =
                 createDbHealthCheck(patientServiceDb, "PatientServiceDBHealthCheck");
 
+        CfnHealthCheck billingDbHealthCheck =
+                createDbHealthCheck(billingServiceDb, "BillingServiceDBHealthCheck");
+
         // ✅ 创建 ECS 集群
         this.ecsCluster = createEcsCluster();
+
+        // ✅ trace collector（本地替身：Jaeger all-in-one，收 OTLP，UI 在 16686）
+        createTracingCollector();
+
         FargateService authService = createFargateService("AuthService","auth-service"
         ,List.of(4005),
                 authServiceDb,Map.of("JWT_SECRET","Radomstring12dwdqwqd3")
@@ -80,8 +92,10 @@ public class LocalStack extends Stack {
                 createFargateService("BillingService",
                         "billing-service",
                         List.of(4001,9001),
-                        null,
+                        billingServiceDb,
                         null);
+        billingService.getNode().addDependency(billingServiceDb);
+        billingService.getNode().addDependency(billingDbHealthCheck);
 
         FargateService analyticsService =
                 createFargateService("AnalyticsService",
@@ -209,6 +223,7 @@ public class LocalStack extends Stack {
         // 3️⃣ 环境变量（用于数据库和 Kafka 连接）
         Map<String, String> envVars = new HashMap<>();
         envVars.put("SPRING_KAFKA_BOOTSTRAP_SERVERS", "localhost.localstack.cloud:4510, localhost.localstack.cloud:4511, localhost.localstack.cloud:4512");
+        envVars.put("OTLP_TRACING_ENDPOINT", OTLP_TRACING_ENDPOINT);
 
         // 4️⃣ 附加自定义环境变量
         if (additionalEnvVars != null) {
@@ -246,6 +261,34 @@ public class LocalStack extends Stack {
 
 
 
+    // ✅ 创建 trace collector：Jaeger all-in-one 当本地的 OpenTelemetry collector 用
+    //    4318 = OTLP/HTTP（服务往这里发 span），16686 = Jaeger UI（按 traceId 看每一跳的耗时）
+    private FargateService createTracingCollector() {
+        FargateTaskDefinition taskDefinition = FargateTaskDefinition.Builder.create(this, "TracingCollectorTask")
+                .cpu(256)
+                .memoryLimitMiB(512)
+                .build();
+
+        taskDefinition.addContainer("TracingCollectorContainer", ContainerDefinitionOptions.builder()
+                .image(ContainerImage.fromRegistry("jaegertracing/all-in-one:1.62.0"))
+                .environment(Map.of("COLLECTOR_OTLP_ENABLED", "true"))
+                .portMappings(List.of(4318, 16686).stream()
+                        .map(port -> PortMapping.builder()
+                                .containerPort(port)
+                                .hostPort(port)
+                                .protocol(Protocol.TCP)
+                                .build())
+                        .toList())
+                .build());
+
+        return FargateService.Builder.create(this, "TracingCollector")
+                .cluster(ecsCluster)
+                .taskDefinition(taskDefinition)
+                .assignPublicIp(false)
+                .serviceName("tracing-collector")
+                .build();
+    }
+
     private void createApiGatewayService() {
         FargateTaskDefinition taskDefinition =
                 FargateTaskDefinition.Builder.create(this, "APIGatewayTaskDefinition")
@@ -258,7 +301,12 @@ public class LocalStack extends Stack {
                         .image(ContainerImage.fromRegistry("api-gateway"))
                         .environment(Map.of(
                                 "SPRING_PROFILES_ACTIVE", "prod",
-                                "AUTH_SERVICE_URL", "http://host.docker.internal:4005"
+                                "AUTH_SERVICE_URL", "http://host.docker.internal:4005",
+                                // same key as auth-service, the gateway verifies tokens locally
+                                "JWT_SECRET", "Radomstring12dwdqwqd3",
+                                // behind the ALB: the client IP is the last X-Forwarded-For entry, which the ALB appends
+                                "GATEWAY_TRUSTED_PROXIES", "1",
+                                "OTLP_TRACING_ENDPOINT", OTLP_TRACING_ENDPOINT
                         ))
                         .portMappings(List.of(4004).stream()
                                 .map(port -> PortMapping.builder()
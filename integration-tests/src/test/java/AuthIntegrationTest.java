@@ -1,4 +1,5 @@
 import io.restassured.RestAssured;
+import io.restassured.path.json.JsonPath;
 import io.restassured.response.Response;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
@@ -56,4 +57,79 @@ public class AuthIntegrationTest {
         // deleted some sentences
     }
 
+    // a refresh token works once: the rotated-out one comes back -> 401, and its whole family is revoked
+    @Test
+    public void shouldRotateRefreshTokenAndRejectReuse() {
+        String refreshToken = login().getString("refreshToken");
+
+        String rotated = given()
+                .contentType("application/json")
+                .body("{\"refreshToken\": \"" + refreshToken + "\"}")
+                .when()
+                .post("/auth/refresh")
+                .then()
+                .statusCode(200)
+                .body("token", notNullValue())
+                .body("refreshToken", notNullValue())
+                .extract()
+                .jsonPath()
+                .getString("refreshToken");
+
+        given()
+                .contentType("application/json")
+                .body("{\"refreshToken\": \"" + refreshToken + "\"}")
+                .when()
+                .post("/auth/refresh")
+                .then()
+                .statusCode(401);
+
+        given()
+                .contentType("application/json")
+                .body("{\"refreshToken\": \"" + rotated + "\"}")
+                .when()
+                .post("/auth/refresh")
+                .then()
+                .statusCode(401);
+    }
+
+    @Test
+    public void shouldRejectAccessTokenAfterLogout() {
+        JsonPath tokens = login();
+        String token = tokens.getString("token");
+
+        given()
+                .header("Authorization", "Bearer " + token)
+                .contentType("application/json")
+                .body("{\"refreshToken\": \"" + tokens.getString("refreshToken") + "\"}")
+                .when()
+                .post("/auth/logout")
+                .then()
+                .statusCode(204);
+
+        given()
+                .header("Authorization", "Bearer " + token)
+                .when()
+                .get("/auth/validate")
+                .then()
+                .statusCode(401);
+    }
+
+    private static JsonPath login() {
+        String loginPayload = """
+          {
+            "email": "testuser@test.com",
+            "password": "password123"
+          }
+        """;
+        return given()
+                .contentType("application/json")
+                .body(loginPayload)
+                .when()
+                .post("/auth/login")
+                .then()
+                .statusCode(200)
+                .extract()
+                .jsonPath();
+    }
+
 }
\ No newline at end of file
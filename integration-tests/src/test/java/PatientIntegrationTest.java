@@ -3,6 +3,7 @@ import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
 import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.notNullValue;
 
 
@@ -14,6 +15,56 @@ public class PatientIntegrationTest {
 
     @Test
     public void shouldReturnPatientsWithValidToken () {
+        String token = login();
+
+        given()
+                .header("Authorization", "Bearer " + token)
+                .when()
+                .get("/api/patients")
+                .then()
+                .statusCode(200)
+                .body("patients", notNullValue());
+    }
+
+    @Test
+    public void shouldReturn404ForUnknownPatient() {
+        String token = login();
+
+        given()
+                .header("Authorization", "Bearer " + token)
+                .when()
+                .get("/api/patients/00000000-0000-0000-0000-000000000000")
+                .then()
+                .statusCode(404)
+                .body("message", equalTo("Patient not found"));
+
+        given()
+                .header("Authorization", "Bearer " + token)
+                .contentType("application/json")
+                .body("""
+                  {
+                    "name": "Nobody",
+                    "email": "nobody@test.com",
+                    "address": "1 Nowhere Street",
+                    "dateOfBirth": "1990-01-01"
+                  }
+                """)
+                .when()
+                .put("/api/patients/00000000-0000-0000-0000-000000000000")
+                .then()
+                .statusCode(404)
+                .body("message", equalTo("Patient not found"));
+
+        given()
+                .header("Authorization", "Bearer " + token)
+                .when()
+                .delete("/api/patients/00000000-0000-0000-0000-000000000000")
+                .then()
+                .statusCode(404)
+                .body("message", equalTo("Patient not found"));
+    }
+
+    private static String login() {
         String loginPayload = """
           {
             "email": "testuser@test.com",
@@ -21,7 +72,7 @@ public class PatientIntegrationTest {
           }
         """;
 
-        String token = given()
+        return given()
                 .contentType("application/json")
                 .body(loginPayload)
                 .when()
@@ -31,13 +82,5 @@ public class PatientIntegrationTest {
                 .extract()
                 .jsonPath()
                 .get("token");
-
-        given()
-                .header("Authorization", "Bearer " + token)
-                .when()
-                .get("/api/patients")
-                .then()
-                .statusCode(200)
-                .body("patients", notNullValue());
     }
 }
\ No newline at end of file
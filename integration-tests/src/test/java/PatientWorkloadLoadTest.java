@@ -0,0 +1,279 @@
+import io.restassured.RestAssured;
+import io.restassured.path.json.JsonPath;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static io.restassured.RestAssured.given;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Open-model load against the gateway: requests are started at a fixed arrival rate whether or not
+// earlier ones have returned, and each latency is measured from the time the request was *scheduled*,
+// so a stalled server shows up as latency instead of as fewer requests (no coordinated omission).
+// The mix is create / list / update / delete on /api/patients, with one login up front.
+// Runs against whatever stack is behind loadtest.baseUri (docker-compose or LocalStack):
+//   mvn test -Dtest=PatientWorkloadLoadTest -Dloadtest=true \
+//       -Dloadtest.rate=200 -Dloadtest.seconds=60 -Dloadtest.warmup-seconds=10 \
+//       -Dloadtest.mix=create:20,list:50,update:20,delete:10
+// Prints p50/p90/p99/p99.9/max and throughput per endpoint, and writes the full HdrHistogram
+// percentile distribution of each endpoint to target/loadtest/<endpoint>.hgrm. Failed requests are
+// kept in their own histograms (<endpoint>-errors.hgrm), so fast errors don't flatter the percentiles.
+@EnabledIfSystemProperty(named = "loadtest", matches = "true")
+public class PatientWorkloadLoadTest {
+
+    private static final String BASE_URI = System.getProperty("loadtest.baseUri", "http://localhost:4004");
+    // latencies are recorded in microseconds, up to the request timeout
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    enum Endpoint { CREATE, LIST, UPDATE, DELETE }
+
+    private HttpClient client;
+    private String token;
+    // patients created by this run; update/delete only touch these
+    private final ConcurrentLinkedQueue<String> createdIds = new ConcurrentLinkedQueue<>();
+    // successful requests only
+    private final Map<Endpoint, Histogram> histograms = new EnumMap<>(Endpoint.class);
+    private final Map<Endpoint, Histogram> errorHistograms = new EnumMap<>(Endpoint.class);
+
+    @BeforeAll
+    static void setUp() {
+        RestAssured.baseURI = BASE_URI;
+    }
+
+    @Test
+    public void patientWorkloadAtFixedArrivalRate() throws Exception {
+        int rate = Integer.getInteger("loadtest.rate", 100);
+        Duration warmup = Duration.ofSeconds(Integer.getInteger("loadtest.warmup-seconds", 10));
+        Duration duration = Duration.ofSeconds(Integer.getInteger("loadtest.seconds", 60));
+        int[] mix = parseMix(System.getProperty("loadtest.mix", "create:20,list:50,update:20,delete:10"));
+
+        token = login();
+        client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        for (Endpoint endpoint : Endpoint.values()) {
+            histograms.put(endpoint, new ConcurrentHistogram(REQUEST_TIMEOUT.toNanos() / 1000, 3));
+            errorHistograms.put(endpoint, new ConcurrentHistogram(REQUEST_TIMEOUT.toNanos() / 1000, 3));
+        }
+
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+        long start = System.nanoTime();
+        long measureFrom = start + warmup.toNanos();
+        long end = measureFrom + duration.toNanos();
+
+        // one virtual thread per request: in-flight requests never hold back the next arrival
+        try (ExecutorService requests = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long i = 0; ; i++) {
+                long scheduledAt = start + i * intervalNanos;
+                if (scheduledAt >= end) {
+                    break;
+                }
+                long wait = scheduledAt - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                Endpoint endpoint = pick(mix);
+                boolean measured = scheduledAt >= measureFrom;
+                requests.submit(() -> execute(endpoint, scheduledAt, measured));
+            }
+        }
+
+        report(duration, rate);
+        long succeeded = 0;
+        for (Endpoint endpoint : Endpoint.values()) {
+            succeeded += histograms.get(endpoint).getTotalCount();
+        }
+        assertTrue(succeeded > 0, "no request succeeded");
+    }
+
+    private void execute(Endpoint picked, long scheduledAt, boolean measured) {
+        // update / delete need a patient of our own: until there is one, fall back to a create, so the
+        // request still counts against the rate, and record it as the create it actually was
+        Endpoint endpoint = picked;
+        String id = null;
+        if (picked == Endpoint.UPDATE || picked == Endpoint.DELETE) {
+            id = createdIds.poll();
+            if (id == null) {
+                endpoint = Endpoint.CREATE;
+            }
+        }
+        boolean ok;
+        try {
+            ok = switch (endpoint) {
+                case CREATE -> create();
+                case LIST -> list();
+                case UPDATE -> update(id);
+                case DELETE -> delete(id);
+            };
+        } catch (Exception e) {
+            ok = false;
+        }
+        if (!measured) {
+            return;
+        }
+        // from the scheduled start, not from when the request actually went out
+        long latencyMicros = (System.nanoTime() - scheduledAt) / 1000;
+        Histogram histogram = (ok ? histograms : errorHistograms).get(endpoint);
+        histogram.recordValue(Math.min(latencyMicros, histogram.getHighestTrackableValue()));
+    }
+
+    private boolean create() throws IOException, InterruptedException {
+        String body = """
+                {
+                  "name": "Load Test",
+                  "email": "load-%s@test.com",
+                  "address": "123 Load Street",
+                  "dateOfBirth": "1990-01-01",
+                  "registeredDate": "2024-01-01"
+                }
+                """.formatted(UUID.randomUUID());
+        HttpResponse<String> response = send(request("/api/patients")
+                .POST(HttpRequest.BodyPublishers.ofString(body)));
+        if (response.statusCode() != 200) {
+            return false;
+        }
+        createdIds.add(JsonPath.from(response.body()).getString("id"));
+        return true;
+    }
+
+    private boolean list() throws IOException, InterruptedException {
+        return send(request("/api/patients?size=50").GET()).statusCode() == 200;
+    }
+
+    private boolean update(String id) throws IOException, InterruptedException {
+        String body = """
+                {
+                  "name": "Load Test Updated",
+                  "email": "load-%s@test.com",
+                  "address": "456 Load Avenue",
+                  "dateOfBirth": "1990-01-01"
+                }
+                """.formatted(UUID.randomUUID());
+        try {
+            return send(request("/api/patients/" + id)
+                    .PUT(HttpRequest.BodyPublishers.ofString(body))).statusCode() == 200;
+        } finally {
+            createdIds.add(id);
+        }
+    }
+
+    private boolean delete(String id) throws IOException, InterruptedException {
+        int status = send(request("/api/patients/" + id).DELETE()).statusCode();
+        return status == 200 || status == 204;
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(URI.create(BASE_URI + path))
+                .header("Authorization", "Bearer " + token)
+                .header("Content-Type", "application/json")
+                .timeout(REQUEST_TIMEOUT);
+    }
+
+    private HttpResponse<String> send(HttpRequest.Builder builder) throws IOException, InterruptedException {
+        return client.send(builder.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private void report(Duration duration, int rate) throws IOException {
+        Path out = Path.of("target", "loadtest");
+        Files.createDirectories(out);
+        System.out.printf("target rate=%d req/s, measured %ds%n", rate, duration.toSeconds());
+        // count and req/s are successful requests; the errors line shows how long the failures took
+        System.out.printf("%-14s %8s %9s %9s %9s %9s %9s %9s%n",
+                "endpoint", "count", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (Endpoint endpoint : Endpoint.values()) {
+            String name = endpoint.name().toLowerCase();
+            print(name, histograms.get(endpoint), duration);
+            write(out.resolve(name + ".hgrm"), histograms.get(endpoint));
+            Histogram errors = errorHistograms.get(endpoint);
+            if (errors.getTotalCount() > 0) {
+                print(name + " errors", errors, duration);
+                write(out.resolve(name + "-errors.hgrm"), errors);
+            }
+        }
+    }
+
+    private static void print(String name, Histogram histogram, Duration duration) {
+        System.out.printf("%-14s %8d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                name,
+                histogram.getTotalCount(),
+                histogram.getTotalCount() / (double) duration.toSeconds(),
+                histogram.getValueAtPercentile(50) / 1000.0,
+                histogram.getValueAtPercentile(90) / 1000.0,
+                histogram.getValueAtPercentile(99) / 1000.0,
+                histogram.getValueAtPercentile(99.9) / 1000.0,
+                histogram.getMaxValue() / 1000.0);
+    }
+
+    private static void write(Path file, Histogram histogram) throws IOException {
+        try (PrintStream stream = new PrintStream(file.toFile())) {
+            // values in ms
+            histogram.outputPercentileDistribution(stream, 1000.0);
+        }
+    }
+
+    // "create:20,list:50,..." -> cumulative weights in Endpoint order
+    private static int[] parseMix(String mix) {
+        int[] weights = new int[Endpoint.values().length];
+        for (String part : mix.split(",")) {
+            String[] kv = part.trim().split(":");
+            weights[Endpoint.valueOf(kv[0].trim().toUpperCase()).ordinal()] = Integer.parseInt(kv[1].trim());
+        }
+        for (int i = 1; i < weights.length; i++) {
+            weights[i] += weights[i - 1];
+        }
+        if (weights[weights.length - 1] <= 0) {
+            throw new IllegalArgumentException("loadtest.mix has no positive weight: " + mix);
+        }
+        return weights;
+    }
+
+    private static Endpoint pick(int[] cumulative) {
+        int r = ThreadLocalRandom.current().nextInt(cumulative[cumulative.length - 1]);
+        for (int i = 0; i < cumulative.length; i++) {
+            if (r < cumulative[i]) {
+                return Endpoint.values()[i];
+            }
+        }
+        throw new IllegalStateException();
+    }
+
+    private static String login() {
+        String loginPayload = """
+          {
+            "email": "testuser@test.com",
+            "password": "password123"
+          }
+        """;
+        return given()
+                .contentType("application/json")
+                .body(loginPayload)
+                .when()
+                .post("/auth/login")
+                .then()
+                .statusCode(200)
+                .extract()
+                .jsonPath()
+                .get("token");
+    }
+}
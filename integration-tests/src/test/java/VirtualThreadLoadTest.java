@@ -0,0 +1,115 @@
+import io.restassured.RestAssured;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static io.restassured.RestAssured.given;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Burst load against GET /api/patients, to compare the platform-thread and virtual-thread modes
+// (documentations/virtual-threads.md). Not part of the normal run:
+//   mvn test -Dtest=VirtualThreadLoadTest -Dloadtest=true -Dloadtest.concurrency=500 -Dloadtest.seconds=60
+// Run it once per mode (patient-service with and without SPRING_PROFILES_ACTIVE=virtual-threads), passing
+// -Dloadtest.mode=platform / virtual, and paste the printed table rows into the doc.
+@EnabledIfSystemProperty(named = "loadtest", matches = "true")
+public class VirtualThreadLoadTest {
+
+    private static final String BASE_URI = "http://localhost:4004";
+
+    @BeforeAll
+    static void setUp() {
+        RestAssured.baseURI = BASE_URI;
+    }
+
+    @Test
+    public void burstOfConcurrentPatientReads() throws Exception {
+        int concurrency = Integer.getInteger("loadtest.concurrency", 500);
+        Duration duration = Duration.ofSeconds(Integer.getInteger("loadtest.seconds", 30));
+        String token = login();
+
+        HttpClient client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        HttpRequest request = HttpRequest.newBuilder(URI.create(BASE_URI + "/api/patients?size=20"))
+                .header("Authorization", "Bearer " + token)
+                .timeout(Duration.ofSeconds(30))
+                .GET()
+                .build();
+
+        LongAdder ok = new LongAdder();
+        LongAdder failed = new LongAdder();
+        AtomicLong totalLatencyNanos = new AtomicLong();
+        long deadline = System.nanoTime() + duration.toNanos();
+
+        // closed model: every client sends its next request as soon as the previous one returns
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> running = new ArrayList<>(concurrency);
+            for (int i = 0; i < concurrency; i++) {
+                running.add(clients.submit(() -> {
+                    while (System.nanoTime() < deadline) {
+                        long start = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() == 200) {
+                                ok.increment();
+                            } else {
+                                failed.increment();
+                            }
+                        } catch (Exception e) {
+                            failed.increment();
+                        }
+                        totalLatencyNanos.addAndGet(System.nanoTime() - start);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> worker : running) {
+                worker.get();
+            }
+        }
+
+        long requests = ok.sum() + failed.sum();
+        System.out.printf("concurrency=%d duration=%ds ok=%d failed=%d throughput=%.1f req/s mean latency=%.1f ms%n",
+                concurrency, duration.toSeconds(), ok.sum(), failed.sum(),
+                ok.sum() / (double) duration.toSeconds(),
+                requests == 0 ? 0.0 : totalLatencyNanos.get() / 1e6 / requests);
+        // one row of the results table in documentations/virtual-threads.md
+        System.out.printf("| %d | %s | %.1f | %.1f | %d |%n",
+                concurrency, System.getProperty("loadtest.mode", "?"),
+                ok.sum() / (double) duration.toSeconds(),
+                requests == 0 ? 0.0 : totalLatencyNanos.get() / 1e6 / requests, failed.sum());
+        assertTrue(ok.sum() > 0, "no request succeeded");
+    }
+
+    private static String login() {
+        String loginPayload = """
+          {
+            "email": "testuser@test.com",
+            "password": "password123"
+          }
+        """;
+        return given()
+                .contentType("application/json")
+                .body(loginPayload)
+                .when()
+                .post("/auth/login")
+                .then()
+                .statusCode(200)
+                .extract()
+                .jsonPath()
+                .get("token");
+    }
+}
@@ -0,0 +1,99 @@
+package com.pm.patientservice.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.pm.patientservice.dto.PatientResponseDTO;
+import com.pm.patientservice.mapper.PatientMapper;
+import com.pm.patientservice.repository.PatientRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.UUID;
+
+// Bounded read-through cache in front of patientRepository.findById for GET /patients/{id}.
+// - entries are evicted by size (max-size) and age (ttl)
+// - writes go to the database, then evict the entry after commit, so the next read reloads it
+// - missing patients are not cached
+// Hit/miss/eviction counts are published as cache.* metrics with cache=patients, and every
+// database lookup counts towards patient.lookup.db, whether the cache is on or off.
+@Slf4j
+@Component
+public class PatientCache {
+
+    private final PatientRepository patientRepository;
+    private final LoadingCache<UUID, PatientResponseDTO> cache;
+    private final boolean enabled;
+    private final int warmUpSize;
+    private final Counter dbLookups;
+
+    public PatientCache(PatientRepository patientRepository,
+                        @Value("${patient.cache.enabled:true}") boolean enabled,
+                        @Value("${patient.cache.max-size:10000}") long maxSize,
+                        @Value("${patient.cache.ttl:10m}") Duration ttl,
+                        @Value("${patient.cache.warm-up-size:0}") int warmUpSize,
+                        MeterRegistry meterRegistry) {
+        this.patientRepository = patientRepository;
+        this.enabled = enabled;
+        this.warmUpSize = warmUpSize;
+        this.dbLookups = Counter.builder("patient.lookup.db")
+                .description("Patient-by-id reads that went to the database")
+                .register(meterRegistry);
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build(this::load);
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "patients");
+    }
+
+    // null if there is no such patient
+    public PatientResponseDTO get(UUID id) {
+        return enabled ? cache.get(id) : load(id);
+    }
+
+    private PatientResponseDTO load(UUID id) {
+        dbLookups.increment();
+        return patientRepository.findById(id).map(PatientMapper::toDTO).orElse(null);
+    }
+
+    // Evicting only after commit: a read racing the write can't put the old row back
+    // once the new one is visible.
+    public void evict(UUID id) {
+        if (!enabled) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    cache.invalidate(id);
+                }
+            });
+        } else {
+            cache.invalidate(id);
+        }
+    }
+
+    // 启动时预先加载最近注册的病人（默认关闭），避免刚上线时所有请求都打到数据库
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (!enabled || warmUpSize <= 0) {
+            return;
+        }
+        PageRequest recent = PageRequest.of(0, warmUpSize, Sort.by(Sort.Direction.DESC, "registeredDate"));
+        patientRepository.findAll(recent).forEach(patient ->
+                cache.put(patient.getId(), PatientMapper.toDTO(patient)));
+        log.info("Warmed patient cache with {} entries", cache.estimatedSize());
+    }
+}
@@ -0,0 +1,62 @@
+package com.pm.patientservice.config;
+
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.grpc.MetricCollectingClientInterceptor;
+import io.micrometer.core.instrument.binder.grpc.ObservationGrpcClientInterceptor;
+import io.micrometer.observation.ObservationRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// One HTTP/2 channel to billing-service, shared by the unary and the batch client.
+@Configuration
+public class BillingChannelConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(BillingChannelConfig.class);
+
+    // the channel's callback executor in virtual-thread mode; gRPC does not shut down an executor it was given
+    private ExecutorService callbackExecutor;
+
+    // Spring calls ManagedChannel.shutdown() on context close (inferred destroy method)
+    @Bean
+    public ManagedChannel billingChannel(
+            @Value("${billing.service.address:localhost}") String serverAddress,
+            @Value("${billing.service.grpc.port:9001}") int serverPort,
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+            MeterRegistry meterRegistry,
+            ObservationRegistry observationRegistry) {
+        log.info("Connecting to Billing Service GRPC service at {}:{}",
+                serverAddress, serverPort);
+        //.usePlaintext(): This disables encryption, which is typically used for local or development environments.
+        ManagedChannelBuilder<?> builder = ManagedChannelBuilder.forAddress(serverAddress, serverPort)
+                .usePlaintext()
+                // grpc.client.processing.duration per method and status code, for both clients on this channel
+                .intercept(new MetricCollectingClientInterceptor(meterRegistry))
+                // client span + traceparent in the call metadata; the parent is whatever is current when the
+                // call starts (the request thread for first attempts, none for retries from the scheduler)
+                .intercept(new ObservationGrpcClientInterceptor(observationRegistry));
+        if (virtualThreads) {
+            // call callbacks run on virtual threads instead of gRPC's shared cached pool;
+            // the Netty event loop that does the actual I/O is unchanged
+            callbackExecutor = Executors.newVirtualThreadPerTaskExecutor();
+            builder.executor(callbackExecutor);
+        }
+        return builder.build();
+    }
+
+    // runs after the channel bean (which depends on this configuration) has been shut down
+    @PreDestroy
+    public void shutdownCallbackExecutor() {
+        if (callbackExecutor != null) {
+            callbackExecutor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.pm.patientservice.config;
+
+import com.pm.patientservice.kafka.PatientEventOutbox;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.common.config.TopicConfig;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.TopicBuilder;
+
+// Topics owned by patient-service; KafkaAdmin creates them on startup if they don't exist.
+// Both are keyed by patient id, so they must keep the same partition count.
+@Configuration
+public class KafkaTopicConfig {
+
+    private final int partitions;
+    private final int replicas;
+
+    public KafkaTopicConfig(@Value("${patient.kafka.partitions:3}") int partitions,
+                            @Value("${patient.kafka.replicas:1}") int replicas) {
+        this.partitions = partitions;
+        this.replicas = replicas;
+    }
+
+    // event stream: every create/update/delete, kept for the normal retention
+    @Bean
+    public NewTopic patientTopic() {
+        return TopicBuilder.name(PatientEventOutbox.PATIENT_TOPIC)
+                .partitions(partitions)
+                .replicas(replicas)
+                .build();
+    }
+
+    // changelog: compaction keeps only the latest snapshot per patient id, so a new consumer
+    // can rebuild current state by reading it once instead of replaying the whole event stream
+    @Bean
+    public NewTopic patientChangelogTopic() {
+        return TopicBuilder.name(PatientEventOutbox.PATIENT_CHANGELOG_TOPIC)
+                .partitions(partitions)
+                .replicas(replicas)
+                .compact()
+                // deleted patients' tombstones disappear after a day
+                .config(TopicConfig.DELETE_RETENTION_MS_CONFIG, "86400000")
+                .config(TopicConfig.MIN_COMPACTION_LAG_MS_CONFIG, "60000")
+                .build();
+    }
+}
@@ -1,19 +1,31 @@
 package com.pm.patientservice.controller;
 
+import com.pm.patientservice.dto.BulkImportResponseDTO;
+import com.pm.patientservice.dto.PatientPageResponseDTO;
 import com.pm.patientservice.dto.PatientRequestDTO;
 import com.pm.patientservice.dto.PatientResponseDTO;
 import com.pm.patientservice.dto.validators.CreatePatientValidationGroup;
+import com.pm.patientservice.service.PatientBulkImportService;
+import com.pm.patientservice.service.PatientExportService;
 import com.pm.patientservice.service.PatientService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import jakarta.validation.groups.Default;
 import org.hibernate.boot.model.internal.XMLContext;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;// HTTP response handling (ResponseEntity),
 import org.springframework.stereotype.Repository;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.io.IOException;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.UUID;
 
@@ -31,20 +43,59 @@ import java.util.UUID;
 public class PatientController {
     // dependency injection  Dependency Injection
     private final PatientService patientService;
+    private final PatientExportService patientExportService;
+    private final PatientBulkImportService patientBulkImportService;
 
-    public PatientController(PatientService patientService) {
+    public PatientController(PatientService patientService, PatientExportService patientExportService,
+                             PatientBulkImportService patientBulkImportService) {
         this.patientService = patientService;
+        this.patientExportService = patientExportService;
+        this.patientBulkImportService = patientBulkImportService;
     }
     //Here, you are using dependency injection to ！！ inject the PatientService into the PatientController.
     //！！！！This allows you to call business logic methods from the PatientService to interact with your patient data.
 
     @GetMapping
-    // This handles HTTP GET requests for the /patients endpoint. It retrieves a list of patients.
+    // This handles HTTP GET requests for the /patients endpoint. It retrieves one page of patients.
+    // Pass the nextCursor of the previous page as ?cursor=... to get the following page.
     @Operation( summary = "Get Patients")
-    public ResponseEntity<List<PatientResponseDTO>> getPatients() {
-        List<PatientResponseDTO> patients = patientService.getPatients();
+    public ResponseEntity<PatientPageResponseDTO> getPatients(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + PatientService.DEFAULT_PAGE_SIZE) int size,
+            @RequestParam(required = false) String name,
+            @RequestParam(required = false) String email,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dobFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dobTo) {
+        PatientPageResponseDTO patients = patientService.getPatients(name, email, dobFrom, dobTo, cursor, size);
         return ResponseEntity.ok().body(patients);
-        //This returns an HTTP response with status 200 OK and the list of patients in the response body.
+        //This returns an HTTP response with status 200 OK and the page of patients in the response body.
+    }
+
+    @GetMapping("/{id}")
+    // 按 id 查单个病人，走 PatientService 里的读缓存
+    @Operation(summary = "Get a patient by id")
+    public ResponseEntity<PatientResponseDTO> getPatient(@PathVariable UUID id) {
+        return ResponseEntity.ok().body(patientService.getPatient(id));
+    }
+
+    @GetMapping("/export")
+    // 给 billing 夜间对账用：整张表一行一行地从数据库游标直接写到 response，不在内存里攒 List
+    @Operation(summary = "Stream every patient as NDJSON (default) or length-delimited protobuf")
+    public void exportPatients(@RequestParam(defaultValue = "ndjson") String format,
+                               HttpServletResponse response) throws IOException {
+        switch (format.toLowerCase()) {
+            case "ndjson" -> {
+                response.setContentType("application/x-ndjson");
+                response.setCharacterEncoding("UTF-8");
+                patientExportService.exportNdjson(response.getOutputStream());
+            }
+            case "protobuf" -> {
+                response.setContentType("application/x-protobuf");
+                patientExportService.exportProtobuf(response.getOutputStream());
+            }
+            default -> throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Unsupported export format: " + format);
+        }
     }
 
     @PostMapping
@@ -60,6 +111,30 @@ public class PatientController {
         //Returns an HTTP 200 OK status with the patientResponseDTO (the newly created patient data) in the response body.
     }
 
+    // 批量导入：一次请求导入整个诊所的病人，返回每一行的结果（CREATED / INVALID / DUPLICATE_EMAIL）
+    // 同一个路径，按 Content-Type 区分：JSON 数组、NDJSON、CSV
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "Bulk import patients from a JSON array")
+    public ResponseEntity<BulkImportResponseDTO> bulkImportJson(HttpServletRequest request) throws IOException {
+        // read element by element so an oversized array is rejected before it is all in memory
+        List<PatientRequestDTO> patients = patientBulkImportService.readJsonArray(request.getInputStream());
+        return ResponseEntity.ok().body(patientBulkImportService.importPatients(patients));
+    }
+
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Bulk import patients from NDJSON")
+    public ResponseEntity<BulkImportResponseDTO> bulkImportNdjson(HttpServletRequest request) throws IOException {
+        List<PatientRequestDTO> patients = patientBulkImportService.readNdjson(request.getInputStream());
+        return ResponseEntity.ok().body(patientBulkImportService.importPatients(patients));
+    }
+
+    @PostMapping(value = "/bulk", consumes = "text/csv")
+    @Operation(summary = "Bulk import patients from CSV (header: name,email,address,dateOfBirth,registeredDate)")
+    public ResponseEntity<BulkImportResponseDTO> bulkImportCsv(HttpServletRequest request) throws IOException {
+        List<PatientRequestDTO> patients = patientBulkImportService.readCsv(request.getInputStream());
+        return ResponseEntity.ok().body(patientBulkImportService.importPatients(patients));
+    }
+
     // localhost:4000/patients/123-123-123-123-12-3
     // @ will convert/123-123-123-123-12-3 into id
     @PutMapping("/{id}")
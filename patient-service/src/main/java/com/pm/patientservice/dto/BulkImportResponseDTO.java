@@ -0,0 +1,39 @@
+package com.pm.patientservice.dto;
+
+import java.util.List;
+
+public class BulkImportResponseDTO {
+    private int created;
+    private int rejected;
+    private List<BulkImportRowResultDTO> results;
+
+    public BulkImportResponseDTO(int created, int rejected, List<BulkImportRowResultDTO> results) {
+        this.created = created;
+        this.rejected = rejected;
+        this.results = results;
+    }
+
+    public int getCreated() {
+        return created;
+    }
+
+    public void setCreated(int created) {
+        this.created = created;
+    }
+
+    public int getRejected() {
+        return rejected;
+    }
+
+    public void setRejected(int rejected) {
+        this.rejected = rejected;
+    }
+
+    public List<BulkImportRowResultDTO> getResults() {
+        return results;
+    }
+
+    public void setResults(List<BulkImportRowResultDTO> results) {
+        this.results = results;
+    }
+}
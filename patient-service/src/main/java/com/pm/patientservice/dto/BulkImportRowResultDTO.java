@@ -0,0 +1,54 @@
+package com.pm.patientservice.dto;
+
+import java.util.Map;
+
+// Outcome of one row of POST /patients/bulk. row is 1-based, in the order the rows were sent.
+public class BulkImportRowResultDTO {
+    public static final String CREATED = "CREATED";
+    public static final String INVALID = "INVALID";
+    public static final String DUPLICATE_EMAIL = "DUPLICATE_EMAIL";
+
+    private int row;
+    private String status;
+    private String patientId;
+    private Map<String, String> errors;
+
+    public BulkImportRowResultDTO(int row, String status, String patientId, Map<String, String> errors) {
+        this.row = row;
+        this.status = status;
+        this.patientId = patientId;
+        this.errors = errors;
+    }
+
+    public int getRow() {
+        return row;
+    }
+
+    public void setRow(int row) {
+        this.row = row;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public String getPatientId() {
+        return patientId;
+    }
+
+    public void setPatientId(String patientId) {
+        this.patientId = patientId;
+    }
+
+    public Map<String, String> getErrors() {
+        return errors;
+    }
+
+    public void setErrors(Map<String, String> errors) {
+        this.errors = errors;
+    }
+}
@@ -0,0 +1,30 @@
+package com.pm.patientservice.dto;
+
+import java.util.List;
+
+// One page of GET /patients. nextCursor is null on the last page.
+public class PatientPageResponseDTO {
+    private List<PatientResponseDTO> patients;
+    private String nextCursor;
+
+    public PatientPageResponseDTO(List<PatientResponseDTO> patients, String nextCursor) {
+        this.patients = patients;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<PatientResponseDTO> getPatients() {
+        return patients;
+    }
+
+    public void setPatients(List<PatientResponseDTO> patients) {
+        this.patients = patients;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
@@ -17,6 +17,7 @@ public class PatientResponseDTO {
     private String email;
     private String address;
     private String dateOfBirth;
+    private String billingStatus;
 
     public String getId() {
         return id;
@@ -58,4 +59,12 @@ public class PatientResponseDTO {
         this.dateOfBirth = dateOfBirth;
     }
 
+    public String getBillingStatus() {
+        return billingStatus;
+    }
+
+    public void setBillingStatus(String billingStatus) {
+        this.billingStatus = billingStatus;
+    }
+
 }
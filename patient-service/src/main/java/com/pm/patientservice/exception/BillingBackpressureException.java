@@ -0,0 +1,8 @@
+package com.pm.patientservice.exception;
+
+public class BillingBackpressureException extends RuntimeException {
+
+    public BillingBackpressureException(String message) {
+        super(message);
+    }
+}
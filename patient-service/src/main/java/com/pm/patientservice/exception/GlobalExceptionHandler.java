@@ -3,6 +3,8 @@ package com.pm.patientservice.exception;
 import lombok.extern.slf4j.Slf4j;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -35,11 +37,29 @@ public class GlobalExceptionHandler {
     }
 
 
+    // GET / PUT / DELETE of an id that doesn't exist
     @ExceptionHandler(PatientNotFoundException.class)
     public ResponseEntity<Map<String, String>> handlePatientNotFoundException(PatientNotFoundException ex) {
         log.warn("Patient not found{}", ex.getMessage());
         Map<String,String> errors = new HashMap<>();
         errors.put("message", "Patient not found");
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(errors);
+    }
+
+    @ExceptionHandler(InvalidCursorException.class)
+    public ResponseEntity<Map<String, String>> handleInvalidCursorException(InvalidCursorException ex) {
+        log.warn("Invalid cursor {}", ex.getMessage());
+        Map<String, String> errors = new HashMap<>();
+        errors.put("message", "Invalid cursor");
         return ResponseEntity.badRequest().body(errors);
     }
+
+    // two updates of the same patient raced; the client should re-read and retry
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<Map<String, String>> handleOptimisticLockingFailure(OptimisticLockingFailureException ex) {
+        log.warn("Concurrent patient update {}", ex.getMessage());
+        Map<String, String> errors = new HashMap<>();
+        errors.put("message", "Patient was modified concurrently, please retry");
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(errors);
+    }
 }
@@ -0,0 +1,183 @@
+package com.pm.patientservice.grpc;
+
+import billing.BillingBatchResult;
+import billing.BillingRequest;
+import billing.BillingResponse;
+import billing.BillingServiceGrpc;
+import com.pm.patientservice.exception.BillingBackpressureException;
+import io.grpc.ManagedChannel;
+import io.grpc.Status;
+import io.grpc.stub.ClientCallStreamObserver;
+import io.grpc.stub.ClientResponseObserver;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Coalesces concurrent billing account creates into micro-batches and sends each batch
+// over one BatchCreateBillingAccounts stream. A batch is flushed when it reaches max-batch-size
+// or when the window expires, whichever comes first.
+// The same patient queued twice in one batch (a retry racing the original) is sent once and both
+// callers get that result. The stream deadline grows with the batch: deadline-ms plus
+// deadline-per-request-ms for every request in it.
+@Service
+public class BillingBatchClient {
+
+    private static final Logger log = LoggerFactory.getLogger(BillingBatchClient.class);
+
+    private record Pending(BillingRequest request, CompletableFuture<BillingResponse> result) {
+    }
+
+    private final BillingServiceGrpc.BillingServiceStub asyncStub;
+    private final ConcurrentLinkedQueue<Pending> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor();
+    private final int maxBatchSize;
+    private final int maxQueued;
+    private final long windowMs;
+    private final long deadlineMs;
+    private final long deadlinePerRequestMs;
+
+    public BillingBatchClient(ManagedChannel billingChannel,
+                              @Value("${billing.service.grpc.batch.max-size:100}") int maxBatchSize,
+                              @Value("${billing.service.grpc.batch.window-ms:10}") long windowMs,
+                              @Value("${billing.service.grpc.batch.max-queued:10000}") int maxQueued,
+                              @Value("${billing.service.grpc.deadline-ms:2000}") long deadlineMs,
+                              @Value("${billing.service.grpc.batch.deadline-per-request-ms:5}") long deadlinePerRequestMs) {
+        this.asyncStub = BillingServiceGrpc.newStub(billingChannel);
+        this.maxBatchSize = maxBatchSize;
+        this.windowMs = windowMs;
+        this.maxQueued = maxQueued;
+        this.deadlineMs = deadlineMs;
+        this.deadlinePerRequestMs = deadlinePerRequestMs;
+    }
+
+    public CompletableFuture<BillingResponse> createBillingAccount(String patientId, String name, String email) {
+        if (queued.incrementAndGet() > maxQueued) {
+            queued.decrementAndGet();
+            return CompletableFuture.failedFuture(new BillingBackpressureException(
+                    "More than " + maxQueued + " billing requests waiting for a batch"));
+        }
+        CompletableFuture<BillingResponse> result = new CompletableFuture<>();
+        queue.add(new Pending(BillingRequest.newBuilder()
+                .setPatientId(patientId).setName(name).setEmail(email).build(), result));
+
+        if (queued.get() >= maxBatchSize) {
+            flusher.execute(this::flush);
+        } else if (flushScheduled.compareAndSet(false, true)) {
+            flusher.schedule(this::flush, windowMs, TimeUnit.MILLISECONDS);
+        }
+        return result;
+    }
+
+    // runs on the single flusher thread only
+    private void flush() {
+        flushScheduled.set(false);
+        while (!queue.isEmpty()) {
+            List<Pending> batch = new ArrayList<>(maxBatchSize);
+            Pending next;
+            while (batch.size() < maxBatchSize && (next = queue.poll()) != null) {
+                batch.add(next);
+            }
+            queued.addAndGet(-batch.size());
+            send(batch);
+            if (batch.size() < maxBatchSize) {
+                break;
+            }
+        }
+        // something may have been added after the last poll but before flushScheduled was cleared
+        if (!queue.isEmpty() && flushScheduled.compareAndSet(false, true)) {
+            flusher.schedule(this::flush, windowMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void send(List<Pending> batch) {
+        // one request per patient; every caller waiting on that patient shares its result
+        Map<String, List<CompletableFuture<BillingResponse>>> byPatient = new HashMap<>(batch.size() * 2);
+        List<BillingRequest> unique = new ArrayList<>(batch.size());
+        for (Pending pending : batch) {
+            byPatient.computeIfAbsent(pending.request().getPatientId(), patientId -> {
+                unique.add(pending.request());
+                return new ArrayList<>(1);
+            }).add(pending.result());
+        }
+        long deadline = deadlineMs + deadlinePerRequestMs * unique.size();
+
+        asyncStub.withDeadlineAfter(deadline, TimeUnit.MILLISECONDS)
+                .batchCreateBillingAccounts(new ClientResponseObserver<BillingRequest, BillingBatchResult>() {
+                    private final Iterator<BillingRequest> requests = unique.iterator();
+                    private boolean halfClosed;
+
+                    @Override
+                    public void beforeStart(ClientCallStreamObserver<BillingRequest> requestStream) {
+                        // only write while the transport is ready, so a slow billing-service
+                        // pushes back on us instead of us buffering the whole batch in netty
+                        requestStream.setOnReadyHandler(() -> {
+                            while (requestStream.isReady() && requests.hasNext()) {
+                                requestStream.onNext(requests.next());
+                            }
+                            if (!requests.hasNext() && !halfClosed) {
+                                halfClosed = true;
+                                requestStream.onCompleted();
+                            }
+                        });
+                    }
+
+                    @Override
+                    public void onNext(BillingBatchResult result) {
+                        List<CompletableFuture<BillingResponse>> futures = byPatient.remove(result.getPatientId());
+                        if (futures == null) {
+                            return;
+                        }
+                        if (result.getSuccess()) {
+                            futures.forEach(future -> future.complete(result.getResponse()));
+                        } else {
+                            // keep billing-service's status, so BillingAccountService retries the transient ones
+                            // (a full writer queue, a failed commit) just like on the single-call path
+                            Status status = result.getStatusCode() == Status.Code.OK.value()
+                                    ? Status.INTERNAL : Status.fromCodeValue(result.getStatusCode());
+                            RuntimeException error = status.withDescription(result.getError()).asRuntimeException();
+                            futures.forEach(future -> future.completeExceptionally(error));
+                        }
+                    }
+
+                    @Override
+                    public void onError(Throwable t) {
+                        log.warn("Billing batch of {} failed: {}", batch.size(), t.getMessage());
+                        byPatient.values().forEach(futures ->
+                                futures.forEach(future -> future.completeExceptionally(t)));
+                        byPatient.clear();
+                    }
+
+                    @Override
+                    public void onCompleted() {
+                        // every request should have had a result; anything left over was dropped
+                        RuntimeException dropped = Status.DATA_LOSS
+                                .withDescription("No result in billing batch").asRuntimeException();
+                        byPatient.values().forEach(futures ->
+                                futures.forEach(future -> future.completeExceptionally(dropped)));
+                        byPatient.clear();
+                    }
+                });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flusher.shutdown();
+    }
+}
@@ -1,34 +1,105 @@
 package com.pm.patientservice.kafka;
-import com.pm.patientservice.model.Patient;
+import com.pm.patientservice.model.OutboxEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import io.micrometer.tracing.propagation.Propagator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.kafka.core.KafkaProducerException;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Service;
-import patient.events.PatientEvent;
 
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+// Thin wrapper around KafkaTemplate used by OutboxRelay.
+// Request threads never call this directly any more: they write to the outbox instead.
+// Every send is timed from send() to the broker's ack (patient.kafka.send, with percentile histogram),
+// and failures are counted per topic and exception (patient.kafka.send.failures).
+// Tracing: the relay runs outside any request, so each send continues the trace stored on the outbox row
+// (an "outbox relay" span), and KafkaTemplate's observation puts that trace into the record's headers.
 @Service
 public class KafkaProducer {
 
     private static final Logger log = LoggerFactory.getLogger(
             KafkaProducer.class);
     private final KafkaTemplate<String, byte[]> kafkaTemplate;
+    private final MeterRegistry meterRegistry;
+    private final Tracer tracer;
+    private final Propagator propagator;
 
-    public KafkaProducer(KafkaTemplate<String, byte[]> kafkaTemplate) {
+    public KafkaProducer(KafkaTemplate<String, byte[]> kafkaTemplate, MeterRegistry meterRegistry,
+                         Tracer tracer, Propagator propagator) {
         this.kafkaTemplate = kafkaTemplate;
+        this.meterRegistry = meterRegistry;
+        this.tracer = tracer;
+        this.propagator = propagator;
     }
 
-    public void sendEvent(Patient patient) {
-        PatientEvent event = PatientEvent.newBuilder()
-                .setPatientId(patient.getId().toString())
-                .setName(patient.getName())
-                .setEmail(patient.getEmail())
-                .setEventType("PATIENT_CREATED")
-                .build();
-
-        try {
-            kafkaTemplate.send("patient", event.toByteArray());
-        } catch (Exception e) {
-            log.error("Error sending PatientCreated event: {}", event);
+    public CompletableFuture<SendResult<String, byte[]>> send(OutboxEvent event) {
+        if (event.getTraceParent() == null) {
+            return doSend(event);
+        }
+        Span span = propagator.extract(Map.of(PatientEventOutbox.TRACE_PARENT, event.getTraceParent()), Map::get)
+                .name("outbox relay")
+                .tag("messaging.destination.name", event.getTopic())
+                .tag("patient.event.type", event.getEventType())
+                .start();
+        try (Tracer.SpanInScope scope = tracer.withSpan(span)) {
+            return doSend(event).whenComplete((result, ex) -> {
+                if (ex != null) {
+                    span.error(unwrap(ex));
+                }
+                span.end();
+            });
         }
     }
-}
\ No newline at end of file
+
+    private CompletableFuture<SendResult<String, byte[]>> doSend(OutboxEvent event) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        // keyed by patient id: all events of one patient land on the same partition, in order
+        return kafkaTemplate.send(event.getTopic(), event.getAggregateId().toString(), event.getPayload())
+                .whenComplete((result, ex) -> {
+                    sample.stop(sendTimer(event.getTopic(), ex == null ? "success" : "failure"));
+                    if (ex != null) {
+                        Throwable cause = unwrap(ex);
+                        Counter.builder("patient.kafka.send.failures")
+                                .tag("topic", event.getTopic())
+                                .tag("exception", cause.getClass().getSimpleName())
+                                .register(meterRegistry)
+                                .increment();
+                        log.error("Error sending {} event for patient {}: {}",
+                                event.getEventType(), event.getAggregateId(), cause.getMessage());
+                    }
+                });
+    }
+
+    private Timer sendTimer(String topic, String outcome) {
+        return Timer.builder("patient.kafka.send")
+                .description("Time from send() to broker acknowledgement")
+                .tag("topic", topic)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    // KafkaTemplate wraps the client's exception (e.g. TimeoutException) in a KafkaProducerException
+    static Throwable unwrap(Throwable ex) {
+        Throwable cause = ex;
+        while ((cause instanceof CompletionException || cause instanceof KafkaProducerException)
+                && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+
+    // push out whatever is sitting in the linger buffer instead of waiting for linger.ms
+    public void flush() {
+        kafkaTemplate.flush();
+    }
+}
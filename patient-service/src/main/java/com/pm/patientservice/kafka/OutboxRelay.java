@@ -0,0 +1,337 @@
+package com.pm.patientservice.kafka;
+
+import com.pm.patientservice.model.OutboxEvent;
+import com.pm.patientservice.repository.OutboxEventRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// Drains the outbox into Kafka in the background.
+// Each run claims up to batch-size unsent rows in a short transaction (a lease in claimed_until),
+// sends them all at once outside any transaction (the producer batches and compresses them), waits
+// for the acks and marks the acknowledged rows as sent in a second short transaction. No connection
+// or row lock is held while waiting on the broker. A crash between send and markSent means the rows
+// are sent again once their lease has expired: delivery is at-least-once.
+//
+// Events of the same aggregate on the same topic are sent in rounds: the second one only goes out
+// once the first was acknowledged, and once one fails the later ones are not sent (nor marked) either,
+// so consumers never see a change overtake an earlier one. With several instances SKIP LOCKED could
+// hand an aggregate's newer events to one instance while an older one is still unsent at another, so
+// a batch only claims an event if no older unsent event of its aggregate is left outside the batch.
+//
+// Rows the broker did not acknowledge go into an in-memory retry buffer and are resent from there
+// with exponential backoff; no new rows are read until the buffer is empty, so a short broker outage
+// neither re-claims the same rows every tick nor keeps piling new sends on a dead connection.
+// Buffered rows stay claimed: their lease is renewed while they wait, so no other instance sends them too.
+@Component
+public class OutboxRelay {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxRelay.class);
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final KafkaProducer kafkaProducer;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final long sendTimeoutMs;
+    private final Duration lease;
+    private final Duration retention;
+    private final long initialBackoffMs;
+    private final long maxBackoffMs;
+
+    private final BlockingDeque<OutboxEvent> retryBuffer;
+    // only touched by the relay's scheduler thread
+    private long backoffMs;
+    private long nextRetryAt;
+    private long leaseRenewAt;
+
+    public OutboxRelay(OutboxEventRepository outboxEventRepository,
+                       KafkaProducer kafkaProducer,
+                       TransactionTemplate transactionTemplate,
+                       MeterRegistry meterRegistry,
+                       @Value("${patient.outbox.batch-size:500}") int batchSize,
+                       @Value("${patient.outbox.send-timeout-ms:10000}") long sendTimeoutMs,
+                       @Value("${patient.outbox.lease:PT1M}") Duration lease,
+                       @Value("${patient.outbox.retention:P1D}") Duration retention,
+                       @Value("${patient.outbox.retry-buffer-size:10000}") int retryBufferSize,
+                       @Value("${patient.outbox.retry-initial-backoff-ms:500}") long initialBackoffMs,
+                       @Value("${patient.outbox.retry-max-backoff-ms:30000}") long maxBackoffMs) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.kafkaProducer = kafkaProducer;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.sendTimeoutMs = sendTimeoutMs;
+        this.lease = lease;
+        this.retention = retention;
+        this.initialBackoffMs = initialBackoffMs;
+        this.maxBackoffMs = maxBackoffMs;
+        this.backoffMs = initialBackoffMs;
+        // a failed batch always fits: new batches are only claimed while the buffer is empty
+        this.retryBuffer = new LinkedBlockingDeque<>(Math.max(retryBufferSize, batchSize));
+        meterRegistry.gauge("patient.outbox.retry.buffer", retryBuffer, BlockingDeque::size);
+    }
+
+    @Scheduled(fixedDelayString = "${patient.outbox.relay-interval-ms:200}")
+    public void relay() {
+        if (!retryBuffer.isEmpty()) {
+            long now = System.currentTimeMillis();
+            if (now >= leaseRenewAt) {
+                renewLease();
+            }
+            if (now < nextRetryAt) {
+                return;
+            }
+            retryBuffered();
+            if (!retryBuffer.isEmpty()) {
+                // broker still unhappy: don't pull more rows yet
+                return;
+            }
+        }
+        // keep draining while full batches come back, then wait for the next tick
+        int sent;
+        do {
+            sent = relayBatch();
+        } while (sent == batchSize);
+    }
+
+    @Scheduled(fixedDelayString = "${patient.outbox.purge-interval-ms:600000}")
+    public void purgeSent() {
+        Integer deleted = transactionTemplate.execute(status ->
+                outboxEventRepository.deleteSentBefore(Instant.now().minus(retention)));
+        if (deleted != null && deleted > 0) {
+            log.info("Purged {} sent outbox events", deleted);
+        }
+    }
+
+    private int relayBatch() {
+        List<OutboxEvent> batch = claimNextBatch();
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        List<OutboxEvent> failed = sendAll(batch);
+        transactionTemplate.executeWithoutResult(status -> markSent(batch, failed));
+        if (!failed.isEmpty()) {
+            buffer(failed);
+            // stop draining: the next tick retries from the buffer first
+            return 0;
+        }
+        return batch.size();
+    }
+
+    // locks the rows only for as long as it takes to write the lease
+    private List<OutboxEvent> claimNextBatch() {
+        List<OutboxEvent> batch = transactionTemplate.execute(status -> {
+            Instant now = Instant.now();
+            List<OutboxEvent> locked = withoutOvertakers(outboxEventRepository.lockNextBatch(now, Limit.of(batchSize)));
+            if (!locked.isEmpty()) {
+                outboxEventRepository.claim(ids(locked), now.plus(lease));
+            }
+            return locked;
+        });
+        return batch == null ? List.of() : batch;
+    }
+
+    // drops the events that would overtake an older unsent event of their aggregate held elsewhere;
+    // they are left unclaimed and picked up once that one is sent
+    private List<OutboxEvent> withoutOvertakers(List<OutboxEvent> locked) {
+        if (locked.isEmpty()) {
+            return locked;
+        }
+        Set<UUID> aggregateIds = new HashSet<>();
+        Instant newest = Instant.MIN;
+        for (OutboxEvent event : locked) {
+            aggregateIds.add(event.getAggregateId());
+            if (event.getCreatedAt().isAfter(newest)) {
+                newest = event.getCreatedAt();
+            }
+        }
+        Map<String, Instant> oldestElsewhere = new HashMap<>();
+        for (OutboxEventRepository.UnsentEvent other : outboxEventRepository.findOtherUnsent(aggregateIds, ids(locked), newest)) {
+            oldestElsewhere.merge(orderingKey(other.getTopic(), other.getAggregateId()), other.getCreatedAt(),
+                    (a, b) -> a.isBefore(b) ? a : b);
+        }
+        if (oldestElsewhere.isEmpty()) {
+            return locked;
+        }
+        List<OutboxEvent> claimable = new ArrayList<>(locked.size());
+        for (OutboxEvent event : locked) {
+            Instant older = oldestElsewhere.get(orderingKey(event));
+            if (older == null || !older.isBefore(event.getCreatedAt())) {
+                claimable.add(event);
+            }
+        }
+        log.debug("Left {} outbox events for later, an older event of their aggregate is unsent elsewhere",
+                locked.size() - claimable.size());
+        return claimable;
+    }
+
+    private void retryBuffered() {
+        List<OutboxEvent> batch = new ArrayList<>(batchSize);
+        retryBuffer.drainTo(batch, batchSize);
+        List<OutboxEvent> failed = sendAll(batch);
+        transactionTemplate.executeWithoutResult(status -> markSent(batch, failed));
+        if (failed.isEmpty()) {
+            backoffMs = initialBackoffMs;
+            log.info("Resent {} buffered outbox events", batch.size());
+        } else {
+            // back to the front, keeping their order
+            for (int i = failed.size() - 1; i >= 0; i--) {
+                retryBuffer.offerFirst(failed.get(i));
+            }
+            backoffMs = Math.min(backoffMs * 2, maxBackoffMs);
+            nextRetryAt = System.currentTimeMillis() + backoffMs;
+        }
+    }
+
+    private void buffer(List<OutboxEvent> failed) {
+        retryBuffer.addAll(failed);
+        nextRetryAt = System.currentTimeMillis() + backoffMs;
+        leaseRenewAt = System.currentTimeMillis() + lease.toMillis() / 2;
+        log.warn("{} outbox events not acknowledged, retrying in {} ms", failed.size(), backoffMs);
+    }
+
+    // keeps the buffered rows claimed while they wait, at half the lease so it never runs out in between
+    private void renewLease() {
+        List<OutboxEvent> buffered = new ArrayList<>(retryBuffer);
+        if (!buffered.isEmpty()) {
+            transactionTemplate.executeWithoutResult(status ->
+                    outboxEventRepository.claim(ids(buffered), Instant.now().plus(lease)));
+        }
+        leaseRenewAt = System.currentTimeMillis() + lease.toMillis() / 2;
+    }
+
+    // on shutdown the buffered rows go straight back to the table instead of waiting out their lease
+    @PreDestroy
+    public void releaseBuffered() {
+        List<OutboxEvent> buffered = new ArrayList<>();
+        retryBuffer.drainTo(buffered);
+        if (!buffered.isEmpty()) {
+            transactionTemplate.executeWithoutResult(status -> outboxEventRepository.release(ids(buffered)));
+            log.info("Released {} buffered outbox events", buffered.size());
+        }
+    }
+
+    // sends round by round (see class comment); returns the events that were not acknowledged or not sent
+    // because an earlier event of their aggregate failed, in batch order
+    private List<OutboxEvent> sendAll(List<OutboxEvent> batch) {
+        Map<String, Integer> perKey = new HashMap<>();
+        List<List<OutboxEvent>> rounds = new ArrayList<>();
+        for (OutboxEvent event : batch) {
+            int round = perKey.merge(orderingKey(event), 1, Integer::sum) - 1;
+            if (round == rounds.size()) {
+                rounds.add(new ArrayList<>());
+            }
+            rounds.get(round).add(event);
+        }
+
+        Set<String> blocked = new HashSet<>();
+        Set<UUID> failedIds = new HashSet<>();
+        for (List<OutboxEvent> round : rounds) {
+            List<OutboxEvent> sendable = new ArrayList<>(round.size());
+            for (OutboxEvent event : round) {
+                if (blocked.contains(orderingKey(event))) {
+                    failedIds.add(event.getId());
+                } else {
+                    sendable.add(event);
+                }
+            }
+            for (OutboxEvent event : sendRound(sendable)) {
+                failedIds.add(event.getId());
+                blocked.add(orderingKey(event));
+            }
+        }
+        if (failedIds.isEmpty()) {
+            return List.of();
+        }
+        List<OutboxEvent> failed = new ArrayList<>(failedIds.size());
+        for (OutboxEvent event : batch) {
+            if (failedIds.contains(event.getId())) {
+                failed.add(event);
+            }
+        }
+        return failed;
+    }
+
+    // the record key is the aggregate id, so this is what Kafka keeps in order
+    private static String orderingKey(OutboxEvent event) {
+        return orderingKey(event.getTopic(), event.getAggregateId());
+    }
+
+    private static String orderingKey(String topic, UUID aggregateId) {
+        return topic + "/" + aggregateId;
+    }
+
+    // sends everything at once and waits for the acks; returns the events that were not acknowledged
+    private List<OutboxEvent> sendRound(List<OutboxEvent> batch) {
+        if (batch.isEmpty()) {
+            return List.of();
+        }
+        List<CompletableFuture<?>> futures = new ArrayList<>(batch.size());
+        for (OutboxEvent event : batch) {
+            futures.add(kafkaProducer.send(event));
+        }
+        kafkaProducer.flush();
+
+        try {
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new))
+                    .get(sendTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException | TimeoutException e) {
+            log.warn("Outbox batch partially failed: {}", e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        List<OutboxEvent> failed = new ArrayList<>();
+        for (int i = 0; i < batch.size(); i++) {
+            CompletableFuture<?> future = futures.get(i);
+            if (!future.isDone() || future.isCompletedExceptionally()) {
+                failed.add(batch.get(i));
+            }
+        }
+        return failed;
+    }
+
+    private static List<UUID> ids(List<OutboxEvent> events) {
+        List<UUID> ids = new ArrayList<>(events.size());
+        events.forEach(event -> ids.add(event.getId()));
+        return ids;
+    }
+
+    // only rows the broker acknowledged are marked
+    private void markSent(List<OutboxEvent> batch, List<OutboxEvent> failed) {
+        Set<UUID> failedIds = new HashSet<>();
+        failed.forEach(event -> failedIds.add(event.getId()));
+        List<UUID> acked = new ArrayList<>(batch.size());
+        for (OutboxEvent event : batch) {
+            if (!failedIds.contains(event.getId())) {
+                acked.add(event.getId());
+            }
+        }
+        if (!acked.isEmpty()) {
+            outboxEventRepository.markSent(acked, Instant.now());
+        }
+        log.debug("Relayed {}/{} outbox events", acked.size(), batch.size());
+    }
+}
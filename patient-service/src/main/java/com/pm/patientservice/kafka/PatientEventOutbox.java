@@ -0,0 +1,98 @@
+package com.pm.patientservice.kafka;
+
+import com.pm.patientservice.mapper.PatientEventMapper;
+import com.pm.patientservice.model.OutboxEvent;
+import com.pm.patientservice.model.Patient;
+import com.pm.patientservice.repository.OutboxEventRepository;
+import io.micrometer.tracing.TraceContext;
+import io.micrometer.tracing.Tracer;
+import io.micrometer.tracing.propagation.Propagator;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import patient.events.PatientEvent;
+import patient.events.PatientEventType;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Records PatientEvents in the outbox table. Must join the caller's transaction,
+// so the event is committed or rolled back together with the patient row.
+// Each row also keeps the current trace context; OutboxRelay sends later from another thread,
+// and KafkaProducer continues the request's trace from it.
+@Service
+public class PatientEventOutbox {
+
+    // every change, in order per patient (records are keyed by patient id)
+    public static final String PATIENT_TOPIC = "patient";
+    // compacted: the latest full state per patient, null value (tombstone) once deleted
+    public static final String PATIENT_CHANGELOG_TOPIC = "patient-changelog";
+
+    static final String TRACE_PARENT = "traceparent";
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final Tracer tracer;
+    private final Propagator propagator;
+
+    public PatientEventOutbox(OutboxEventRepository outboxEventRepository, Tracer tracer, Propagator propagator) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.tracer = tracer;
+        this.propagator = propagator;
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void patientCreated(Patient patient) {
+        PatientEvent event = PatientEventMapper.toCreatedEvent(patient);
+        save(List.of(
+                toOutboxEvent(PATIENT_TOPIC, patient, event),
+                toOutboxEvent(PATIENT_CHANGELOG_TOPIC, patient, event)));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void patientsCreated(List<Patient> patients) {
+        List<OutboxEvent> events = new ArrayList<>(patients.size() * 2);
+        for (Patient patient : patients) {
+            PatientEvent event = PatientEventMapper.toCreatedEvent(patient);
+            events.add(toOutboxEvent(PATIENT_TOPIC, patient, event));
+            events.add(toOutboxEvent(PATIENT_CHANGELOG_TOPIC, patient, event));
+        }
+        save(events);
+    }
+
+    // nothing is recorded when no field actually changed
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void patientUpdated(Patient patient, Set<String> changedFields) {
+        if (!changedFields.isEmpty()) {
+            save(List.of(
+                    toOutboxEvent(PATIENT_TOPIC, patient, PatientEventMapper.toUpdatedEvent(patient, changedFields)),
+                    toOutboxEvent(PATIENT_CHANGELOG_TOPIC, patient,
+                            PatientEventMapper.toSnapshot(patient, PatientEventType.PATIENT_UPDATED))));
+        }
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void patientDeleted(Patient patient) {
+        save(List.of(
+                toOutboxEvent(PATIENT_TOPIC, patient, PatientEventMapper.toDeletedEvent(patient)),
+                // a real Kafka tombstone, so compaction eventually drops the patient from the changelog
+                new OutboxEvent(PATIENT_CHANGELOG_TOPIC, patient.getId(), PatientEventType.PATIENT_DELETED.name(), null)));
+    }
+
+    private void save(List<OutboxEvent> events) {
+        TraceContext context = tracer.currentTraceContext().context();
+        if (context != null) {
+            Map<String, String> carrier = new HashMap<>();
+            propagator.inject(context, carrier, Map::put);
+            String traceParent = carrier.get(TRACE_PARENT);
+            events.forEach(event -> event.setTraceParent(traceParent));
+        }
+        outboxEventRepository.saveAll(events);
+    }
+
+    private static OutboxEvent toOutboxEvent(String topic, Patient patient, PatientEvent event) {
+        return new OutboxEvent(topic, patient.getId(), event.getEventType(), event.toByteArray());
+    }
+}
@@ -0,0 +1,69 @@
+package com.pm.patientservice.mapper;
+
+import com.google.protobuf.FieldMask;
+import com.pm.patientservice.model.Patient;
+import patient.events.PatientEvent;
+import patient.events.PatientEventType;
+
+import java.util.Set;
+
+public class PatientEventMapper {
+
+    // field mask paths, named after the PatientEvent fields
+    public static final String NAME = "name";
+    public static final String EMAIL = "email";
+    public static final String ADDRESS = "address";
+    public static final String DATE_OF_BIRTH = "date_of_birth";
+
+    public static PatientEvent toCreatedEvent(Patient patient) {
+        return toSnapshot(patient, PatientEventType.PATIENT_CREATED);
+    }
+
+    // full current state, as written to the compacted changelog topic; type is the change that produced it
+    public static PatientEvent toSnapshot(Patient patient, PatientEventType type) {
+        return PatientEvent.newBuilder()
+                .setPatientId(patient.getId().toString())
+                .setName(patient.getName())
+                .setEmail(patient.getEmail())
+                .setAddress(patient.getAddress())
+                .setDateOfBirth(patient.getDateOfBirth().toString())
+                .setRegisteredDate(patient.getRegisteredDate().toString())
+                .setType(type)
+                .setEventType(type.name())
+                .setVersion(patient.getVersion())
+                .build();
+    }
+
+    // delta: only the changed fields are filled in, and listed in changed_fields
+    public static PatientEvent toUpdatedEvent(Patient patient, Set<String> changedFields) {
+        PatientEvent.Builder event = PatientEvent.newBuilder()
+                .setPatientId(patient.getId().toString())
+                .setType(PatientEventType.PATIENT_UPDATED)
+                .setEventType(PatientEventType.PATIENT_UPDATED.name())
+                .setVersion(patient.getVersion())
+                .setChangedFields(FieldMask.newBuilder().addAllPaths(changedFields));
+        if (changedFields.contains(NAME)) {
+            event.setName(patient.getName());
+        }
+        if (changedFields.contains(EMAIL)) {
+            event.setEmail(patient.getEmail());
+        }
+        if (changedFields.contains(ADDRESS)) {
+            event.setAddress(patient.getAddress());
+        }
+        if (changedFields.contains(DATE_OF_BIRTH)) {
+            event.setDateOfBirth(patient.getDateOfBirth().toString());
+        }
+        return event.build();
+    }
+
+    // tombstone: consumers drop the patient from their views
+    public static PatientEvent toDeletedEvent(Patient patient) {
+        return PatientEvent.newBuilder()
+                .setPatientId(patient.getId().toString())
+                .setType(PatientEventType.PATIENT_DELETED)
+                .setEventType(PatientEventType.PATIENT_DELETED.name())
+                .setVersion(patient.getVersion() + 1)
+                .build();
+    }
+}
@@ -5,6 +5,7 @@ import com.pm.patientservice.dto.PatientResponseDTO;
 import com.pm.patientservice.model.Patient;
 
 import java.time.LocalDate;
+import java.util.UUID;
 
 public class PatientMapper {
     public static PatientResponseDTO toDTO(Patient patient){
@@ -14,10 +15,14 @@ public class PatientMapper {
         patientDTO.setAddress(patient.getAddress());
         patientDTO.setEmail(patient.getEmail());
         patientDTO.setDateOfBirth(patient.getDateOfBirth().toString());
+        if (patient.getBillingStatus() != null) {
+            patientDTO.setBillingStatus(patient.getBillingStatus().name());
+        }
         return patientDTO;
     }
     public static Patient toModel (PatientRequestDTO patientRequestDTO){
         Patient patient =  new Patient();
+        patient.setId(UUID.randomUUID());
         patient.setName(patientRequestDTO.getName());
         patient.setAddress(patientRequestDTO.getAddress());
         patient.setEmail(patientRequestDTO.getEmail());
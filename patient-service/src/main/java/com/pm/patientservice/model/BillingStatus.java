@@ -0,0 +1,8 @@
+package com.pm.patientservice.model;
+
+// Where the patient's billing account is. Creation happens in the background after the patient is saved.
+public enum BillingStatus {
+    PENDING,
+    ACTIVE,
+    FAILED
+}
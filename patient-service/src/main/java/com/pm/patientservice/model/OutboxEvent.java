@@ -0,0 +1,113 @@
+package com.pm.patientservice.model;
+
+import jakarta.persistence.*;
+import org.springframework.data.domain.Persistable;
+
+import java.time.Instant;
+import java.util.UUID;
+
+// A PatientEvent waiting to be published to Kafka.
+// Written in the same transaction as the patient change, so the event exists if and only if the change committed.
+@Entity
+@Table(name = "patient_outbox")
+public class OutboxEvent implements Persistable<UUID> {
+    @Id
+    private UUID id;
+
+    @Column(nullable = false)
+    private String topic;
+
+    @Column(nullable = false)
+    private UUID aggregateId;
+
+    @Column(nullable = false)
+    private String eventType;
+
+    // null for a tombstone on the compacted changelog topic
+    private byte[] payload;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+
+    // null until the relay has had the record acknowledged by the broker
+    private Instant sentAt;
+
+    // lease of the relay instance currently sending the row, null while nobody has claimed it
+    private Instant claimedUntil;
+
+    // W3C traceparent of the request that wrote the event, null when it was not traced
+    @Column(length = 64)
+    private String traceParent;
+
+    // ids are assigned here, so tell Spring Data a fresh event is new instead of letting it SELECT first
+    @Transient
+    private boolean isNew = true;
+
+    protected OutboxEvent() {
+    }
+
+    public OutboxEvent(String topic, UUID aggregateId, String eventType, byte[] payload) {
+        this.id = UUID.randomUUID();
+        this.topic = topic;
+        this.aggregateId = aggregateId;
+        this.eventType = eventType;
+        this.payload = payload;
+        this.createdAt = Instant.now();
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.isNew = false;
+    }
+
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
+
+    @Override
+    public UUID getId() {
+        return id;
+    }
+
+    public String getTopic() {
+        return topic;
+    }
+
+    public UUID getAggregateId() {
+        return aggregateId;
+    }
+
+    public String getEventType() {
+        return eventType;
+    }
+
+    public byte[] getPayload() {
+        return payload;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public Instant getSentAt() {
+        return sentAt;
+    }
+
+    public void setSentAt(Instant sentAt) {
+        this.sentAt = sentAt;
+    }
+
+    public Instant getClaimedUntil() {
+        return claimedUntil;
+    }
+
+    public String getTraceParent() {
+        return traceParent;
+    }
+
+    public void setTraceParent(String traceParent) {
+        this.traceParent = traceParent;
+    }
+}
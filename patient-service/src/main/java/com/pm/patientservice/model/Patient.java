@@ -3,14 +3,21 @@ package com.pm.patientservice.model;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotNull;
+import org.hibernate.annotations.DynamicUpdate;
+import org.springframework.data.domain.Persistable;
 
+import java.time.Instant;
 import java.time.LocalDate;
 import java.util.UUID;
 
 @Entity
-public class Patient { //这句话是说：“我要创建一个叫 Patient（病人）的模板”。 像做饺子的模具一样，它是一个模板，告诉我们每一个“病人”应该有什么。
+// UPDATE 只写改过的列：billing 状态是后台用 bulk UPDATE 改的（PatientRepository.updateBillingStatus），
+// 同时进行的 PUT 不会再把旧的 billing_status / billing_account_id 写回去
+@DynamicUpdate
+public class Patient implements Persistable<UUID> { //这句话是说：“我要创建一个叫 Patient（病人）的模板”。 像做饺子的模具一样，它是一个模板，告诉我们每一个“病人”应该有什么。
     @Id //这是说：“下面这个字段是唯一编号”，就像你考试的学号，不能重复。
-    @GeneratedValue(strategy = GenerationType.AUTO)//这句是说：“这个编号是自动生成的”，不需要我们自己来写编号，电脑会自动帮我们生成。
+    //编号由应用自己生成（PatientMapper.toModel 里 UUID.randomUUID()），不再用 @GeneratedValue，
+    //这样 Hibernate 不用每行等数据库返回 id，可以把 INSERT 攒成 JDBC batch 一起发（见 /patients/bulk）
     private UUID id; //这句话是说：“每个病人都有一个编号（id），它是UUID类型”。UUID 是一种特别的编号，比如：123e4567-e89b-12d3-a456-426614174000，用来保证每个人的编号都不一样。
 
     @NotNull
@@ -42,10 +49,43 @@ public class Patient { //这句话是说：“我要创建一个叫 Patient（
     @NotNull
     private LocalDate registeredDate;//这是“注册日期”，表示病人什么时候登记的，也是年月日格式，不含时间。
 
+    @Enumerated(EnumType.STRING)
+    private BillingStatus billingStatus;//billing 账户是在后台异步创建的，这里记录进度：PENDING / ACTIVE / FAILED
 
+    private String billingAccountId;//billing-service 返回的账户编号，创建成功之前是 null
 
+    private Instant billingRequestedAt;//最近一次把 billing 请求交给后台的时间；PENDING 太久没变说明请求丢了（比如进程重启），会被重新提交
+
+    @Version
+    private long version;//每次修改 +1（乐观锁），同时作为 PatientEvent.version，消费者用它丢弃乱序/重复的事件
+
+
+
+    // 新建的对象是 new，从数据库读出来或者已经保存过的就不是。
+    // 有了它 save() 对新病人直接 INSERT，不会因为 id 已经有值就先 SELECT 再 merge。
+    @Transient
+    private boolean isNew = true;
+
+    @PrePersist
+    void assignId() {
+        if (id == null) {
+            id = UUID.randomUUID();
+        }
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.isNew = false;
+    }
+
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
 
 // 下面是generate getter setter:
+    @Override
     public UUID getId() {
         return id;
     }
@@ -94,4 +134,32 @@ public class Patient { //这句话是说：“我要创建一个叫 Patient（
         this.registeredDate = registeredDate;
     }
 
+    public BillingStatus getBillingStatus() {
+        return billingStatus;
+    }
+
+    public void setBillingStatus(BillingStatus billingStatus) {
+        this.billingStatus = billingStatus;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public Instant getBillingRequestedAt() {
+        return billingRequestedAt;
+    }
+
+    public void setBillingRequestedAt(Instant billingRequestedAt) {
+        this.billingRequestedAt = billingRequestedAt;
+    }
+
+    public String getBillingAccountId() {
+        return billingAccountId;
+    }
+
+    public void setBillingAccountId(String billingAccountId) {
+        this.billingAccountId = billingAccountId;
+    }
+
 }
@@ -0,0 +1,61 @@
+package com.pm.patientservice.repository;
+
+import com.pm.patientservice.model.OutboxEvent;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, UUID> {
+
+    // Oldest unsent, unclaimed (or lease expired) events first. SKIP LOCKED (lock timeout -2) lets several
+    // patient-service instances claim at the same time without claiming a row twice; the row lock only
+    // lasts until the claim commits, the lease (claimedUntil) keeps other instances away while sending.
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT e FROM OutboxEvent e WHERE e.sentAt IS NULL"
+            + " AND (e.claimedUntil IS NULL OR e.claimedUntil < :now) ORDER BY e.createdAt")
+    List<OutboxEvent> lockNextBatch(Instant now, Limit limit);
+
+    // what the relay needs to know about an unsent event it has not locked itself
+    interface UnsentEvent {
+        String getTopic();
+
+        UUID getAggregateId();
+
+        Instant getCreatedAt();
+    }
+
+    // Unsent events of these aggregates outside the given ids, created before `before`: claimed or just being
+    // claimed by another instance, or waiting in its retry buffer. Plain read, no lock.
+    @Query("SELECT e.topic AS topic, e.aggregateId AS aggregateId, e.createdAt AS createdAt FROM OutboxEvent e"
+            + " WHERE e.sentAt IS NULL AND e.aggregateId IN :aggregateIds AND e.id NOT IN :ids AND e.createdAt < :before")
+    List<UnsentEvent> findOtherUnsent(Collection<UUID> aggregateIds, Collection<UUID> ids, Instant before);
+
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.claimedUntil = :claimedUntil WHERE e.id IN :ids")
+    int claim(Collection<UUID> ids, Instant claimedUntil);
+
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.claimedUntil = NULL WHERE e.id IN :ids AND e.sentAt IS NULL")
+    int release(Collection<UUID> ids);
+
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.sentAt = :sentAt WHERE e.id IN :ids")
+    int markSent(Collection<UUID> ids, Instant sentAt);
+
+    @Modifying
+    @Query("DELETE FROM OutboxEvent e WHERE e.sentAt < :before")
+    int deleteSentBefore(Instant before);
+}
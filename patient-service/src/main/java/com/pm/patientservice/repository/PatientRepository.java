@@ -1,12 +1,61 @@
 package com.pm.patientservice.repository;
+import com.pm.patientservice.model.BillingStatus;
 import com.pm.patientservice.model.Patient;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 @Repository
-public interface PatientRepository extends JpaRepository<Patient,UUID> {
+public interface PatientRepository extends JpaRepository<Patient,UUID>, JpaSpecificationExecutor<Patient> {
     boolean existsByEmail(String email);
     boolean existsByEmailAndIdNot( String email, UUID id);
+
+    // one round trip for a whole chunk of emails instead of N existsByEmail calls
+    @Query("SELECT p.email FROM Patient p WHERE p.email IN :emails")
+    Set<String> findExistingEmails(Collection<String> emails);
+
+    // Leaves version alone on purpose: version is published as PatientEvent.version and billing changes
+    // emit no event. Patient is @DynamicUpdate, so a concurrent PUT does not write these columns back.
+    @Modifying
+    @Query("UPDATE Patient p SET p.billingStatus = :status, p.billingAccountId = :accountId WHERE p.id = :id")
+    int updateBillingStatus(UUID id, BillingStatus status, String accountId);
+
+    // PENDING rows whose billing request was handed out before :before and never answered (lost on a restart).
+    // SKIP LOCKED (lock timeout -2) so two instances never resubmit the same rows in the same sweep.
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT p FROM Patient p WHERE p.billingStatus = :status"
+            + " AND (p.billingRequestedAt IS NULL OR p.billingRequestedAt < :before) ORDER BY p.billingRequestedAt")
+    List<Patient> lockStaleBilling(BillingStatus status, Instant before, Limit limit);
+
+    @Modifying
+    @Query("UPDATE Patient p SET p.billingRequestedAt = :requestedAt WHERE p.id IN :ids")
+    int markBillingRequested(Collection<UUID> ids, Instant requestedAt);
+
+    int EXPORT_FETCH_SIZE = 1000;
+
+    // Full-table cursor for /patients/export. Must be consumed inside a read-only transaction,
+    // otherwise the PostgreSQL driver ignores the fetch size and buffers the whole result set.
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + EXPORT_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false")
+    })
+    @Query("SELECT p FROM Patient p ORDER BY p.registeredDate, p.id")
+    Stream<Patient> streamAllForExport();
 }
@@ -0,0 +1,65 @@
+package com.pm.patientservice.repository;
+
+import com.pm.patientservice.model.Patient;
+import com.pm.patientservice.util.PatientCursor;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDate;
+import java.util.Locale;
+
+// Building blocks for the filtered, keyset-paginated patient list.
+// Every predicate here is backed by an index created in data.sql.
+public final class PatientSpecifications {
+
+    // Stable order used by the keyset; id breaks ties between patients registered on the same day.
+    public static final Sort KEYSET_SORT = Sort.by("registeredDate", "id");
+
+    private PatientSpecifications() {
+    }
+
+    public static Specification<Patient> nameStartsWith(String prefix) {
+        if (prefix == null || prefix.isBlank()) {
+            return null;
+        }
+        String pattern = escapeLike(prefix.toLowerCase(Locale.ROOT)) + "%";
+        return (root, query, cb) -> cb.like(cb.lower(root.get("name")), pattern, '\\');
+    }
+
+    public static Specification<Patient> emailEquals(String email) {
+        if (email == null || email.isBlank()) {
+            return null;
+        }
+        return (root, query, cb) -> cb.equal(root.get("email"), email);
+    }
+
+    public static Specification<Patient> bornOnOrAfter(LocalDate from) {
+        if (from == null) {
+            return null;
+        }
+        return (root, query, cb) -> cb.greaterThanOrEqualTo(root.get("dateOfBirth"), from);
+    }
+
+    public static Specification<Patient> bornOnOrBefore(LocalDate to) {
+        if (to == null) {
+            return null;
+        }
+        return (root, query, cb) -> cb.lessThanOrEqualTo(root.get("dateOfBirth"), to);
+    }
+
+    // (registeredDate, id) > (cursor.registeredDate, cursor.id)
+    public static Specification<Patient> after(PatientCursor cursor) {
+        if (cursor == null) {
+            return null;
+        }
+        return (root, query, cb) -> cb.or(
+                cb.greaterThan(root.get("registeredDate"), cursor.registeredDate()),
+                cb.and(
+                        cb.equal(root.get("registeredDate"), cursor.registeredDate()),
+                        cb.greaterThan(root.get("id"), cursor.id())));
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
@@ -0,0 +1,208 @@
+package com.pm.patientservice.service;
+
+import billing.BillingResponse;
+import com.pm.patientservice.cache.PatientCache;
+import com.pm.patientservice.exception.BillingBackpressureException;
+import com.pm.patientservice.grpc.BillingBatchClient;
+import com.pm.patientservice.grpc.BillingServiceGrpcClient;
+import com.pm.patientservice.model.BillingStatus;
+import com.pm.patientservice.model.Patient;
+import com.pm.patientservice.repository.PatientRepository;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Creates billing accounts in the background so POST /patients does not wait for billing-service.
+// The patient is saved as PENDING; once billing answers it becomes ACTIVE, or FAILED after max-attempts.
+// Requests only live in memory, so a sweep resubmits rows that have been PENDING for longer than
+// resubmit-after (the instance that owned them restarted). billing-service is idempotent by patientId,
+// so resubmitting a request that was merely slow is harmless.
+@Slf4j
+@Service
+public class BillingAccountService {
+
+    // transient gRPC failures worth another try; anything else (INVALID_ARGUMENT, ...) fails immediately
+    private static final Set<Status.Code> RETRYABLE = Set.of(
+            Status.Code.UNAVAILABLE,
+            Status.Code.DEADLINE_EXCEEDED,
+            Status.Code.RESOURCE_EXHAUSTED,
+            Status.Code.ABORTED);
+
+    private final BillingServiceGrpcClient billingServiceGrpcClient;
+    private final BillingBatchClient billingBatchClient;
+    // true: coalesce creates into BatchCreateBillingAccounts streams instead of one unary call each
+    private final boolean batching;
+    private final PatientRepository patientRepository;
+    private final PatientCache patientCache;
+    private final TransactionTemplate transactionTemplate;
+    // schedules retries after their backoff, never the gRPC call itself
+    private final ScheduledExecutorService executor;
+    // runs the completion callbacks (status writes block on JDBC): one virtual thread per callback
+    // in virtual-thread mode, otherwise the same small pool as the retries
+    private final ExecutorService worker;
+    private final int maxAttempts;
+    private final long initialBackoffMs;
+    private final Duration resubmitAfter;
+    private final int resubmitBatchSize;
+
+    public BillingAccountService(BillingServiceGrpcClient billingServiceGrpcClient,
+                                 BillingBatchClient billingBatchClient,
+                                 @Value("${billing.service.grpc.batch.enabled:false}") boolean batching,
+                                 PatientRepository patientRepository,
+                                 PatientCache patientCache,
+                                 TransactionTemplate transactionTemplate,
+                                 @Value("${billing.account.max-attempts:5}") int maxAttempts,
+                                 @Value("${billing.account.initial-backoff-ms:200}") long initialBackoffMs,
+                                 @Value("${billing.account.resubmit-after:PT2M}") Duration resubmitAfter,
+                                 @Value("${billing.account.resubmit-batch-size:500}") int resubmitBatchSize,
+                                 @Value("${billing.account.worker-threads:2}") int workerThreads,
+                                 @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.billingServiceGrpcClient = billingServiceGrpcClient;
+        this.billingBatchClient = billingBatchClient;
+        this.batching = batching;
+        this.patientRepository = patientRepository;
+        this.patientCache = patientCache;
+        this.transactionTemplate = transactionTemplate;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffMs = initialBackoffMs;
+        this.resubmitAfter = resubmitAfter;
+        this.resubmitBatchSize = resubmitBatchSize;
+        this.executor = Executors.newScheduledThreadPool(workerThreads);
+        this.worker = virtualThreads ? Executors.newVirtualThreadPerTaskExecutor() : executor;
+    }
+
+    // Starts billing creation once the surrounding transaction has committed,
+    // so billing-service never hears about a patient that was rolled back.
+    public void requestAccount(Patient patient) {
+        requestAccounts(List.of(patient), batching);
+    }
+
+    // Bulk import: always goes through BatchCreateBillingAccounts, whatever the batching switch says.
+    public void requestAccounts(List<Patient> patients) {
+        requestAccounts(patients, true);
+    }
+
+    private void requestAccounts(List<Patient> patients, boolean useBatch) {
+        List<BillingTarget> targets = patients.stream()
+                .map(p -> new BillingTarget(p.getId(), p.getName(), p.getEmail()))
+                .toList();
+        Runnable start = () -> targets.forEach(target -> submit(target, 1, useBatch));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    start.run();
+                }
+            });
+        } else {
+            start.run();
+        }
+    }
+
+    private record BillingTarget(UUID id, String name, String email) {
+    }
+
+    // Runs shortly after startup and then periodically. The rows are claimed by moving billing_requested_at
+    // to now inside the locking transaction, so they are not picked up again before resubmit-after.
+    @Scheduled(initialDelayString = "${billing.account.resubmit-initial-delay-ms:10000}",
+            fixedDelayString = "${billing.account.resubmit-interval-ms:60000}")
+    public void resubmitStale() {
+        List<BillingTarget> stale = transactionTemplate.execute(tx -> {
+            Instant now = Instant.now();
+            List<Patient> patients = patientRepository.lockStaleBilling(BillingStatus.PENDING,
+                    now.minus(resubmitAfter), Limit.of(resubmitBatchSize));
+            if (patients.isEmpty()) {
+                return List.<BillingTarget>of();
+            }
+            patientRepository.markBillingRequested(patients.stream().map(Patient::getId).toList(), now);
+            return patients.stream()
+                    .map(p -> new BillingTarget(p.getId(), p.getName(), p.getEmail()))
+                    .toList();
+        });
+        if (stale == null || stale.isEmpty()) {
+            return;
+        }
+        log.warn("Resubmitting {} billing accounts left PENDING for more than {}", stale.size(), resubmitAfter);
+        stale.forEach(target -> submit(target, 1, batching));
+    }
+
+    private void submit(BillingTarget target, int attempt, boolean useBatch) {
+        CompletableFuture<BillingResponse> call = useBatch
+                ? billingBatchClient.createBillingAccount(target.id().toString(), target.name(), target.email())
+                : billingServiceGrpcClient.createBillingAccount(target.id().toString(), target.name(), target.email());
+        call.whenCompleteAsync((response, ex) -> {
+            if (ex == null) {
+                onSuccess(target.id(), response);
+            } else {
+                onFailure(target, attempt, useBatch, unwrap(ex));
+            }
+        }, worker);
+    }
+
+    private void onSuccess(UUID id, BillingResponse response) {
+        updateStatus(id, BillingStatus.ACTIVE, response.getAccountId());
+    }
+
+    private void onFailure(BillingTarget target, int attempt, boolean useBatch, Throwable ex) {
+        UUID id = target.id();
+        if (attempt < maxAttempts && isRetryable(ex)) {
+            long backoff = initialBackoffMs << (attempt - 1);
+            log.warn("Billing account for patient {} failed (attempt {}/{}), retrying in {} ms: {}",
+                    id, attempt, maxAttempts, backoff, ex.getMessage());
+            executor.schedule(() -> submit(target, attempt + 1, useBatch), backoff, TimeUnit.MILLISECONDS);
+            return;
+        }
+        log.error("Giving up on billing account for patient {} after {} attempts: {}",
+                id, attempt, ex.getMessage());
+        updateStatus(id, BillingStatus.FAILED, null);
+    }
+
+    private void updateStatus(UUID id, BillingStatus status, String accountId) {
+        try {
+            transactionTemplate.executeWithoutResult(tx -> {
+                patientRepository.updateBillingStatus(id, status, accountId);
+                // the bulk UPDATE bypasses the entity, so the cached DTO still shows the old status
+                patientCache.evict(id);
+            });
+        } catch (RuntimeException e) {
+            log.error("Could not record billing status {} for patient {}: {}", status, id, e.getMessage());
+        }
+    }
+
+    private static boolean isRetryable(Throwable ex) {
+        if (ex instanceof BillingBackpressureException) {
+            return true;
+        }
+        return ex instanceof StatusRuntimeException sre && RETRYABLE.contains(sre.getStatus().getCode());
+    }
+
+    private static Throwable unwrap(Throwable ex) {
+        return ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+        worker.shutdown();
+    }
+}
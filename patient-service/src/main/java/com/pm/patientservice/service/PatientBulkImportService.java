@@ -0,0 +1,277 @@
+package com.pm.patientservice.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import com.pm.patientservice.dto.BulkImportResponseDTO;
+import com.pm.patientservice.dto.BulkImportRowResultDTO;
+import com.pm.patientservice.dto.PatientRequestDTO;
+import com.pm.patientservice.dto.validators.CreatePatientValidationGroup;
+import com.pm.patientservice.kafka.PatientEventOutbox;
+import com.pm.patientservice.mapper.PatientMapper;
+import com.pm.patientservice.model.BillingStatus;
+import com.pm.patientservice.model.Patient;
+import com.pm.patientservice.repository.PatientRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import jakarta.validation.groups.Default;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// POST /patients/bulk: onboarding a whole clinic in one request.
+// All rows are validated first, email uniqueness is checked with set-based queries,
+// and the valid rows are inserted with Hibernate JDBC batching (hibernate.jdbc.batch_size).
+// Each insert chunk commits on its own. If another request takes one of the emails between the check
+// and the insert, the unique constraint rolls that chunk back; the taken emails are looked up again,
+// reported as DUPLICATE_EMAIL and the rest of the chunk is inserted again.
+@Slf4j
+@Service
+public class PatientBulkImportService {
+
+    // keeps the IN (...) list of the email check well below driver parameter limits
+    private static final int EMAIL_CHECK_CHUNK = 1000;
+
+    private final PatientRepository patientRepository;
+    private final PatientEventOutbox patientEventOutbox;
+    private final BillingAccountService billingAccountService;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final ObjectReader ndjsonReader;
+    private final ObjectReader csvReader;
+    private final int maxRows;
+    private final int insertChunk;
+
+    public PatientBulkImportService(PatientRepository patientRepository,
+                                    PatientEventOutbox patientEventOutbox,
+                                    BillingAccountService billingAccountService,
+                                    EntityManager entityManager,
+                                    TransactionTemplate transactionTemplate,
+                                    Validator validator,
+                                    ObjectMapper objectMapper,
+                                    @Value("${patient.bulk.max-rows:10000}") int maxRows,
+                                    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:500}") int insertChunk) {
+        this.patientRepository = patientRepository;
+        this.patientEventOutbox = patientEventOutbox;
+        this.billingAccountService = billingAccountService;
+        this.entityManager = entityManager;
+        this.transactionTemplate = transactionTemplate;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.ndjsonReader = objectMapper.readerFor(PatientRequestDTO.class);
+        this.csvReader = new CsvMapper().readerFor(PatientRequestDTO.class)
+                .with(CsvSchema.emptySchema().withHeader());
+        this.maxRows = maxRows;
+        this.insertChunk = insertChunk;
+    }
+
+    // [ {...}, {...} ]: parsed one element at a time, max-rows is enforced while reading
+    public List<PatientRequestDTO> readJsonArray(InputStream in) throws IOException {
+        List<PatientRequestDTO> rows = new ArrayList<>();
+        try (JsonParser parser = objectMapper.createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Expected a JSON array of patients");
+            }
+            JsonToken token;
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if (token == null) {
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unterminated JSON array");
+                }
+                rows.add(ndjsonReader.readValue(parser));
+                checkSize(rows.size());
+            }
+        } catch (JsonProcessingException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Unreadable row " + (rows.size() + 1) + ": " + e.getOriginalMessage());
+        }
+        return rows;
+    }
+
+    // one JSON object per line
+    public List<PatientRequestDTO> readNdjson(InputStream in) throws IOException {
+        return readAll(ndjsonReader, in);
+    }
+
+    // header line: name,email,address,dateOfBirth,registeredDate
+    public List<PatientRequestDTO> readCsv(InputStream in) throws IOException {
+        return readAll(csvReader, in);
+    }
+
+    private List<PatientRequestDTO> readAll(ObjectReader reader, InputStream in) throws IOException {
+        List<PatientRequestDTO> rows = new ArrayList<>();
+        try (MappingIterator<PatientRequestDTO> iterator = reader.readValues(in)) {
+            while (iterator.hasNext()) {
+                rows.add(iterator.next());
+                checkSize(rows.size());
+            }
+        } catch (JsonProcessingException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Unreadable row " + (rows.size() + 1) + ": " + e.getOriginalMessage());
+        }
+        return rows;
+    }
+
+    public BulkImportResponseDTO importPatients(List<PatientRequestDTO> rows) {
+        checkSize(rows.size());
+        List<BulkImportRowResultDTO> results = new ArrayList<>(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            results.add(null);
+        }
+
+        // 1. per-row validation, same rules as POST /patients
+        List<Integer> candidates = new ArrayList<>(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            Map<String, String> errors = validate(rows.get(i));
+            if (errors.isEmpty()) {
+                candidates.add(i);
+            } else {
+                results.set(i, new BulkImportRowResultDTO(i + 1, BulkImportRowResultDTO.INVALID, null, errors));
+            }
+        }
+
+        // 2. email uniqueness: within the request, then against the table in chunks
+        Set<String> existing = findExistingEmails(candidates.stream().map(i -> rows.get(i).getEmail()).toList());
+        Set<String> seen = new HashSet<>();
+        List<Integer> accepted = new ArrayList<>(candidates.size());
+        for (int i : candidates) {
+            String email = rows.get(i).getEmail();
+            if (existing.contains(email) || !seen.add(email)) {
+                results.set(i, new BulkImportRowResultDTO(i + 1, BulkImportRowResultDTO.DUPLICATE_EMAIL, null,
+                        Map.of("email", "Email address already exists")));
+            } else {
+                accepted.add(i);
+            }
+        }
+
+        // 3. batched insert, one transaction per chunk
+        int created = 0;
+        for (int from = 0; from < accepted.size(); from += insertChunk) {
+            created += insertChunk(rows, accepted.subList(from, Math.min(from + insertChunk, accepted.size())),
+                    results);
+        }
+
+        log.info("Bulk import: {} rows, {} created", rows.size(), created);
+        return new BulkImportResponseDTO(created, rows.size() - created, results);
+    }
+
+    // inserts the rows at the given indexes, retrying without any email that was taken in the meantime
+    private int insertChunk(List<PatientRequestDTO> rows, List<Integer> indexes,
+                            List<BulkImportRowResultDTO> results) {
+        List<Integer> pending = new ArrayList<>(indexes);
+        while (!pending.isEmpty()) {
+            try {
+                List<Patient> chunk = transactionTemplate.execute(tx -> insert(rows, pending));
+                for (int k = 0; k < pending.size(); k++) {
+                    int i = pending.get(k);
+                    results.set(i, new BulkImportRowResultDTO(i + 1, BulkImportRowResultDTO.CREATED,
+                            chunk.get(k).getId().toString(), null));
+                }
+                return pending.size();
+            } catch (DataIntegrityViolationException e) {
+                Set<String> taken = patientRepository.findExistingEmails(
+                        pending.stream().map(i -> rows.get(i).getEmail()).toList());
+                if (taken.isEmpty()) {
+                    // not an email race: some other constraint, let it fail the request
+                    throw e;
+                }
+                log.info("Bulk import: {} emails were taken concurrently, retrying the chunk without them",
+                        taken.size());
+                pending.removeIf(i -> {
+                    if (!taken.contains(rows.get(i).getEmail())) {
+                        return false;
+                    }
+                    results.set(i, new BulkImportRowResultDTO(i + 1, BulkImportRowResultDTO.DUPLICATE_EMAIL, null,
+                            Map.of("email", "Email address already exists")));
+                    return true;
+                });
+            }
+        }
+        return 0;
+    }
+
+    // runs inside the chunk transaction; flush + clear so the persistence context stays small
+    private List<Patient> insert(List<PatientRequestDTO> rows, List<Integer> indexes) {
+        Instant requestedAt = Instant.now();
+        List<Patient> chunk = new ArrayList<>(indexes.size());
+        for (int i : indexes) {
+            Patient patient = PatientMapper.toModel(rows.get(i));
+            patient.setBillingStatus(BillingStatus.PENDING);
+            patient.setBillingRequestedAt(requestedAt);
+            chunk.add(patient);
+        }
+        patientRepository.saveAll(chunk);
+        patientEventOutbox.patientsCreated(chunk);
+        // through the repository so a constraint violation comes back as DataIntegrityViolationException
+        patientRepository.flush();
+        entityManager.clear();
+        // billing goes out after this chunk commits, coalesced into BatchCreateBillingAccounts streams
+        billingAccountService.requestAccounts(chunk);
+        return chunk;
+    }
+
+    private Map<String, String> validate(PatientRequestDTO row) {
+        Map<String, String> errors = new LinkedHashMap<>();
+        if (row == null) {
+            errors.put("row", "Empty row");
+            return errors;
+        }
+        for (ConstraintViolation<PatientRequestDTO> violation :
+                validator.validate(row, Default.class, CreatePatientValidationGroup.class)) {
+            errors.putIfAbsent(violation.getPropertyPath().toString(), violation.getMessage());
+        }
+        checkDate(errors, "dateOfBirth", row.getDateOfBirth());
+        checkDate(errors, "registeredDate", row.getRegisteredDate());
+        return errors;
+    }
+
+    private static void checkDate(Map<String, String> errors, String field, String value) {
+        if (value == null || value.isBlank() || errors.containsKey(field)) {
+            return;
+        }
+        try {
+            LocalDate.parse(value);
+        } catch (DateTimeParseException e) {
+            errors.put(field, "Date must be in yyyy-MM-dd format");
+        }
+    }
+
+    private Set<String> findExistingEmails(List<String> emails) {
+        Set<String> existing = new HashSet<>();
+        for (int from = 0; from < emails.size(); from += EMAIL_CHECK_CHUNK) {
+            existing.addAll(patientRepository.findExistingEmails(
+                    emails.subList(from, Math.min(from + EMAIL_CHECK_CHUNK, emails.size()))));
+        }
+        return existing;
+    }
+
+    private void checkSize(int rows) {
+        if (rows > maxRows) {
+            throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                    "Bulk import is limited to " + maxRows + " rows");
+        }
+    }
+}
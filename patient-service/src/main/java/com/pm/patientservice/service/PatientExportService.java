@@ -0,0 +1,101 @@
+package com.pm.patientservice.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.pm.patientservice.mapper.PatientMapper;
+import com.pm.patientservice.model.Patient;
+import com.pm.patientservice.repository.PatientRepository;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import patient.export.PatientRecord;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+// Streams the whole patient table straight from the JDBC cursor to the response.
+// Only one Patient is alive at a time, so heap use does not grow with the table.
+@Slf4j
+@Service
+public class PatientExportService {
+
+    private final PatientRepository patientRepository;
+    private final EntityManager entityManager;
+    private final ObjectWriter patientWriter;
+
+    public PatientExportService(PatientRepository patientRepository, EntityManager entityManager,
+                                ObjectMapper objectMapper) {
+        this.patientRepository = patientRepository;
+        this.entityManager = entityManager;
+        // no root value separator: Jackson would otherwise put a space before every line after the first
+        this.patientWriter = objectMapper.writer().withRootValueSeparator("");
+    }
+
+    // one JSON object per line (application/x-ndjson)
+    @Transactional(readOnly = true)
+    public long exportNdjson(OutputStream out) throws IOException {
+        try (JsonGenerator generator = patientWriter.createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            long count = forEachPatient(patient -> {
+                try {
+                    patientWriter.writeValue(generator, PatientMapper.toDTO(patient));
+                    generator.writeRaw('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            generator.flush();
+            return count;
+        }
+    }
+
+    // length-delimited PatientRecord messages (application/x-protobuf)
+    @Transactional(readOnly = true)
+    public long exportProtobuf(OutputStream out) throws IOException {
+        long count = forEachPatient(patient -> {
+            try {
+                toRecord(patient).writeDelimitedTo(out);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        out.flush();
+        return count;
+    }
+
+    private long forEachPatient(Consumer<Patient> sink) throws IOException {
+        long count = 0;
+        try (Stream<Patient> patients = patientRepository.streamAllForExport()) {
+            Iterator<Patient> iterator = patients.iterator();
+            while (iterator.hasNext()) {
+                Patient patient = iterator.next();
+                sink.accept(patient);
+                // keep the persistence context from holding every row we have already written
+                entityManager.detach(patient);
+                count++;
+            }
+        } catch (UncheckedIOException e) {
+            // client went away mid-export; nothing to roll back, just stop reading
+            throw e.getCause();
+        }
+        log.info("Exported {} patients", count);
+        return count;
+    }
+
+    private static PatientRecord toRecord(Patient patient) {
+        return PatientRecord.newBuilder()
+                .setId(patient.getId().toString())
+                .setName(patient.getName())
+                .setEmail(patient.getEmail())
+                .setAddress(patient.getAddress())
+                .setDateOfBirth(patient.getDateOfBirth().toString())
+                .setRegisteredDate(patient.getRegisteredDate().toString())
+                .build();
+    }
+}
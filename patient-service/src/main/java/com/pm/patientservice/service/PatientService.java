@@ -1,69 +1,106 @@
 package com.pm.patientservice.service;
 
+import com.pm.patientservice.cache.PatientCache;
+import com.pm.patientservice.dto.PatientPageResponseDTO;
 import com.pm.patientservice.dto.PatientRequestDTO;
 import com.pm.patientservice.dto.PatientResponseDTO;
 import com.pm.patientservice.exception.EmailAlreadyExistsException;
 import com.pm.patientservice.exception.PatientNotFoundException;
-//import com.pm.patientservice.grpc.BillingServiceGrpcClient;
-//import com.pm.patientservice.kafka.KafkaProducer;
-import com.pm.patientservice.grpc.BillingServiceGrpcClient;
-import com.pm.patientservice.kafka.KafkaProducer;
+import com.pm.patientservice.kafka.PatientEventOutbox;
+import com.pm.patientservice.mapper.PatientEventMapper;
 import com.pm.patientservice.mapper.PatientMapper;
+import com.pm.patientservice.model.BillingStatus;
 import com.pm.patientservice.model.Patient;
 import com.pm.patientservice.repository.PatientRepository;
+import com.pm.patientservice.repository.PatientSpecifications;
+import com.pm.patientservice.util.PatientCursor;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Optional;
+import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 @Slf4j
 @Service //@Service 是一个注解，表示这个类是一个服务类（即包含业务逻辑的类）。
 public class PatientService {
     private final PatientRepository patientRepository;
-    private  final BillingServiceGrpcClient billingServiceGrpcClient;
-    private final KafkaProducer kafkaProducer;
+    private  final BillingAccountService billingAccountService;
+    private final PatientEventOutbox patientEventOutbox;
+    private final PatientCache patientCache;
 
 
-    public PatientService(PatientRepository patientRepository, BillingServiceGrpcClient billingServiceGrpcClient, KafkaProducer kafkaProducer) {
+    public PatientService(PatientRepository patientRepository, BillingAccountService billingAccountService,
+                          PatientEventOutbox patientEventOutbox, PatientCache patientCache) {
         //这是构造函数，它在创建 PatientService 对象时会注入一个 PatientRepository，也就是数据库操作的工具，帮助获取患者信息。
         this.patientRepository = patientRepository;
-        this.billingServiceGrpcClient = billingServiceGrpcClient;
-        this.kafkaProducer = kafkaProducer;
+        this.billingAccountService = billingAccountService;
+        this.patientEventOutbox = patientEventOutbox;
+        this.patientCache = patientCache;
     }
 
-    public List<PatientResponseDTO> getPatients() {
-        //这是一个方法，它会从数据库中获取所有患者的信息。
-        List<Patient> patients = patientRepository.findAll(); // findall() is a JPA method to create a query
-        //这一行代码是通过 patientRepository.findAll() 从数据库中获取所有的患者记录。
-        List<PatientResponseDTO> patientResponseDOTs =
-                patients.stream().map(PatientMapper::toDTO).toList();
-        //  before replace with lamda:  List<PatientResponseDTO>  patientResponseDOTs =
-        //patients.stream().map(patient -> PatientMapper.toDTO(patient)).toList();
-
-        //通过流（stream）处理患者数据
-        // patients.stream() 表示将患者列表变成一个流，
-        // map(PatientMapper::toDTO) 是用来将每个 Patient 对象转化为 PatientResponseDTO 对象，
-        // 最后 toList() 会把流转换回列表。
-
-        return patientResponseDOTs;
-        //方法返回的是一个 PatientResponseDTO 类型的列表，这样前端或者调用者就能看到患者信息的格式化结果了。
+    // 每一页最多返回多少条，防止一次把整张表拉出来
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 500;
+
+    public PatientPageResponseDTO getPatients(String namePrefix, String email,
+                                              LocalDate dobFrom, LocalDate dobTo,
+                                              String cursor, int size) {
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+
+        Specification<Patient> spec = Specification.allOf(
+                PatientSpecifications.nameStartsWith(namePrefix),
+                PatientSpecifications.emailEquals(email),
+                PatientSpecifications.bornOnOrAfter(dobFrom),
+                PatientSpecifications.bornOnOrBefore(dobTo),
+                PatientSpecifications.after(cursor == null ? null : PatientCursor.decode(cursor)));
+
+        // fetch one extra row to know whether there is a next page, without a COUNT(*)
+        List<Patient> patients = patientRepository.findBy(spec, query -> query
+                .sortBy(PatientSpecifications.KEYSET_SORT)
+                .limit(pageSize + 1)
+                .all());
+
+        boolean hasNext = patients.size() > pageSize;
+        List<Patient> page = hasNext ? patients.subList(0, pageSize) : patients;
+        String nextCursor = hasNext ? PatientCursor.of(page.get(pageSize - 1)).encode() : null;
+
+        return new PatientPageResponseDTO(page.stream().map(PatientMapper::toDTO).toList(), nextCursor);
+    }
+
+
+    // 按 id 查单个病人：先查 PatientCache，没命中才查数据库
+    public PatientResponseDTO getPatient(UUID id) {
+        PatientResponseDTO patient = patientCache.get(id);
+        if (patient == null) {
+            throw new PatientNotFoundException("Patient not found with ID:" + id);
+        }
+        return patient;
     }
 
 
     // service layer
 
+    @Transactional
     public PatientResponseDTO createPatient(PatientRequestDTO patientRequestDTO) {
         if (patientRepository.existsByEmail(patientRequestDTO.getEmail())) {
             throw new EmailAlreadyExistsException("A patient with this email is already" + patientRequestDTO.getEmail());
         }
-        Patient newPatient = patientRepository.save(PatientMapper.toModel(patientRequestDTO));
-        billingServiceGrpcClient.createBillingAccount(newPatient.getId().toString(), newPatient.getName(),newPatient.getEmail());
+        Patient patient = PatientMapper.toModel(patientRequestDTO);
+        patient.setBillingStatus(BillingStatus.PENDING);
+        patient.setBillingRequestedAt(Instant.now());
+        Patient newPatient = patientRepository.save(patient);
+        // billing 账户在事务提交后异步创建，不占用当前请求线程
+        billingAccountService.requestAccount(newPatient);
 
-        // add kafka
-        kafkaProducer.sendEvent(newPatient);
+        // add kafka: 写进 outbox 表，和 patient 同一个事务提交，由 OutboxRelay 在后台批量发送
+        patientEventOutbox.patientCreated(newPatient);
 
         return PatientMapper.toDTO(newPatient);
     }
@@ -89,27 +126,14 @@ public class PatientService {
     //（比如像“厨房的原材料” vs “餐桌上的菜”那样的比喻）
 
 
+    @Transactional
     public PatientResponseDTO updatePatient(UUID id, PatientRequestDTO patientRequestDTO) {
         //打log debug
         log.info("🚀 Received request to update patient with id: {}", id);
         log.info("Looking for patient with id: " + id); // 打印ID，确认请求进来的是正确的
 
 
-        // 直接查数据库
-        Optional<Patient> patientOptional = patientRepository.findById(id);
-
-        log.info("🔍 Database query result - Patient found: {}", patientOptional.isPresent());
-        // 打印是否找到Patient
-
-        if (!patientOptional.isPresent()) {
-            throw new PatientNotFoundException("Patient with id " + id + " not found");
-        }
-
-        // 如果查到了，继续走正常逻辑
-
-
-        // 如果找到了，继续处理
-
+        // 只查一次数据库：找不到直接抛 PatientNotFoundException
         Patient patient = patientRepository.findById(id).orElseThrow(()->new PatientNotFoundException("Patient not found with ID:"+ id));
 
         log.info("✅ Found patient name: {}", patient.getName());
@@ -119,17 +143,41 @@ public class PatientService {
             //检查是否有其他患者(id)已经使用了这个 email（除了当前正在更新的这个患者自己）
             throw new EmailAlreadyExistsException("A patient with this email is already" + patientRequestDTO.getEmail());
         }
+        // 记下哪些字段真的变了，PATIENT_UPDATED 事件只带这些字段
+        LocalDate dateOfBirth = LocalDate.parse(patientRequestDTO.getDateOfBirth());
+        Set<String> changedFields = new LinkedHashSet<>();
+        if (!Objects.equals(patient.getName(), patientRequestDTO.getName())) {
+            changedFields.add(PatientEventMapper.NAME);
+        }
+        if (!Objects.equals(patient.getEmail(), patientRequestDTO.getEmail())) {
+            changedFields.add(PatientEventMapper.EMAIL);
+        }
+        if (!Objects.equals(patient.getAddress(), patientRequestDTO.getAddress())) {
+            changedFields.add(PatientEventMapper.ADDRESS);
+        }
+        if (!Objects.equals(patient.getDateOfBirth(), dateOfBirth)) {
+            changedFields.add(PatientEventMapper.DATE_OF_BIRTH);
+        }
+
         patient.setName(patientRequestDTO.getName());
         patient.setAddress(patientRequestDTO.getAddress());
         patient.setEmail(patientRequestDTO.getEmail());
-        patient.setDateOfBirth(LocalDate.parse(patientRequestDTO.getDateOfBirth()));
+        patient.setDateOfBirth(dateOfBirth);
 
-        Patient updatedPatient = patientRepository.save(patient);
+        // flush now so the version in the event is the one the row ends up with
+        Patient updatedPatient = patientRepository.saveAndFlush(patient);
+        patientEventOutbox.patientUpdated(updatedPatient, changedFields);
+        patientCache.evict(id);
         return PatientMapper.toDTO(updatedPatient);
     }
 
+    @Transactional
     public void deletePatient (UUID id) {
-        patientRepository.deleteById(id);
+        // 删除也要发事件（tombstone），所以先把病人读出来拿到 version；不存在就 404，和 GET / PUT 一样
+        Patient patient = patientRepository.findById(id).orElseThrow(()->new PatientNotFoundException("Patient not found with ID:"+ id));
+        patientRepository.delete(patient);
+        patientEventOutbox.patientDeleted(patient);
+        patientCache.evict(id);
     }
 }
 
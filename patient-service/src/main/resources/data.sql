@@ -9,6 +9,16 @@ CREATE TABLE IF NOT EXISTS patient
     registered_date DATE                NOT NULL
 );
 
+-- billing account is created asynchronously after the patient row (see BillingAccountService)
+ALTER TABLE patient ADD COLUMN IF NOT EXISTS billing_status VARCHAR(32);
+ALTER TABLE patient ADD COLUMN IF NOT EXISTS billing_account_id VARCHAR(255);
+-- when the billing request was last handed to BillingAccountService; stale PENDING rows are resubmitted
+ALTER TABLE patient ADD COLUMN IF NOT EXISTS billing_requested_at TIMESTAMP WITH TIME ZONE;
+CREATE INDEX IF NOT EXISTS idx_patient_billing_pending ON patient (billing_requested_at) WHERE billing_status = 'PENDING';
+
+-- optimistic-lock version, also published as PatientEvent.version
+ALTER TABLE patient ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+
 -- Insert well-known UUIDs for specific patients
 INSERT INTO patient (id, name, email, address, date_of_birth, registered_date)
 SELECT '123e4567-e89b-12d3-a456-426614174000',
@@ -154,4 +164,31 @@ SELECT '223e4567-e89b-12d3-a456-426614174014',
        '789 Willow St, Springfield',
        '1987-10-17',
        '2024-03-29'
-WHERE NOT EXISTS (SELECT 1 FROM patient WHERE id = '223e4567-e89b-12d3-a456-426614174014');
\ No newline at end of file
+WHERE NOT EXISTS (SELECT 1 FROM patient WHERE id = '223e4567-e89b-12d3-a456-426614174014');
+
+-- Indexes backing the keyset-paginated GET /patients
+-- (registered_date, id) is the page order, so page N is an index range scan just like page 1.
+CREATE INDEX IF NOT EXISTS idx_patient_registered_date_id ON patient (registered_date, id);
+-- name prefix filter is case-insensitive: LOWER(name) LIKE 'abc%'
+CREATE INDEX IF NOT EXISTS idx_patient_lower_name ON patient (LOWER(name) varchar_pattern_ops);
+CREATE INDEX IF NOT EXISTS idx_patient_date_of_birth ON patient (date_of_birth);
+
+-- Transactional outbox for PatientEvent (see OutboxRelay)
+CREATE TABLE IF NOT EXISTS patient_outbox
+(
+    id           UUID PRIMARY KEY,
+    topic        VARCHAR(255)             NOT NULL,
+    aggregate_id UUID                     NOT NULL,
+    event_type   VARCHAR(255)             NOT NULL,
+    payload      BYTEA,
+    created_at   TIMESTAMP WITH TIME ZONE NOT NULL,
+    sent_at      TIMESTAMP WITH TIME ZONE
+);
+-- changelog tombstones have no payload
+ALTER TABLE patient_outbox ALTER COLUMN payload DROP NOT NULL;
+-- W3C traceparent of the request that wrote the event, so the Kafka hop joins its trace
+ALTER TABLE patient_outbox ADD COLUMN IF NOT EXISTS trace_parent VARCHAR(64);
+-- set while a relay instance is sending the row; another instance may take it over once it has passed
+ALTER TABLE patient_outbox ADD COLUMN IF NOT EXISTS claimed_until TIMESTAMP WITH TIME ZONE;
+-- the relay only ever reads unsent rows, oldest first
+CREATE INDEX IF NOT EXISTS idx_patient_outbox_unsent ON patient_outbox (created_at) WHERE sent_at IS NULL;
@@ -3,7 +3,8 @@ package com.pm.patientservice;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+// data.sql is PostgreSQL-only (varchar_pattern_ops, partial indexes); the schema comes from the entities here
+@SpringBootTest(properties = "spring.sql.init.mode=never")
 class PatientServiceApplicationTests {
 
     @Test
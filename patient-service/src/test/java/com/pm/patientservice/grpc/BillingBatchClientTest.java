@@ -0,0 +1,151 @@
+package com.pm.patientservice.grpc;
+
+import billing.BillingBatchResult;
+import billing.BillingRequest;
+import billing.BillingResponse;
+import billing.BillingServiceGrpc;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+class BillingBatchClientTest {
+
+    private final List<String> received = new CopyOnWriteArrayList<>();
+    // patients the fake billing-service fails, with the status it reports for them
+    private final Map<String, Status.Code> failures = new ConcurrentHashMap<>();
+    private Server server;
+    private ManagedChannel channel;
+    private BillingBatchClient client;
+
+    @AfterEach
+    void tearDown() {
+        client.shutdown();
+        channel.shutdownNow();
+        server.shutdownNow();
+    }
+
+    @Test
+    void duplicatePatientInOneBatchIsSentOnceAndCompletesEveryCaller() throws Exception {
+        start(true, 2000);
+
+        CompletableFuture<BillingResponse> first = client.createBillingAccount("p-1", "A", "a@test.com");
+        CompletableFuture<BillingResponse> retry = client.createBillingAccount("p-1", "A", "a@test.com");
+        CompletableFuture<BillingResponse> other = client.createBillingAccount("p-2", "B", "b@test.com");
+
+        assertThat(first.get(5, TimeUnit.SECONDS).getAccountId()).isEqualTo("acc-p-1");
+        assertThat(retry.get(5, TimeUnit.SECONDS).getAccountId()).isEqualTo("acc-p-1");
+        assertThat(other.get(5, TimeUnit.SECONDS).getAccountId()).isEqualTo("acc-p-2");
+        assertThat(received).containsExactly("p-1", "p-2");
+    }
+
+    @Test
+    void silentServerFailsTheBatchWithDeadlineExceeded() throws Exception {
+        start(false, 50);
+
+        CompletableFuture<BillingResponse> a = client.createBillingAccount("p-1", "A", "a@test.com");
+        CompletableFuture<BillingResponse> b = client.createBillingAccount("p-1", "A", "a@test.com");
+        client.createBillingAccount("p-2", "B", "b@test.com");
+
+        for (CompletableFuture<BillingResponse> future : List.of(a, b)) {
+            assertThatThrownBy(() -> future.get(5, TimeUnit.SECONDS))
+                    .isInstanceOf(ExecutionException.class)
+                    .cause()
+                    .isInstanceOfSatisfying(StatusRuntimeException.class, e ->
+                            assertThat(e.getStatus().getCode()).isEqualTo(Status.Code.DEADLINE_EXCEEDED));
+        }
+    }
+
+    @Test
+    void failedItemKeepsTheServerStatus() throws Exception {
+        failures.put("p-1", Status.Code.UNAVAILABLE);
+        failures.put("p-2", Status.Code.INVALID_ARGUMENT);
+        start(true, 2000);
+
+        CompletableFuture<BillingResponse> transientFailure = client.createBillingAccount("p-1", "A", "a@test.com");
+        CompletableFuture<BillingResponse> permanentFailure = client.createBillingAccount("p-2", "B", "b@test.com");
+        CompletableFuture<BillingResponse> created = client.createBillingAccount("p-3", "C", "c@test.com");
+
+        assertThat(created.get(5, TimeUnit.SECONDS).getAccountId()).isEqualTo("acc-p-3");
+        assertThat(statusOf(transientFailure)).isEqualTo(Status.Code.UNAVAILABLE);
+        assertThat(statusOf(permanentFailure)).isEqualTo(Status.Code.INVALID_ARGUMENT);
+    }
+
+    private static Status.Code statusOf(CompletableFuture<BillingResponse> future) {
+        Throwable cause = catchThrowable(() -> future.get(5, TimeUnit.SECONDS)).getCause();
+        assertThat(cause).isInstanceOf(StatusRuntimeException.class);
+        return ((StatusRuntimeException) cause).getStatus().getCode();
+    }
+
+    // batches of three, so the third create flushes without waiting for the window
+    private void start(boolean answer, long deadlineMs) throws Exception {
+        String name = InProcessServerBuilder.generateName();
+        server = InProcessServerBuilder.forName(name).directExecutor()
+                .addService(new FakeBillingService(answer)).build().start();
+        channel = InProcessChannelBuilder.forName(name).directExecutor().build();
+        client = new BillingBatchClient(channel, 3, 1000, 100, deadlineMs, 1);
+    }
+
+    private class FakeBillingService extends BillingServiceGrpc.BillingServiceImplBase {
+        private final boolean answer;
+
+        FakeBillingService(boolean answer) {
+            this.answer = answer;
+        }
+
+        @Override
+        public StreamObserver<BillingRequest> batchCreateBillingAccounts(
+                StreamObserver<BillingBatchResult> responseObserver) {
+            return new StreamObserver<>() {
+                @Override
+                public void onNext(BillingRequest request) {
+                    received.add(request.getPatientId());
+                    Status.Code failure = failures.get(request.getPatientId());
+                    if (answer && failure != null) {
+                        responseObserver.onNext(BillingBatchResult.newBuilder()
+                                .setPatientId(request.getPatientId())
+                                .setSuccess(false)
+                                .setError("failed")
+                                .setStatusCode(failure.value())
+                                .build());
+                    } else if (answer) {
+                        responseObserver.onNext(BillingBatchResult.newBuilder()
+                                .setPatientId(request.getPatientId())
+                                .setSuccess(true)
+                                .setResponse(BillingResponse.newBuilder()
+                                        .setAccountId("acc-" + request.getPatientId()))
+                                .build());
+                    }
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                }
+
+                @Override
+                public void onCompleted() {
+                    if (answer) {
+                        responseObserver.onCompleted();
+                    }
+                }
+            };
+        }
+    }
+}
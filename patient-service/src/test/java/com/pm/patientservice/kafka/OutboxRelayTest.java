@@ -0,0 +1,206 @@
+package com.pm.patientservice.kafka;
+
+import com.pm.patientservice.model.OutboxEvent;
+import com.pm.patientservice.repository.OutboxEventRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.data.domain.Limit;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OutboxRelayTest {
+
+    private OutboxEventRepository repository;
+    private KafkaProducer kafkaProducer;
+    private final List<Boolean> sentInTransaction = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(OutboxEventRepository.class);
+        kafkaProducer = mock(KafkaProducer.class);
+    }
+
+    @Test
+    void claimsInOneTransactionSendsOutsideAndMarksInAnother() {
+        List<OutboxEvent> batch = List.of(event(), event());
+        when(repository.lockNextBatch(any(Instant.class), any(Limit.class))).thenReturn(batch, List.of());
+        when(kafkaProducer.send(any())).thenAnswer(invocation -> {
+            sentInTransaction.add(TransactionSynchronizationManager.isActualTransactionActive());
+            return CompletableFuture.completedFuture(null);
+        });
+
+        relay(10).relay();
+
+        InOrder order = inOrder(repository, kafkaProducer);
+        order.verify(repository).claim(anyCollection(), any(Instant.class));
+        order.verify(kafkaProducer).flush();
+        order.verify(repository).markSent(eq(ids(batch)), any(Instant.class));
+        assertThat(sentInTransaction).containsExactly(false, false);
+    }
+
+    @Test
+    void unacknowledgedEventsAreNotMarkedAndStayBuffered() {
+        OutboxEvent acked = event();
+        OutboxEvent failed = event();
+        when(repository.lockNextBatch(any(Instant.class), any(Limit.class))).thenReturn(List.of(acked, failed));
+        when(kafkaProducer.send(acked)).thenReturn(CompletableFuture.completedFuture(null));
+        when(kafkaProducer.send(failed)).thenReturn(CompletableFuture.failedFuture(new IllegalStateException()));
+
+        OutboxRelay relay = relay(10);
+        relay.relay();
+
+        verify(repository).markSent(eq(List.of(acked.getId())), any(Instant.class));
+        // still claimed by this instance, not handed back to the table
+        verify(repository, never()).release(anyCollection());
+        // the buffer is not empty, so no further batch is claimed in the same run
+        verify(repository).lockNextBatch(any(Instant.class), any(Limit.class));
+
+        // only on shutdown
+        relay.releaseBuffered();
+        verify(repository).release(List.of(failed.getId()));
+    }
+
+    @Test
+    void laterEventsOfAFailedAggregateAreNeitherSentNorMarked() {
+        UUID patientId = UUID.randomUUID();
+        OutboxEvent first = event(patientId);
+        OutboxEvent second = event(patientId);
+        OutboxEvent other = event();
+        when(repository.lockNextBatch(any(Instant.class), any(Limit.class))).thenReturn(List.of(first, other, second));
+        when(kafkaProducer.send(first)).thenReturn(CompletableFuture.failedFuture(new IllegalStateException()));
+        when(kafkaProducer.send(other)).thenReturn(CompletableFuture.completedFuture(null));
+
+        relay(10).relay();
+
+        verify(kafkaProducer, never()).send(second);
+        verify(repository).markSent(eq(List.of(other.getId())), any(Instant.class));
+    }
+
+    @Test
+    void eventsOfOneAggregateGoOutOneAtATimeInOrder() {
+        UUID patientId = UUID.randomUUID();
+        OutboxEvent first = event(patientId);
+        OutboxEvent second = event(patientId);
+        CompletableFuture<SendResult<String, byte[]>> firstAck = new CompletableFuture<>();
+        when(repository.lockNextBatch(any(Instant.class), any(Limit.class))).thenReturn(List.of(first, second), List.of());
+        when(kafkaProducer.send(first)).thenReturn(firstAck);
+        // acknowledged only when the producer is flushed
+        doAnswer(invocation -> firstAck.complete(null)).when(kafkaProducer).flush();
+        when(kafkaProducer.send(second)).thenAnswer(invocation -> {
+            assertThat(firstAck).isCompleted();
+            return CompletableFuture.completedFuture(null);
+        });
+
+        relay(10).relay();
+
+        InOrder order = inOrder(kafkaProducer);
+        order.verify(kafkaProducer).send(first);
+        order.verify(kafkaProducer).flush();
+        order.verify(kafkaProducer).send(second);
+        verify(repository).markSent(eq(ids(List.of(first, second))), any(Instant.class));
+    }
+
+    @Test
+    void eventsBehindAnOlderOneHeldElsewhereAreNotClaimed() {
+        UUID patientId = UUID.randomUUID();
+        OutboxEvent newer = event(patientId);
+        OutboxEvent other = event();
+        when(repository.lockNextBatch(any(Instant.class), any(Limit.class))).thenReturn(List.of(newer, other), List.of());
+        // another instance still holds an older event of the same patient
+        when(repository.findOtherUnsent(anyCollection(), anyCollection(), any(Instant.class))).thenReturn(List.of(
+                new Unsent("patient", patientId, newer.getCreatedAt().minusMillis(1))));
+        when(kafkaProducer.send(any())).thenReturn(CompletableFuture.completedFuture(null));
+
+        relay(10).relay();
+
+        verify(repository).claim(eq(List.of(other.getId())), any(Instant.class));
+        verify(kafkaProducer, never()).send(newer);
+        verify(repository).markSent(eq(List.of(other.getId())), any(Instant.class));
+    }
+
+    @Test
+    void bufferedEventsKeepTheirLeaseWhileWaiting() {
+        OutboxEvent failed = event();
+        when(repository.lockNextBatch(any(Instant.class), any(Limit.class))).thenReturn(List.of(failed));
+        when(kafkaProducer.send(failed)).thenReturn(CompletableFuture.failedFuture(new IllegalStateException()));
+
+        // zero lease: every tick is past lease/2, long backoff: no resend yet
+        OutboxRelay relay = new OutboxRelay(repository, kafkaProducer,
+                new TransactionTemplate(new NoOpTransactionManager()), new SimpleMeterRegistry(), 10, 1000,
+                Duration.ZERO, Duration.ofDays(1), 100, 60_000, 60_000);
+        relay.relay();
+        relay.relay();
+
+        // once when claimed, once renewed on the second tick
+        verify(repository, times(2)).claim(eq(List.of(failed.getId())), any(Instant.class));
+        verify(kafkaProducer).send(failed);
+    }
+
+    private OutboxRelay relay(int batchSize) {
+        return new OutboxRelay(repository, kafkaProducer, new TransactionTemplate(new NoOpTransactionManager()),
+                new SimpleMeterRegistry(), batchSize, 1000, Duration.ofMinutes(1), Duration.ofDays(1),
+                100, 500, 30000);
+    }
+
+    private static OutboxEvent event() {
+        return event(UUID.randomUUID());
+    }
+
+    private static OutboxEvent event(UUID aggregateId) {
+        return new OutboxEvent("patient", aggregateId, "PATIENT_UPDATED", new byte[]{1});
+    }
+
+    private static Collection<UUID> ids(List<OutboxEvent> events) {
+        return events.stream().map(OutboxEvent::getId).toList();
+    }
+
+    private record Unsent(String getTopic, UUID getAggregateId, Instant getCreatedAt)
+            implements OutboxEventRepository.UnsentEvent {
+    }
+
+    // just enough of a transaction manager for TransactionTemplate to mark its callbacks as transactional
+    static class NoOpTransactionManager extends AbstractPlatformTransactionManager {
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+        }
+    }
+}
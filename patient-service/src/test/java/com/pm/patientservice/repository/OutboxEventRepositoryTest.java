@@ -0,0 +1,46 @@
+package com.pm.patientservice.repository;
+
+import com.pm.patientservice.model.OutboxEvent;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// data.sql is PostgreSQL-only; the schema comes from the entities here
+@DataJpaTest(properties = "spring.sql.init.mode=never")
+class OutboxEventRepositoryTest {
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Test
+    void findOtherUnsentOnlyReturnsOlderUnsentEventsOutsideTheBatch() throws InterruptedException {
+        UUID patientId = UUID.randomUUID();
+        OutboxEvent elsewhere = save(patientId);
+        OutboxEvent alreadySent = save(patientId);
+        OutboxEvent inBatch = save(patientId);
+        save(UUID.randomUUID());
+        outboxEventRepository.markSent(List.of(alreadySent.getId()), Instant.now());
+
+        List<OutboxEventRepository.UnsentEvent> found = outboxEventRepository.findOtherUnsent(
+                Set.of(patientId), List.of(inBatch.getId()), inBatch.getCreatedAt());
+
+        assertThat(found).hasSize(1);
+        assertThat(found.get(0).getAggregateId()).isEqualTo(patientId);
+        assertThat(found.get(0).getTopic()).isEqualTo("patient");
+        // the column keeps microseconds
+        assertThat(found.get(0).getCreatedAt()).isBetween(elsewhere.getCreatedAt().minusMillis(1), alreadySent.getCreatedAt());
+    }
+
+    // a little apart, so createdAt orders them
+    private OutboxEvent save(UUID aggregateId) throws InterruptedException {
+        Thread.sleep(2);
+        return outboxEventRepository.saveAndFlush(new OutboxEvent("patient", aggregateId, "PATIENT_UPDATED", new byte[]{1}));
+    }
+}
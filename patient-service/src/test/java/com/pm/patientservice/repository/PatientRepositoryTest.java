@@ -0,0 +1,58 @@
+package com.pm.patientservice.repository;
+
+import com.pm.patientservice.model.BillingStatus;
+import com.pm.patientservice.model.Patient;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// data.sql is PostgreSQL-only; the schema comes from the entities here
+@DataJpaTest(properties = "spring.sql.init.mode=never")
+class PatientRepositoryTest {
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    void updateRacingBillingCompletionKeepsTheBillingStatus() {
+        UUID id = UUID.randomUUID();
+        patientRepository.saveAndFlush(patient(id));
+        entityManager.clear();
+
+        // PUT /patients/{id} has loaded the patient while billing is still PENDING ...
+        Patient loaded = patientRepository.findById(id).orElseThrow();
+        // ... billing-service answers in the meantime ...
+        patientRepository.updateBillingStatus(id, BillingStatus.ACTIVE, "acc-1");
+        // ... and the PUT writes its change
+        loaded.setName("Renamed");
+        patientRepository.flush();
+        entityManager.clear();
+
+        Patient stored = patientRepository.findById(id).orElseThrow();
+        assertThat(stored.getName()).isEqualTo("Renamed");
+        assertThat(stored.getBillingStatus()).isEqualTo(BillingStatus.ACTIVE);
+        assertThat(stored.getBillingAccountId()).isEqualTo("acc-1");
+        assertThat(stored.getVersion()).isEqualTo(1);
+    }
+
+    private static Patient patient(UUID id) {
+        Patient patient = new Patient();
+        patient.setId(id);
+        patient.setName("Billing Race");
+        patient.setEmail("billing.race@test.com");
+        patient.setAddress("1 Race Street");
+        patient.setDateOfBirth(LocalDate.of(1990, 1, 1));
+        patient.setRegisteredDate(LocalDate.of(2024, 1, 1));
+        patient.setBillingStatus(BillingStatus.PENDING);
+        return patient;
+    }
+}
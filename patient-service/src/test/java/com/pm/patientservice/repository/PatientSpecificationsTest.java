@@ -0,0 +1,80 @@
+package com.pm.patientservice.repository;
+
+import com.pm.patientservice.dto.PatientRequestDTO;
+import com.pm.patientservice.mapper.PatientMapper;
+import com.pm.patientservice.model.Patient;
+import com.pm.patientservice.util.PatientCursor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// data.sql is PostgreSQL-only; the schema comes from the entities here
+@DataJpaTest(properties = "spring.sql.init.mode=never")
+class PatientSpecificationsTest {
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Test
+    void keysetPagesVisitEveryPatientOnce() {
+        // several patients per registered date, so the id tie-break decides page boundaries
+        Set<UUID> expected = new HashSet<>();
+        for (int i = 0; i < 23; i++) {
+            Patient patient = patient("Keyset " + i, "keyset." + i + "@test.com", LocalDate.of(2024, 1, 1 + i % 3));
+            expected.add(patientRepository.save(patient).getId());
+        }
+        patientRepository.flush();
+
+        List<UUID> seen = new ArrayList<>();
+        PatientCursor cursor = null;
+        do {
+            List<Patient> page = page(cursor, 5);
+            page.forEach(patient -> seen.add(patient.getId()));
+            // the encoded token is what the client sends back
+            cursor = page.size() < 5 ? null : PatientCursor.decode(PatientCursor.of(page.get(4)).encode());
+        } while (cursor != null);
+
+        assertThat(seen).doesNotHaveDuplicates();
+        assertThat(seen).containsExactlyInAnyOrderElementsOf(expected);
+    }
+
+    @Test
+    void namePrefixIsMatchedLiterally() {
+        UUID percent = patientRepository.saveAndFlush(
+                patient("50% Off", "percent@test.com", LocalDate.of(2024, 1, 1))).getId();
+        patientRepository.saveAndFlush(patient("500 Miles", "miles@test.com", LocalDate.of(2024, 1, 1)));
+
+        List<Patient> found = patientRepository.findAll(PatientSpecifications.nameStartsWith("50%"));
+
+        assertThat(found).extracting(Patient::getId).containsExactly(percent);
+    }
+
+    private List<Patient> page(PatientCursor cursor, int size) {
+        Specification<Patient> spec = Specification.allOf(PatientSpecifications.after(cursor));
+        return patientRepository.findBy(spec, query -> query
+                .sortBy(PatientSpecifications.KEYSET_SORT)
+                .limit(size)
+                .all());
+    }
+
+    // built the way POST /patients builds it
+    private static Patient patient(String name, String email, LocalDate registeredDate) {
+        PatientRequestDTO request = new PatientRequestDTO();
+        request.setName(name);
+        request.setEmail(email);
+        request.setAddress("1 Keyset Street");
+        request.setDateOfBirth("1990-01-01");
+        request.setRegisteredDate(registeredDate.toString());
+        return PatientMapper.toModel(request);
+    }
+}
@@ -0,0 +1,93 @@
+package com.pm.patientservice.service;
+
+import billing.BillingResponse;
+import com.pm.patientservice.cache.PatientCache;
+import com.pm.patientservice.grpc.BillingBatchClient;
+import com.pm.patientservice.grpc.BillingServiceGrpcClient;
+import com.pm.patientservice.model.BillingStatus;
+import com.pm.patientservice.model.Patient;
+import com.pm.patientservice.repository.PatientRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BillingAccountServiceTest {
+
+    private PatientRepository patientRepository;
+    private BillingServiceGrpcClient grpcClient;
+    private BillingAccountService service;
+
+    @BeforeEach
+    void setUp() {
+        patientRepository = mock(PatientRepository.class);
+        grpcClient = mock(BillingServiceGrpcClient.class);
+        TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        service = new BillingAccountService(grpcClient, mock(BillingBatchClient.class), false, patientRepository,
+                mock(PatientCache.class), transactionTemplate, 5, 200, Duration.ofMinutes(2), 500, 1, false);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void stalePendingPatientsAreClaimedAndResubmitted() {
+        Patient patient = patient();
+        when(patientRepository.lockStaleBilling(eq(BillingStatus.PENDING), any(Instant.class), any(Limit.class)))
+                .thenReturn(List.of(patient));
+        when(grpcClient.createBillingAccount(anyString(), anyString(), anyString())).thenReturn(
+                CompletableFuture.completedFuture(BillingResponse.newBuilder().setAccountId("acc-1").build()));
+
+        Instant before = Instant.now();
+        service.resubmitStale();
+
+        ArgumentCaptor<Instant> cutoff = ArgumentCaptor.forClass(Instant.class);
+        verify(patientRepository).lockStaleBilling(eq(BillingStatus.PENDING), cutoff.capture(), any(Limit.class));
+        assertThat(cutoff.getValue()).isBeforeOrEqualTo(Instant.now().minus(Duration.ofMinutes(2)))
+                .isAfterOrEqualTo(before.minus(Duration.ofMinutes(2)));
+        verify(patientRepository).markBillingRequested(eq(List.of(patient.getId())), any(Instant.class));
+        verify(grpcClient).createBillingAccount(patient.getId().toString(), patient.getName(), patient.getEmail());
+    }
+
+    @Test
+    void nothingIsSentWhenNoPatientIsStale() {
+        when(patientRepository.lockStaleBilling(eq(BillingStatus.PENDING), any(Instant.class), any(Limit.class)))
+                .thenReturn(List.of());
+
+        service.resubmitStale();
+
+        verify(patientRepository, never()).markBillingRequested(any(), any());
+        verify(grpcClient, never()).createBillingAccount(anyString(), anyString(), anyString());
+    }
+
+    private static Patient patient() {
+        Patient patient = new Patient();
+        patient.setId(UUID.randomUUID());
+        patient.setName("Stale Pending");
+        patient.setEmail("stale@test.com");
+        patient.setBillingStatus(BillingStatus.PENDING);
+        return patient;
+    }
+}
@@ -0,0 +1,108 @@
+package com.pm.patientservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pm.patientservice.dto.BulkImportResponseDTO;
+import com.pm.patientservice.dto.BulkImportRowResultDTO;
+import com.pm.patientservice.dto.PatientRequestDTO;
+import com.pm.patientservice.kafka.PatientEventOutbox;
+import com.pm.patientservice.repository.PatientRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.Validator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PatientBulkImportServiceTest {
+
+    private PatientRepository patientRepository;
+    private PatientBulkImportService service;
+
+    @BeforeEach
+    void setUp() {
+        patientRepository = mock(PatientRepository.class);
+        TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        // the mocked Validator reports no violations, so only the email checks decide
+        service = new PatientBulkImportService(patientRepository, mock(PatientEventOutbox.class),
+                mock(BillingAccountService.class), mock(EntityManager.class), transactionTemplate,
+                mock(Validator.class), new ObjectMapper(), 2, 500);
+    }
+
+    @Test
+    void jsonArrayIsRejectedAsSoonAsItExceedsMaxRows() {
+        // the trailing garbage is never reached: the third element already trips the limit
+        String body = "[" + json("a@test.com") + "," + json("b@test.com") + "," + json("c@test.com")
+                + ", this is not json";
+
+        assertThatThrownBy(() -> service.readJsonArray(stream(body)))
+                .isInstanceOfSatisfying(ResponseStatusException.class, e ->
+                        assertThat(e.getStatusCode()).isEqualTo(HttpStatus.PAYLOAD_TOO_LARGE));
+    }
+
+    @Test
+    void jsonArrayIsReadElementByElement() throws Exception {
+        List<PatientRequestDTO> rows = service.readJsonArray(stream("[" + json("a@test.com") + "]"));
+
+        assertThat(rows).extracting(PatientRequestDTO::getEmail).containsExactly("a@test.com");
+    }
+
+    @Test
+    void emailTakenAfterTheCheckBecomesAPerRowDuplicate() {
+        when(patientRepository.findExistingEmails(any()))
+                .thenReturn(Set.of())                 // the up-front check
+                .thenReturn(Set.of("b@test.com"));    // after the unique constraint fired
+        doThrow(new DataIntegrityViolationException("duplicate key value violates unique constraint"))
+                .doNothing()
+                .when(patientRepository).flush();
+
+        BulkImportResponseDTO response = service.importPatients(List.of(row("a@test.com"), row("b@test.com")));
+
+        assertThat(response.getResults()).extracting(BulkImportRowResultDTO::getStatus)
+                .containsExactly(BulkImportRowResultDTO.CREATED, BulkImportRowResultDTO.DUPLICATE_EMAIL);
+    }
+
+    @Test
+    void otherConstraintViolationsStillFailTheImport() {
+        when(patientRepository.findExistingEmails(any())).thenReturn(Set.of());
+        doThrow(new DataIntegrityViolationException("value too long")).when(patientRepository).flush();
+
+        assertThatThrownBy(() -> service.importPatients(List.of(row("a@test.com"))))
+                .isInstanceOf(DataIntegrityViolationException.class);
+    }
+
+    private static ByteArrayInputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String json(String email) {
+        return "{\"name\":\"Bulk Test\",\"email\":\"" + email + "\",\"address\":\"1 Bulk Street\","
+                + "\"dateOfBirth\":\"1990-01-01\",\"registeredDate\":\"2024-01-01\"}";
+    }
+
+    private static PatientRequestDTO row(String email) {
+        PatientRequestDTO row = new PatientRequestDTO();
+        row.setName("Bulk Test");
+        row.setEmail(email);
+        row.setAddress("1 Bulk Street");
+        row.setDateOfBirth("1990-01-01");
+        row.setRegisteredDate("2024-01-01");
+        return row;
+    }
+}
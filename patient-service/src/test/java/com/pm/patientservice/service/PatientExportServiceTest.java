@@ -0,0 +1,50 @@
+package com.pm.patientservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pm.patientservice.model.Patient;
+import com.pm.patientservice.repository.PatientRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PatientExportServiceTest {
+
+    @Test
+    void ndjsonLinesHaveNoLeadingSeparator() throws Exception {
+        PatientRepository repository = mock(PatientRepository.class);
+        when(repository.streamAllForExport()).thenReturn(Stream.of(patient("a@test.com"), patient("b@test.com"),
+                patient("c@test.com")));
+        PatientExportService service = new PatientExportService(repository, mock(EntityManager.class),
+                new ObjectMapper());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long count = service.exportNdjson(out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(count).isEqualTo(3);
+        assertThat(lines).hasSize(3);
+        for (String line : lines) {
+            assertThat(line).startsWith("{").endsWith("}");
+        }
+    }
+
+    private static Patient patient(String email) {
+        Patient patient = new Patient();
+        patient.setId(UUID.randomUUID());
+        patient.setName("Export Test");
+        patient.setEmail(email);
+        patient.setAddress("1 Export Street");
+        patient.setDateOfBirth(LocalDate.of(1990, 1, 1));
+        patient.setRegisteredDate(LocalDate.of(2024, 1, 1));
+        return patient;
+    }
+}
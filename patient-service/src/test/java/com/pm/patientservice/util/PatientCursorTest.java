@@ -0,0 +1,44 @@
+package com.pm.patientservice.util;
+
+import com.pm.patientservice.exception.InvalidCursorException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Base64;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PatientCursorTest {
+
+    @Test
+    void encodeDecodeRoundTrip() {
+        PatientCursor cursor = new PatientCursor(LocalDate.of(2024, 1, 31), UUID.randomUUID());
+
+        String token = cursor.encode();
+
+        // goes into a query string as it is
+        assertThat(token).matches("[A-Za-z0-9_-]+");
+        assertThat(PatientCursor.decode(token)).isEqualTo(cursor);
+    }
+
+    @Test
+    void malformedTokensAreRejected() {
+        String notBase64 = "not a cursor!";
+        String noSeparator = encode("2024-01-31" + UUID.randomUUID());
+        String badDate = encode("2024-13-31|" + UUID.randomUUID());
+        String badId = encode("2024-01-31|not-a-uuid");
+
+        for (String token : new String[]{notBase64, noSeparator, badDate, badId}) {
+            assertThatThrownBy(() -> PatientCursor.decode(token))
+                    .as(token)
+                    .isInstanceOf(InvalidCursorException.class);
+        }
+    }
+
+    private static String encode(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}